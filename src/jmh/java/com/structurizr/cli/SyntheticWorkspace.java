@@ -0,0 +1,104 @@
+package com.structurizr.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Generates synthetic workspaces (as DSL) of a given size, for benchmarking.
+ *
+ * Each software system has 3 containers, each with 3 components (13 elements per software system),
+ * and there is one person for every 10 software systems. Relationships link people to software systems,
+ * containers and components to their siblings, and containers to the next software system's first container
+ * (which also creates implied relationships). The views are a system landscape view, plus container and component
+ * views for up to 10 software systems/containers, so the size of the exports grows with the model rather than
+ * with the number of views.
+ */
+public final class SyntheticWorkspace {
+
+    private static final int CONTAINERS_PER_SOFTWARE_SYSTEM = 3;
+    private static final int COMPONENTS_PER_CONTAINER = 3;
+    private static final int ELEMENTS_PER_SOFTWARE_SYSTEM = 1 + CONTAINERS_PER_SOFTWARE_SYSTEM + (CONTAINERS_PER_SOFTWARE_SYSTEM * COMPONENTS_PER_CONTAINER);
+    private static final int SOFTWARE_SYSTEMS_PER_PERSON = 10;
+    private static final int MAXIMUM_DETAILED_VIEWS = 10;
+
+    private SyntheticWorkspace() {
+    }
+
+    /**
+     * Writes a DSL file for a workspace with approximately the given number of elements.
+     */
+    public static File writeDsl(int elements, File directory) throws IOException {
+        File file = new File(directory, "workspace-" + elements + ".dsl");
+        Files.writeString(file.toPath(), createDsl(elements), StandardCharsets.UTF_8);
+
+        return file;
+    }
+
+    public static String createDsl(int elements) {
+        int softwareSystems = Math.max(1, elements / ELEMENTS_PER_SOFTWARE_SYSTEM);
+        int people = Math.max(1, softwareSystems / SOFTWARE_SYSTEMS_PER_PERSON);
+
+        StringBuilder buf = new StringBuilder();
+        buf.append("workspace \"Synthetic\" \"A synthetic workspace with ").append(elements).append(" elements\" {\n");
+        buf.append("    model {\n");
+
+        for (int p = 1; p <= people; p++) {
+            buf.append("        u").append(p).append(" = person \"User ").append(p).append("\" \"Description of user ").append(p).append("\"\n");
+        }
+
+        for (int s = 1; s <= softwareSystems; s++) {
+            buf.append("        s").append(s).append(" = softwareSystem \"Software System ").append(s).append("\" \"Description of software system ").append(s).append("\" {\n");
+            for (int c = 1; c <= CONTAINERS_PER_SOFTWARE_SYSTEM; c++) {
+                String container = "s" + s + "c" + c;
+                buf.append("            ").append(container).append(" = container \"Container ").append(c).append("\" \"Description\" \"Java\" {\n");
+                for (int k = 1; k <= COMPONENTS_PER_CONTAINER; k++) {
+                    buf.append("                ").append(container).append("k").append(k).append(" = component \"Component ").append(k).append("\" \"Description\" \"Java\"\n");
+                }
+                buf.append("            }\n");
+            }
+            buf.append("        }\n");
+        }
+
+        for (int s = 1; s <= softwareSystems; s++) {
+            buf.append("        u").append(((s - 1) % people) + 1).append(" -> s").append(s).append("c1 \"Uses\"\n");
+            for (int c = 1; c <= CONTAINERS_PER_SOFTWARE_SYSTEM; c++) {
+                String container = "s" + s + "c" + c;
+                if (c < CONTAINERS_PER_SOFTWARE_SYSTEM) {
+                    buf.append("        ").append(container).append(" -> s").append(s).append("c").append(c + 1).append(" \"Uses\" \"HTTPS\"\n");
+                }
+                for (int k = 1; k < COMPONENTS_PER_CONTAINER; k++) {
+                    buf.append("        ").append(container).append("k").append(k).append(" -> ").append(container).append("k").append(k + 1).append(" \"Calls\"\n");
+                }
+            }
+            if (s < softwareSystems) {
+                buf.append("        s").append(s).append("c").append(CONTAINERS_PER_SOFTWARE_SYSTEM).append(" -> s").append(s + 1).append("c1 \"Sends data to\" \"HTTPS\"\n");
+            }
+        }
+
+        buf.append("    }\n");
+        buf.append("    views {\n");
+        buf.append("        systemLandscape \"landscape\" {\n");
+        buf.append("            include *\n");
+        buf.append("        }\n");
+        for (int s = 1; s <= Math.min(softwareSystems, MAXIMUM_DETAILED_VIEWS); s++) {
+            buf.append("        container s").append(s).append(" \"containers-").append(s).append("\" {\n");
+            buf.append("            include *\n");
+            buf.append("        }\n");
+            buf.append("        component s").append(s).append("c1 \"components-").append(s).append("\" {\n");
+            buf.append("            include *\n");
+            buf.append("        }\n");
+        }
+        buf.append("        styles {\n");
+        buf.append("            element \"Person\" {\n");
+        buf.append("                shape person\n");
+        buf.append("            }\n");
+        buf.append("        }\n");
+        buf.append("    }\n");
+        buf.append("}\n");
+
+        return buf.toString();
+    }
+
+}
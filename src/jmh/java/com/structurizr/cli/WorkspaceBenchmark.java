@@ -0,0 +1,91 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for loading (DSL and JSON), saving and listing workspaces, on synthetic workspaces of various sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WorkspaceBenchmark {
+
+    @Param({ "100", "1000", "10000", "50000" })
+    private int elements;
+
+    private File directory;
+    private String dslPath;
+    private String jsonPath;
+    private Workspace workspace;
+
+    private final BenchmarkCommand command = new BenchmarkCommand();
+    private final ListCommand listCommand = new ListCommand();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("structurizr-jmh").toFile();
+        dslPath = SyntheticWorkspace.writeDsl(elements, directory).getAbsolutePath();
+
+        workspace = command.load(dslPath);
+        File jsonFile = new File(directory, "workspace-" + elements + ".json");
+        WorkspaceUtils.saveWorkspaceToJson(workspace, jsonFile);
+        jsonPath = jsonFile.getAbsolutePath();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public Workspace parseDsl() throws Exception {
+        return command.load(dslPath);
+    }
+
+    @Benchmark
+    public Workspace loadJson() throws Exception {
+        return command.load(jsonPath);
+    }
+
+    @Benchmark
+    public String saveJson() throws Exception {
+        return WorkspaceUtils.toJson(workspace, false);
+    }
+
+    @Benchmark
+    public void listElements(Blackhole blackhole) {
+        listCommand.listElements(workspace, blackhole::consume);
+    }
+
+    /**
+     * Exposes {@link AbstractCommand#loadWorkspace(String)}, so that benchmarks go through the same path as the commands.
+     */
+    private static class BenchmarkCommand extends AbstractCommand {
+
+        Workspace load(String path) throws Exception {
+            return loadWorkspace(path);
+        }
+
+        @Override
+        public void run(String... args) {
+        }
+
+    }
+
+}
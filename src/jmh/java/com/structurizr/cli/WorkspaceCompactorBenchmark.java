@@ -0,0 +1,102 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.dsl.StructurizrDslParser;
+import com.structurizr.util.WorkspaceUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the retained heap of a workspace loaded from JSON, with and without {@link WorkspaceCompactor}.
+ *
+ * The retained heap is measured after a full GC and reported as the "retainedKilobytes" secondary result;
+ * the primary (time) result is mostly GC and is not interesting here. For example:
+ * ./gradlew jmh -Pjmh.includes=WorkspaceCompactorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class WorkspaceCompactorBenchmark {
+
+    private static final int GC_ATTEMPTS = 5;
+
+    @Param({ "10000", "50000" })
+    private int elements;
+
+    @Param({ "false", "true" })
+    private boolean compact;
+
+    private File directory;
+    private File jsonFile;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+
+        public long retainedKilobytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedKilobytes = 0;
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("structurizr-jmh").toFile();
+        File dslFile = SyntheticWorkspace.writeDsl(elements, directory);
+
+        StructurizrDslParser parser = new StructurizrDslParser();
+        parser.parse(dslFile);
+        jsonFile = new File(directory, "workspace-" + elements + ".json");
+        WorkspaceUtils.saveWorkspaceToJson(parser.getWorkspace(), jsonFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void loadJson(RetainedHeap retainedHeap) throws Exception {
+        long before = usedHeap();
+
+        // loaded directly rather than via AbstractCommand.loadWorkspace, which compacts large workspaces itself
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(jsonFile);
+        if (compact) {
+            new WorkspaceCompactor().compact(workspace);
+        }
+
+        long after = usedHeap();
+        Reference.reachabilityFence(workspace);
+
+        retainedHeap.retainedKilobytes = (after - before) / 1024;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < GC_ATTEMPTS; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.structurizr.cli.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.cli.SyntheticWorkspace;
+import com.structurizr.dsl.StructurizrDslParser;
+import com.structurizr.export.DiagramExporter;
+import com.structurizr.export.Exporter;
+import com.structurizr.export.WorkspaceExporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for each of the built-in exporters, on synthetic workspaces of various sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({ "100", "1000", "10000", "50000" })
+    private int elements;
+
+    @Param({ "plantuml", "plantuml/c4plantuml", "mermaid", "dot", "websequencediagrams", "ilograph", "d2", "json", "theme" })
+    private String format;
+
+    private Workspace workspace;
+    private Exporter exporter;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        StructurizrDslParser parser = new StructurizrDslParser();
+        parser.parse(SyntheticWorkspace.createDsl(elements));
+        workspace = parser.getWorkspace();
+
+        exporter = ExportCommand.getBuiltInExporters().get(format);
+        if (exporter == null) {
+            throw new IllegalArgumentException("No built-in exporter for " + format);
+        }
+    }
+
+    @Benchmark
+    public Object export() {
+        if (exporter instanceof DiagramExporter) {
+            return ((DiagramExporter)exporter).export(workspace);
+        } else {
+            return ((WorkspaceExporter)exporter).export(workspace);
+        }
+    }
+
+}
@@ -17,6 +17,7 @@ import java.io.File;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 
 public abstract class AbstractCommand {
 
@@ -25,11 +26,21 @@ public abstract class AbstractCommand {
     private static final String PLUGINS_DIRECTORY_NAME = "plugins";
     private static final int HTTP_OK_STATUS = 200;
 
+    private Metrics metrics = new Metrics("");
+
     protected AbstractCommand() {
     }
 
     public abstract void run(String... args) throws Exception;
 
+    protected Metrics getMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     String getAgent() {
         return "structurizr-cli/" + getClass().getPackage().getImplementationVersion();
 
@@ -47,7 +58,71 @@ public abstract class AbstractCommand {
         }
     }
 
+    /**
+     * Adds the styles from the themes referenced by the given workspace, using the local theme cache.
+     * In offline mode, themes that aren't in the cache result in an error rather than a network request.
+     */
+    protected void loadThemes(Workspace workspace, boolean offline) throws Exception {
+        ThemeCache themeCache = new ThemeCache(ThemeCache.getDefaultDirectory());
+        themeCache.setOffline(offline);
+
+        try (Metrics.Phase phase = metrics.phase("themes")) {
+            themeCache.loadThemes(workspace);
+        }
+
+        metrics.count("themesCached", themeCache.getHits());
+        metrics.count("themesFetched", themeCache.getFetched());
+    }
+
     protected Workspace loadWorkspace(String workspacePathAsString) throws Exception {
+        return loadWorkspace(workspacePathAsString, "");
+    }
+
+    /**
+     * Loads the workspace, recording its size in the metrics under names prefixed with the given input name
+     * (e.g. "before" results in "beforeElements"), or not at all if the input name is null. Commands with more
+     * than one input use this so that the sizes of their inputs aren't added together.
+     */
+    protected Workspace loadWorkspace(String workspacePathAsString, String input) throws Exception {
+        Workspace workspace;
+
+        try (Metrics.Phase phase = metrics.phase("parse")) {
+            workspace = parseWorkspace(workspacePathAsString);
+        }
+
+        // validate workspace scope
+        try (Metrics.Phase phase = metrics.phase("validate")) {
+            WorkspaceScopeValidatorFactory.getValidator(workspace).validate(workspace);
+        }
+
+        if (input != null) {
+            metrics.count(metricName(input, "elements"), workspace.getModel().getElements().size());
+            metrics.count(metricName(input, "relationships"), workspace.getModel().getRelationships().size());
+            metrics.count(metricName(input, "views"), workspace.getViews().getViews().size());
+        }
+
+        // large workspaces repeat the same tags, technologies, properties, etc many times over
+        if (workspace.getModel().getElements().size() + workspace.getModel().getRelationships().size() >= WorkspaceCompactor.DEFAULT_THRESHOLD) {
+            WorkspaceCompactor compactor = new WorkspaceCompactor();
+            try (Metrics.Phase phase = metrics.phase("compact")) {
+                compactor.compact(workspace);
+            }
+            metrics.count("duplicateStrings", compactor.getDuplicateStrings());
+            metrics.count("compactedBytes", compactor.getBytesSaved());
+        }
+
+        return workspace;
+    }
+
+    private static String metricName(String input, String name) {
+        if (input.isEmpty()) {
+            return name;
+        }
+
+        return input + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private Workspace parseWorkspace(String workspacePathAsString) throws Exception {
         Workspace workspace;
 
         if (workspacePathAsString.endsWith(".json")) {
@@ -84,7 +159,21 @@ public abstract class AbstractCommand {
                     throw new StructurizrCliException(workspaceFile.getAbsolutePath() + " is not a JSON or DSL file");
                 }
 
-                structurizrDslParser.parse(workspaceFile);
+                String dsl = Files.readString(workspaceFile.toPath(), Charset.defaultCharset());
+                if (IncludeCache.hasRemoteIncludes(dsl)) {
+                    // fetch the remote includes in parallel, and have the parser read them from the cache
+                    IncludeCache includeCache = new IncludeCache(IncludeCache.getDefaultDirectory(), Charset.defaultCharset());
+                    try (Metrics.Phase phase = metrics.phase("includes")) {
+                        dsl = includeCache.prefetch(dsl, workspaceFile.getAbsoluteFile().getParentFile());
+                    }
+                    metrics.count("includesFetched", includeCache.getFetched());
+                    metrics.count("includesRevalidated", includeCache.getRevalidated());
+                    metrics.count("includesStale", includeCache.getStale());
+
+                    structurizrDslParser.parse(dsl, workspaceFile);
+                } else {
+                    structurizrDslParser.parse(workspaceFile);
+                }
             }
 
             workspace = structurizrDslParser.getWorkspace();
@@ -94,9 +183,6 @@ public abstract class AbstractCommand {
             }
         }
 
-        // validate workspace scope
-        WorkspaceScopeValidatorFactory.getValidator(workspace).validate(workspace);
-
         return workspace;
     }
 
@@ -0,0 +1,162 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.structurizr.Workspace;
+import org.apache.commons.cli.*;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reports the elements, relationships and views that were added, removed or changed between two workspaces.
+ */
+class DiffCommand extends AbstractCommand {
+
+    private static final Log log = LogFactory.getLog(DiffCommand.class);
+
+    private static final String TEXT_FORMAT = "text";
+    private static final String JSON_FORMAT = "json";
+
+    DiffCommand() {
+    }
+
+    public void run(String... args) throws Exception {
+        Options options = new Options();
+
+        Option option = new Option("a", "before", true, "Path or URL to the original workspace JSON/DSL file");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option("b", "after", true, "Path or URL to the changed workspace JSON/DSL file");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option("f", "format", true, String.format("Output format: %s|%s (default: %s)", TEXT_FORMAT, JSON_FORMAT, TEXT_FORMAT));
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("o", "output", true, "Path and name of an output file (default: the console)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser commandLineParser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+
+        String beforePath = null;
+        String afterPath = null;
+        String format = TEXT_FORMAT;
+        String outputPath = null;
+
+        try {
+            CommandLine cmd = commandLineParser.parse(options, args);
+
+            beforePath = cmd.getOptionValue("before");
+            afterPath = cmd.getOptionValue("after");
+            format = cmd.getOptionValue("format", TEXT_FORMAT);
+            outputPath = cmd.getOptionValue("output");
+
+            if (!TEXT_FORMAT.equalsIgnoreCase(format) && !JSON_FORMAT.equalsIgnoreCase(format)) {
+                throw new ParseException("Unknown format: " + format);
+            }
+        } catch (ParseException e) {
+            log.error(e.getMessage());
+            formatter.printHelp("diff", options);
+
+            System.exit(1);
+        }
+
+        log.info("Comparing " + beforePath + " with " + afterPath);
+
+        // both workspaces are loaded and fingerprinted at the same time
+        WorkspaceDiff.Snapshot before;
+        WorkspaceDiff.Snapshot after;
+        ExecutorService executorService = createExecutorService();
+        try {
+            Future<WorkspaceDiff.Snapshot> beforeFuture = submitSnapshot(executorService, beforePath, "before");
+            Future<WorkspaceDiff.Snapshot> afterFuture = submitSnapshot(executorService, afterPath, "after");
+
+            before = await(beforeFuture);
+            after = await(afterFuture);
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        WorkspaceDiff diff;
+        try (Metrics.Phase phase = getMetrics().phase("diff")) {
+            diff = WorkspaceDiff.compare(before, after);
+        }
+        getMetrics().count("elementChanges", diff.getElements().getAdded().size() + diff.getElements().getRemoved().size() + diff.getElements().getChanged().size());
+        getMetrics().count("relationshipChanges", diff.getRelationships().getAdded().size() + diff.getRelationships().getRemoved().size() + diff.getRelationships().getChanged().size());
+        getMetrics().count("viewChanges", diff.getViews().getAdded().size() + diff.getViews().getRemoved().size() + diff.getViews().getChanged().size());
+
+        if (outputPath != null) {
+            File outputFile = new File(outputPath);
+            outputFile.getAbsoluteFile().getParentFile().mkdirs();
+            log.info(" - writing " + outputFile.getCanonicalPath());
+
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8))) {
+                if (JSON_FORMAT.equalsIgnoreCase(format)) {
+                    writer.println(toJson(diff));
+                } else {
+                    diff.writeText(writer::println);
+                }
+            }
+        } else {
+            if (JSON_FORMAT.equalsIgnoreCase(format)) {
+                System.out.println(toJson(diff));
+            } else {
+                diff.writeText(log::info);
+            }
+        }
+
+        log.info(" - finished");
+    }
+
+    private Future<WorkspaceDiff.Snapshot> submitSnapshot(ExecutorService executorService, String path, String input) {
+        return executorService.submit(() -> {
+            Workspace workspace = loadWorkspace(path, input);
+            try (Metrics.Phase phase = getMetrics().phase("fingerprint")) {
+                return WorkspaceDiff.Snapshot.of(workspace);
+            }
+        });
+    }
+
+    private String toJson(WorkspaceDiff diff) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        return objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValueAsString(diff.toJson(objectMapper));
+    }
+
+    private ExecutorService createExecutorService() {
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "structurizr-diff-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception)e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+}
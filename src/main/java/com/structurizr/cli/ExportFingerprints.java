@@ -0,0 +1,233 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.model.Element;
+import com.structurizr.view.ElementView;
+import com.structurizr.view.ModelView;
+import com.structurizr.view.RelationshipView;
+import com.structurizr.view.View;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * The fingerprints of the elements, relationships and views that were exported, which are stored alongside the
+ * exported diagrams so that the next export can determine which views are affected by a change to the workspace.
+ *
+ * A view is affected if it is new, if its own definition or membership has changed, or if any element
+ * (or ancestor of an element) or relationship it includes has changed; this is answered with a reverse index from each
+ * element and relationship to the views that include it. All views are affected if the export format,
+ * the view configuration (styles, themes, branding, etc) or the workspace name has changed.
+ */
+public final class ExportFingerprints {
+
+    private static final Log log = LogFactory.getLog(ExportFingerprints.class);
+
+    private static final String FORMAT_FIELD = "format";
+    private static final String CONFIGURATION_FIELD = "configuration";
+    private static final String ELEMENTS_FIELD = "elements";
+    private static final String RELATIONSHIPS_FIELD = "relationships";
+    private static final String VIEWS_FIELD = "views";
+
+    private final String format;
+    private final String configuration;
+    private final Map<String,String> elements;
+    private final Map<String,String> relationships;
+    private final Map<String,String> views;
+
+    // element canonical name/relationship key -> keys of the views that include it
+    private final Map<String,Set<String>> viewsByItem;
+
+    private ExportFingerprints(String format, String configuration, Map<String,String> elements, Map<String,String> relationships, Map<String,String> views, Map<String,Set<String>> viewsByItem) {
+        this.format = format;
+        this.configuration = configuration;
+        this.elements = elements;
+        this.relationships = relationships;
+        this.views = views;
+        this.viewsByItem = viewsByItem;
+    }
+
+    /**
+     * Calculates the fingerprints of the given workspace, for an export in the given format.
+     */
+    public static ExportFingerprints of(Workspace workspace, String format) throws Exception {
+        return of(workspace, format, view -> true);
+    }
+
+    /**
+     * Calculates the fingerprints of the given workspace, for an export of only some of its views (e.g. a shard);
+     * a view that wasn't exported before is treated as new.
+     */
+    public static ExportFingerprints of(Workspace workspace, String format, Predicate<View> filter) throws Exception {
+        WorkspaceDiff.Snapshot snapshot = WorkspaceDiff.Snapshot.of(workspace);
+
+        Map<String,String> relationshipKeys = WorkspaceDiff.relationshipKeys(workspace);
+        Map<String,Set<String>> viewsByItem = new HashMap<>();
+        for (View view : workspace.getViews().getViews()) {
+            if (view instanceof ModelView) {
+                for (ElementView elementView : ((ModelView)view).getElements()) {
+                    // boundaries (e.g. the software system in a container view) are drawn from the parent elements
+                    Element element = elementView.getElement();
+                    while (element != null) {
+                        viewsByItem.computeIfAbsent(element.getCanonicalName(), k -> new HashSet<>()).add(view.getKey());
+                        element = element.getParent();
+                    }
+                }
+
+                for (RelationshipView relationshipView : ((ModelView)view).getRelationships()) {
+                    viewsByItem.computeIfAbsent(relationshipKeys.get(relationshipView.getId()), k -> new HashSet<>()).add(view.getKey());
+                }
+            }
+        }
+
+        return new ExportFingerprints(
+                format,
+                configurationHash(workspace),
+                hashes(snapshot.getElements()),
+                hashes(snapshot.getRelationships()),
+                viewHashes(workspace, snapshot.getViews(), filter),
+                viewsByItem);
+    }
+
+    private static Map<String,String> hashes(Map<String,WorkspaceDiff.Item> items) {
+        Map<String,String> hashes = new HashMap<>();
+        items.forEach((key, item) -> hashes.put(key, item.getHash()));
+
+        return hashes;
+    }
+
+    private static Map<String,String> viewHashes(Workspace workspace, Map<String,WorkspaceDiff.Item> items, Predicate<View> filter) {
+        Map<String,String> hashes = new HashMap<>();
+        for (View view : workspace.getViews().getViews()) {
+            if (filter.test(view)) {
+                hashes.put(view.getKey(), items.get(view.getKey()).getHash());
+            }
+        }
+
+        return hashes;
+    }
+
+    private static String configurationHash(Workspace workspace) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        objectMapper.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("workspace", workspace.getName());
+        json.put("version", ExportFingerprints.class.getPackage().getImplementationVersion());
+        json.set(CONFIGURATION_FIELD, objectMapper.valueToTree(workspace.getViews().getConfiguration()));
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(json)));
+    }
+
+    /**
+     * Returns the keys of the views that need to be exported again, given the fingerprints of the previous export
+     * (which may be null).
+     */
+    public Set<String> getAffectedViews(Workspace workspace, ExportFingerprints previous) {
+        Set<String> affectedViews = new TreeSet<>();
+
+        if (previous == null || !format.equals(previous.format) || !configuration.equals(previous.configuration)) {
+            affectedViews.addAll(views.keySet());
+            return affectedViews;
+        }
+
+        // new views, and views whose definition, membership or layout has changed
+        views.forEach((key, hash) -> {
+            if (!hash.equals(previous.views.get(key))) {
+                affectedViews.add(key);
+            }
+        });
+
+        // views that include a changed element or relationship
+        addAffectedViews(elements, previous.elements, affectedViews);
+        addAffectedViews(relationships, previous.relationships, affectedViews);
+
+        // views that aren't based upon the model (e.g. image views) can't be analysed
+        for (View view : workspace.getViews().getViews()) {
+            if (!(view instanceof ModelView)) {
+                affectedViews.add(view.getKey());
+            }
+        }
+
+        return affectedViews;
+    }
+
+    private void addAffectedViews(Map<String,String> current, Map<String,String> previous, Set<String> affectedViews) {
+        current.forEach((key, hash) -> {
+            if (!hash.equals(previous.get(key))) {
+                affectedViews.addAll(viewsByItem.getOrDefault(key, Collections.emptySet()));
+            }
+        });
+    }
+
+    /**
+     * Reads the fingerprints from the given file, returning null if the file doesn't exist or can't be read.
+     */
+    public static ExportFingerprints read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            JsonNode json = new ObjectMapper().readTree(file);
+
+            return new ExportFingerprints(
+                    json.path(FORMAT_FIELD).asText(),
+                    json.path(CONFIGURATION_FIELD).asText(),
+                    readHashes(json.path(ELEMENTS_FIELD)),
+                    readHashes(json.path(RELATIONSHIPS_FIELD)),
+                    readHashes(json.path(VIEWS_FIELD)),
+                    Collections.emptyMap());
+        } catch (Exception e) {
+            log.warn(" - ignoring " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String,String> readHashes(JsonNode json) {
+        Map<String,String> hashes = new HashMap<>();
+        json.fields().forEachRemaining(entry -> hashes.put(entry.getKey(), entry.getValue().asText()));
+
+        return hashes;
+    }
+
+    /**
+     * Writes these fingerprints to the given file.
+     */
+    public void write(File file) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put(FORMAT_FIELD, format);
+        json.put(CONFIGURATION_FIELD, configuration);
+        writeHashes(json.putObject(ELEMENTS_FIELD), elements);
+        writeHashes(json.putObject(RELATIONSHIPS_FIELD), relationships);
+        writeHashes(json.putObject(VIEWS_FIELD), views);
+
+        objectMapper.writeValue(file, json);
+    }
+
+    private static void writeHashes(ObjectNode json, Map<String,String> hashes) {
+        new TreeMap<>(hashes).forEach(json::put);
+    }
+
+}
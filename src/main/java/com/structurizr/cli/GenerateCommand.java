@@ -0,0 +1,149 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import org.apache.commons.cli.*;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Generates a deterministic, synthetic workspace (as DSL or JSON) of a given size, for testing and benchmarking.
+ */
+class GenerateCommand extends AbstractCommand {
+
+    private static final Log log = LogFactory.getLog(GenerateCommand.class);
+
+    private static final String DSL_FORMAT = "dsl";
+    private static final String JSON_FORMAT = "json";
+
+    GenerateCommand() {
+    }
+
+    public void run(String... args) throws Exception {
+        Options options = new Options();
+
+        Option option = new Option("o", "output", true, "Path and name of the output file");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option("f", "format", true, String.format("Output format: %s|%s (default: based on the output file extension)", DSL_FORMAT, JSON_FORMAT));
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("seed", "seed", true, "Random seed (default: 1)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("people", "people", true, "Number of people (default: 10)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("softwareSystems", "softwareSystems", true, "Number of software systems (default: 10)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("containers", "containers", true, "Number of containers per software system (default: 3)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("components", "components", true, "Number of components per container (default: 3)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("relationships", "relationships", true, "Number of additional, randomly chosen relationships (default: one per container)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("environments", "deploymentEnvironments", true, "Number of deployment environments (default: 1)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("views", "views", true, "Number of system context, container and component views (default: 10)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("dynamicSteps", "dynamicSteps", true, "Number of steps in each dynamic view; no dynamic views are created if this is 0 (default: 0)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("includes", "includes", true, "Number of files to split the model across, using !include (DSL only; default: 0)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser commandLineParser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+
+        String outputPath = null;
+        String format = null;
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+
+        try {
+            CommandLine cmd = commandLineParser.parse(options, args);
+
+            outputPath = cmd.getOptionValue("output");
+            format = cmd.getOptionValue("format", outputPath.toLowerCase().endsWith("." + JSON_FORMAT) ? JSON_FORMAT : DSL_FORMAT);
+
+            generator.setSeed(Long.parseLong(cmd.getOptionValue("seed", "1")));
+            generator.setPeople(Integer.parseInt(cmd.getOptionValue("people", "10")));
+            generator.setSoftwareSystems(Integer.parseInt(cmd.getOptionValue("softwareSystems", "10")));
+            generator.setContainers(Integer.parseInt(cmd.getOptionValue("containers", "3")));
+            generator.setComponents(Integer.parseInt(cmd.getOptionValue("components", "3")));
+            generator.setRelationships(Integer.parseInt(cmd.getOptionValue("relationships", "-1")));
+            generator.setDeploymentEnvironments(Integer.parseInt(cmd.getOptionValue("deploymentEnvironments", "1")));
+            generator.setViews(Integer.parseInt(cmd.getOptionValue("views", "10")));
+            generator.setDynamicSteps(Integer.parseInt(cmd.getOptionValue("dynamicSteps", "0")));
+            generator.setIncludes(Integer.parseInt(cmd.getOptionValue("includes", "0")));
+        } catch (ParseException | NumberFormatException e) {
+            log.error(e.getMessage());
+            formatter.setWidth(150);
+            formatter.printHelp("generate", options);
+
+            System.exit(1);
+        }
+
+        File outputFile = new File(outputPath);
+        log.info("Generating workspace with " + generator.getNumberOfElements() + " elements");
+
+        if (DSL_FORMAT.equalsIgnoreCase(format)) {
+            log.info(" - writing " + outputFile.getCanonicalPath());
+            try (Metrics.Phase phase = getMetrics().phase("generate")) {
+                generator.write(outputFile);
+            }
+        } else if (JSON_FORMAT.equalsIgnoreCase(format)) {
+            // the DSL is generated (and parsed) first, so that both formats contain exactly the same workspace
+            File tmpDir = Files.createTempDirectory("structurizr-generate").toFile();
+            try {
+                File dslFile = new File(tmpDir, "workspace.dsl");
+                try (Metrics.Phase phase = getMetrics().phase("generate")) {
+                    generator.write(dslFile);
+                }
+
+                Workspace workspace = loadWorkspace(dslFile.getAbsolutePath());
+
+                log.info(" - writing " + outputFile.getCanonicalPath());
+                outputFile.getAbsoluteFile().getParentFile().mkdirs();
+                try (Metrics.Phase phase = getMetrics().phase("write")) {
+                    WorkspaceUtils.saveWorkspaceToJson(workspace, outputFile);
+                }
+            } finally {
+                File[] files = tmpDir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                tmpDir.delete();
+            }
+        } else {
+            log.error(" - unknown format: " + format);
+            System.exit(1);
+        }
+        getMetrics().count("files", 1);
+
+        log.info(" - finished");
+    }
+
+}
@@ -11,7 +11,7 @@ class HelpCommand extends AbstractCommand {
     }
 
     public void run(String... args) throws Exception {
-        log.info("Usage: structurizr push|pull|lock|unlock|export|merge|validate|inspect|list|version|help [options]");
+        log.info("Usage: structurizr push|pull|lock|unlock|publish|export|serve|merge|diff|stats|validate|inspect|list|generate|themes|version|help [options] [--metrics file.json]");
     }
 
 }
\ No newline at end of file
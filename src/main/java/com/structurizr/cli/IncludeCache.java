@@ -0,0 +1,336 @@
+package com.structurizr.cli;
+
+import com.structurizr.util.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local cache of DSL files included by URL (!include https://...), so that they can be fetched in parallel before
+ * the DSL is parsed, rather than one at a time by the parser, and revalidated with conditional requests
+ * (If-None-Match/If-Modified-Since) rather than downloaded again every time.
+ *
+ * Each !include of a URL is rewritten to an !include of the cached copy, including those in the cached copies
+ * themselves. A remote file that includes files with relative paths is left to the parser, because those paths are
+ * resolved against the including workspace rather than the URL. If a URL can't be fetched, a stale copy from the
+ * cache is used instead. The cache directory is ~/.structurizr/includes, unless the STRUCTURIZR_INCLUDE_CACHE
+ * environment variable is set.
+ */
+final class IncludeCache {
+
+    private static final Log log = LogFactory.getLog(IncludeCache.class);
+
+    static final String DIRECTORY_ENVIRONMENT_VARIABLE = "STRUCTURIZR_INCLUDE_CACHE";
+    static final int DEFAULT_TIMEOUT_IN_MILLISECONDS = 10000;
+
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile("^(\\s*)!include\\s+\"?([^\\s\"]+)\"?\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private static final int HTTP_OK_STATUS = 200;
+    private static final int HTTP_NOT_MODIFIED_STATUS = 304;
+    private static final int MAXIMUM_NUMBER_OF_THREADS = 8;
+
+    private static final String SOURCE_FILE_EXTENSION = ".source";
+    private static final String DSL_FILE_EXTENSION = ".dsl";
+    private static final String PROPERTIES_FILE_EXTENSION = ".properties";
+    private static final String URL_PROPERTY = "url";
+    private static final String ETAG_PROPERTY = "etag";
+    private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+
+    private final File directory;
+    private final Charset characterEncoding;
+    private int timeout = DEFAULT_TIMEOUT_IN_MILLISECONDS;
+
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final AtomicInteger revalidated = new AtomicInteger();
+    private final AtomicInteger stale = new AtomicInteger();
+
+    IncludeCache(File directory, Charset characterEncoding) {
+        this.directory = directory;
+        this.characterEncoding = characterEncoding;
+    }
+
+    static File getDefaultDirectory() {
+        String directory = System.getenv(DIRECTORY_ENVIRONMENT_VARIABLE);
+        if (!StringUtils.isNullOrEmpty(directory)) {
+            return new File(directory);
+        }
+
+        return new File(new File(System.getProperty("user.home"), ".structurizr"), "includes");
+    }
+
+    void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the number of remote files that were downloaded.
+     */
+    int getFetched() {
+        return fetched.get();
+    }
+
+    /**
+     * Returns the number of cached files that the server confirmed were unchanged.
+     */
+    int getRevalidated() {
+        return revalidated.get();
+    }
+
+    /**
+     * Returns the number of cached files that were used because the server couldn't be reached.
+     */
+    int getStale() {
+        return stale.get();
+    }
+
+    /**
+     * Returns true if the given DSL includes any files by URL.
+     */
+    static boolean hasRemoteIncludes(String dsl) {
+        return !findRemoteIncludes(dsl).isEmpty();
+    }
+
+    private static Set<String> findRemoteIncludes(String dsl) {
+        Set<String> urls = new LinkedHashSet<>();
+        for (String line : dsl.split("\\r?\\n")) {
+            Matcher matcher = INCLUDE_PATTERN.matcher(line);
+            if (matcher.matches() && isUrl(matcher.group(2))) {
+                urls.add(matcher.group(2));
+            }
+        }
+
+        return urls;
+    }
+
+    private static boolean hasLocalIncludes(String dsl) {
+        for (String line : dsl.split("\\r?\\n")) {
+            Matcher matcher = INCLUDE_PATTERN.matcher(line);
+            if (matcher.matches() && !isUrl(matcher.group(2))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isUrl(String source) {
+        return source.startsWith("https://") || source.startsWith("http://");
+    }
+
+    /**
+     * Fetches (or revalidates) all of the files included by URL from the given DSL, and the files they include in
+     * turn, and returns the DSL with those includes pointing at the cached copies (relative to the given directory,
+     * which is where the parser resolves included files from).
+     */
+    String prefetch(String dsl, File workspaceDirectory) throws Exception {
+        directory.mkdirs();
+
+        // URL -> source, fetched a level at a time, with all of the URLs in each level fetched in parallel
+        Map<String,String> sources = new HashMap<>();
+        Set<String> urls = findRemoteIncludes(dsl);
+
+        ExecutorService executorService = createExecutorService();
+        try (CloseableHttpClient httpClient = createHttpClient()) {
+            while (!urls.isEmpty()) {
+                Map<String,Future<String>> tasks = new LinkedHashMap<>();
+                for (String url : urls) {
+                    tasks.put(url, executorService.submit(() -> fetch(httpClient, url)));
+                }
+
+                Set<String> nextUrls = new LinkedHashSet<>();
+                for (String url : tasks.keySet()) {
+                    String source = await(url, tasks.get(url));
+                    sources.put(url, source);
+                    nextUrls.addAll(findRemoteIncludes(source));
+                }
+
+                nextUrls.removeAll(sources.keySet());
+                urls = nextUrls;
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        for (Map.Entry<String,String> source : sources.entrySet()) {
+            writeAtomically(getFile(source.getKey(), DSL_FILE_EXTENSION), rewrite(source.getValue(), sources, directory));
+        }
+
+        return rewrite(dsl, sources, workspaceDirectory);
+    }
+
+    private String await(String url, Future<String> future) throws Exception {
+        try {
+            return future.get(timeout * 2L, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            future.cancel(true);
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+
+            File file = getFile(url, SOURCE_FILE_EXTENSION);
+            if (file.exists()) {
+                log.warn(" - unable to fetch " + url + " (" + cause + "); using the cached copy");
+                stale.incrementAndGet();
+                return Files.readString(file.toPath(), characterEncoding);
+            } else {
+                throw new StructurizrCliException("Unable to fetch " + url + ": " + cause);
+            }
+        }
+    }
+
+    private String rewrite(String dsl, Map<String,String> sources, File baseDirectory) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (String line : dsl.split("\\r?\\n", -1)) {
+            Matcher matcher = INCLUDE_PATTERN.matcher(line);
+            String path = null;
+            if (matcher.matches() && sources.containsKey(matcher.group(2)) && !hasLocalIncludes(sources.get(matcher.group(2)))) {
+                path = relativePath(baseDirectory, getFile(matcher.group(2), DSL_FILE_EXTENSION));
+            }
+
+            if (path != null) {
+                lines.add(matcher.group(1) + "!include \"" + path + "\"");
+            } else {
+                lines.add(line);
+            }
+        }
+
+        return String.join("\n", lines);
+    }
+
+    // included files are always resolved relative to the including file, so absolute paths can't be used
+    private static String relativePath(File baseDirectory, File file) {
+        try {
+            return baseDirectory.getCanonicalFile().toPath().relativize(file.getCanonicalFile().toPath()).toString().replace('\\', '/');
+        } catch (Exception e) {
+            // e.g. the files are on different drives
+            return null;
+        }
+    }
+
+    private String fetch(CloseableHttpClient httpClient, String url) throws Exception {
+        File sourceFile = getFile(url, SOURCE_FILE_EXTENSION);
+        File propertiesFile = getFile(url, PROPERTIES_FILE_EXTENSION);
+
+        Properties properties = new Properties();
+        if (sourceFile.exists() && propertiesFile.exists()) {
+            try (Reader reader = Files.newBufferedReader(propertiesFile.toPath())) {
+                properties.load(reader);
+            }
+        }
+
+        HttpGet httpGet = new HttpGet(url);
+        if (properties.getProperty(ETAG_PROPERTY) != null) {
+            httpGet.addHeader("If-None-Match", properties.getProperty(ETAG_PROPERTY));
+        }
+        if (properties.getProperty(LAST_MODIFIED_PROPERTY) != null) {
+            httpGet.addHeader("If-Modified-Since", properties.getProperty(LAST_MODIFIED_PROPERTY));
+        }
+
+        return httpClient.execute(httpGet, response -> {
+            if (response.getCode() == HTTP_NOT_MODIFIED_STATUS && sourceFile.exists()) {
+                revalidated.incrementAndGet();
+                return Files.readString(sourceFile.toPath(), characterEncoding);
+            }
+
+            if (response.getCode() != HTTP_OK_STATUS) {
+                throw new StructurizrCliException("HTTP " + response.getCode());
+            }
+
+            String source = EntityUtils.toString(response.getEntity(), characterEncoding);
+            writeAtomically(sourceFile, source);
+
+            Properties newProperties = new Properties();
+            newProperties.setProperty(URL_PROPERTY, url);
+            putHeader(newProperties, ETAG_PROPERTY, response.getFirstHeader("ETag"));
+            putHeader(newProperties, LAST_MODIFIED_PROPERTY, response.getFirstHeader("Last-Modified"));
+            File tmpFile = File.createTempFile(propertiesFile.getName(), ".tmp", directory);
+            try (Writer writer = Files.newBufferedWriter(tmpFile.toPath())) {
+                newProperties.store(writer, null);
+            }
+            Files.move(tmpFile.toPath(), propertiesFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            fetched.incrementAndGet();
+            return source;
+        });
+    }
+
+    private static void putHeader(Properties properties, String name, Header header) {
+        if (header != null && !StringUtils.isNullOrEmpty(header.getValue())) {
+            properties.setProperty(name, header.getValue());
+        }
+    }
+
+    // write to a temporary file first, so that concurrent CLI invocations never see a partially written file
+    private void writeAtomically(File file, String content) throws IOException {
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", directory);
+        Files.writeString(tmpFile.toPath(), content, characterEncoding);
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    File getFile(String url, String extension) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        String hash = HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+
+        return new File(directory, hash + extension);
+    }
+
+    private CloseableHttpClient createHttpClient() {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(timeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(timeout))
+                .build();
+
+        return HttpClients.custom()
+                .useSystemProperties()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setDefaultConnectionConfig(connectionConfig)
+                        .setMaxConnTotal(MAXIMUM_NUMBER_OF_THREADS)
+                        .setMaxConnPerRoute(MAXIMUM_NUMBER_OF_THREADS)
+                        .build())
+                .build();
+    }
+
+    private ExecutorService createExecutorService() {
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(MAXIMUM_NUMBER_OF_THREADS, r -> {
+            Thread thread = new Thread(r, "structurizr-includes-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
@@ -83,7 +83,10 @@ class InspectCommand extends AbstractCommand {
             Inspector inspector = findInspector(inspectorName, workspace, new File(workspacePathAsString));
 
             if (inspector != null) {
-                List<Violation> violations = inspector.getViolations();
+                List<Violation> violations;
+                try (Metrics.Phase phase = getMetrics().phase("inspect")) {
+                    violations = inspector.getViolations();
+                }
                 violations.sort(Comparator.comparing(Violation::getSeverity));
 
                 violations = violations.stream().filter(v -> severities.contains(v.getSeverity())).collect(Collectors.toList());
@@ -0,0 +1,161 @@
+package com.structurizr.cli;
+
+import com.structurizr.model.Element;
+import com.structurizr.model.Relationship;
+import com.structurizr.util.StringUtils;
+import com.structurizr.view.ElementView;
+import com.structurizr.view.ModelView;
+import com.structurizr.view.RelationshipView;
+import com.structurizr.view.Vertex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies layout information (element positions, relationship vertices/routing/position, paper size and dimensions)
+ * from one view to another.
+ *
+ * This matches elements and relationships in the same way as the library's DefaultLayoutMergeStrategy
+ * (elements by canonical name, then name, description and ID; relationships by source, destination and description,
+ * then ID), but builds hash indexes of the source view first, so that each view is merged in a single pass rather
+ * than searching the source view for every element and relationship.
+ */
+final class LayoutMatcher {
+
+    private LayoutMatcher() {
+    }
+
+    /**
+     * Copies layout information from the source view to the target view, returning the elements and relationships
+     * in the target view that were matched.
+     */
+    static Result copyLayoutInformation(ModelView source, ModelView target) {
+        if (target.getPaperSize() == null) {
+            target.setPaperSize(source.getPaperSize());
+        }
+
+        if (target.getDimensions() == null) {
+            target.setDimensions(source.getDimensions());
+        }
+
+        Result result = new Result();
+
+        // elements
+        Map<String,ElementView> elementsByCanonicalName = new HashMap<>();
+        Map<String,ElementView> elementsByName = new HashMap<>();
+        Map<String,ElementView> elementsByDescription = new HashMap<>();
+        Map<String,ElementView> elementsById = new HashMap<>();
+        for (ElementView elementView : source.getElements()) {
+            Element element = elementView.getElement();
+            elementsByCanonicalName.putIfAbsent(element.getCanonicalName(), elementView);
+            elementsByName.putIfAbsent(typedKey(element, element.getName()), elementView);
+            if (!StringUtils.isNullOrEmpty(element.getDescription())) {
+                elementsByDescription.putIfAbsent(typedKey(element, element.getDescription()), elementView);
+            }
+            elementsById.putIfAbsent(typedKey(element, element.getId()), elementView);
+        }
+
+        // maps elements in the target view to the corresponding elements in the source view
+        Map<Element,Element> elementMapping = new HashMap<>();
+        for (ElementView elementView : target.getElements()) {
+            Element element = elementView.getElement();
+
+            ElementView match = elementsByCanonicalName.get(element.getCanonicalName());
+            if (match == null) {
+                match = elementsByName.get(typedKey(element, element.getName()));
+            }
+            if (match == null && !StringUtils.isNullOrEmpty(element.getDescription())) {
+                match = elementsByDescription.get(typedKey(element, element.getDescription()));
+            }
+            if (match == null) {
+                match = elementsById.get(typedKey(element, element.getId()));
+            }
+
+            if (match != null) {
+                elementMapping.put(element, match.getElement());
+                elementView.setX(match.getX());
+                elementView.setY(match.getY());
+                result.matchedElements.add(element);
+            }
+        }
+
+        // relationships
+        Map<String,RelationshipView> relationshipsByDescription = new HashMap<>();
+        Map<String,RelationshipView> relationshipsById = new HashMap<>();
+        Map<String,RelationshipView> relationshipsByOrder = new HashMap<>();
+        for (RelationshipView relationshipView : source.getRelationships()) {
+            Relationship relationship = relationshipView.getRelationship();
+            Element sourceElement = relationship.getSource();
+            Element destinationElement = relationship.getDestination();
+
+            relationshipsByDescription.putIfAbsent(relationshipKey(sourceElement, destinationElement, relationship.getDescription()), relationshipView);
+            relationshipsById.putIfAbsent(relationshipKey(sourceElement, destinationElement, relationship.getId()), relationshipView);
+            if (relationshipView.getOrder() != null) {
+                // dynamic views can include the same relationship more than once, with different descriptions
+                relationshipsByOrder.putIfAbsent(relationshipKey(sourceElement, destinationElement, relationshipView.getDescription() + "\u0000" + relationshipView.getOrder()), relationshipView);
+            }
+        }
+
+        for (RelationshipView relationshipView : target.getRelationships()) {
+            Relationship relationship = relationshipView.getRelationship();
+            Element sourceElement = elementMapping.get(relationship.getSource());
+            Element destinationElement = elementMapping.get(relationship.getDestination());
+            if (sourceElement == null || destinationElement == null) {
+                continue;
+            }
+
+            RelationshipView match = null;
+            if (relationshipView.getOrder() != null) {
+                match = relationshipsByOrder.get(relationshipKey(sourceElement, destinationElement, relationshipView.getDescription() + "\u0000" + relationshipView.getOrder()));
+            }
+            if (match == null) {
+                match = relationshipsByDescription.get(relationshipKey(sourceElement, destinationElement, relationship.getDescription()));
+            }
+            if (match == null) {
+                match = relationshipsById.get(relationshipKey(sourceElement, destinationElement, relationship.getId()));
+            }
+
+            if (match != null) {
+                List<Vertex> vertices = new ArrayList<>();
+                for (Vertex vertex : match.getVertices()) {
+                    vertices.add(new Vertex(vertex.getX(), vertex.getY()));
+                }
+                relationshipView.setVertices(vertices);
+                relationshipView.setRouting(match.getRouting());
+                relationshipView.setPosition(match.getPosition());
+                result.matchedRelationships.add(relationshipView);
+            }
+        }
+
+        return result;
+    }
+
+    private static String typedKey(Element element, String value) {
+        return element.getClass().getName() + "\u0000" + value;
+    }
+
+    private static String relationshipKey(Element source, Element destination, String value) {
+        // source and destination are elements in the source workspace, so their IDs are consistent
+        return source.getId() + "\u0000" + destination.getId() + "\u0000" + value;
+    }
+
+    static final class Result {
+
+        private final Set<Element> matchedElements = new HashSet<>();
+        private final Set<RelationshipView> matchedRelationships = new HashSet<>();
+
+        Set<Element> getMatchedElements() {
+            return matchedElements;
+        }
+
+        Set<RelationshipView> getMatchedRelationships() {
+            return matchedRelationships;
+        }
+
+    }
+
+}
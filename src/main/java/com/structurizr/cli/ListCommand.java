@@ -9,6 +9,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.Comparator;
+import java.util.function.Consumer;
 
 class ListCommand extends AbstractCommand {
 
@@ -52,40 +53,44 @@ class ListCommand extends AbstractCommand {
         Workspace workspace = loadWorkspace(workspacePathAsString);
 
         if (ELEMENT_TYPE.equalsIgnoreCase(type)) {
-            workspace.getModel().getPeople().stream().sorted(ELEMENT_COMPARATOR).forEach(p -> write(p, 0));
+            listElements(workspace, log::info);
+        }
+    }
 
-            workspace.getModel().getSoftwareSystems().stream().sorted(ELEMENT_COMPARATOR).forEach(softwareSystem -> {
-                write(softwareSystem, 0);
+    void listElements(Workspace workspace, Consumer<String> output) {
+        workspace.getModel().getPeople().stream().sorted(ELEMENT_COMPARATOR).forEach(p -> write(p, 0, output));
 
-                softwareSystem.getContainers().stream().sorted(ELEMENT_COMPARATOR).forEach(container -> {
-                    write(container, 1);
+        workspace.getModel().getSoftwareSystems().stream().sorted(ELEMENT_COMPARATOR).forEach(softwareSystem -> {
+            write(softwareSystem, 0, output);
 
-                    container.getComponents().stream().sorted(ELEMENT_COMPARATOR).forEach(component -> {
-                        write(component, 2);
-                    });
+            softwareSystem.getContainers().stream().sorted(ELEMENT_COMPARATOR).forEach(container -> {
+                write(container, 1, output);
+
+                container.getComponents().stream().sorted(ELEMENT_COMPARATOR).forEach(component -> {
+                    write(component, 2, output);
                 });
             });
+        });
 
-            workspace.getModel().getDeploymentNodes().stream().sorted(ELEMENT_COMPARATOR).forEach(p -> writeDeploymentNode(p, 0));
-        }
+        workspace.getModel().getDeploymentNodes().stream().sorted(ELEMENT_COMPARATOR).forEach(p -> writeDeploymentNode(p, 0, output));
     }
 
-    private void writeDeploymentNode(DeploymentNode deploymentNode, int indent) {
-        write(deploymentNode, indent);
+    private void writeDeploymentNode(DeploymentNode deploymentNode, int indent, Consumer<String> output) {
+        write(deploymentNode, indent, output);
 
-        deploymentNode.getInfrastructureNodes().stream().sorted(ELEMENT_COMPARATOR).forEach(in -> write(in, indent+1));
-        deploymentNode.getSoftwareSystemInstances().stream().sorted(ELEMENT_COMPARATOR).forEach(in -> write(in, indent+1));
-        deploymentNode.getContainerInstances().stream().sorted(ELEMENT_COMPARATOR).forEach(in -> write(in, indent+1));
-        deploymentNode.getChildren().stream().sorted(ELEMENT_COMPARATOR).forEach(in -> writeDeploymentNode(in, indent+1));
+        deploymentNode.getInfrastructureNodes().stream().sorted(ELEMENT_COMPARATOR).forEach(in -> write(in, indent+1, output));
+        deploymentNode.getSoftwareSystemInstances().stream().sorted(ELEMENT_COMPARATOR).forEach(in -> write(in, indent+1, output));
+        deploymentNode.getContainerInstances().stream().sorted(ELEMENT_COMPARATOR).forEach(in -> write(in, indent+1, output));
+        deploymentNode.getChildren().stream().sorted(ELEMENT_COMPARATOR).forEach(in -> writeDeploymentNode(in, indent+1, output));
     }
 
-    private void write(ModelItem modelItem, int indent) {
+    private void write(ModelItem modelItem, int indent, Consumer<String> output) {
         StringBuilder buf = new StringBuilder();
         for (int i = 0; i < indent; i++) {
             buf.append("  ");
         }
 
-        log.info(buf.toString() + " - " + modelItem.getCanonicalName());
+        output.accept(buf.toString() + " - " + modelItem.getCanonicalName());
     }
 
 }
\ No newline at end of file
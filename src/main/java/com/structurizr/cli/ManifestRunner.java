@@ -0,0 +1,304 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a push/pull task for each workspace in a manifest, on a bounded thread pool, with a limit on the number of
+ * concurrent requests per API host, and retry/backoff for rate limiting (429), server errors (5xx) and I/O errors.
+ * The per-host limit applies to the requests made by the clients a task creates (via RemoteWorkspace.createClient),
+ * rather than to the whole task, so that local work (parsing, archiving, writing files) isn't throttled.
+ */
+class ManifestRunner {
+
+    private static final Log log = LogFactory.getLog(ManifestRunner.class);
+
+    private static final long MAXIMUM_BACKOFF_IN_MILLISECONDS = 30_000;
+
+    private static final String DEFAULT_CONCURRENCY = "8";
+    private static final String DEFAULT_HOST_CONCURRENCY = "4";
+    private static final String DEFAULT_RETRIES = "3";
+    private static final long DEFAULT_INITIAL_BACKOFF_IN_MILLISECONDS = 1000;
+
+    interface Task {
+
+        /**
+         * Runs the task, returning a short description of the outcome (e.g. "pushed", "unchanged").
+         */
+        String run(RemoteWorkspace workspace) throws Exception;
+
+    }
+
+    private final int concurrency;
+    private final int hostConcurrency;
+    private final int maxRetries;
+    private final long initialBackoffInMilliseconds;
+
+    private final Map<String,Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    ManifestRunner(int concurrency, int hostConcurrency, int maxRetries, long initialBackoffInMilliseconds) {
+        this.concurrency = Math.max(1, concurrency);
+        this.hostConcurrency = Math.max(1, hostConcurrency);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoffInMilliseconds = initialBackoffInMilliseconds;
+    }
+
+    static void addOptions(Options options, String manifestDescription) {
+        Option option = new Option("manifest", "manifest", true, manifestDescription);
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("concurrency", "concurrency", true, "Maximum number of workspaces to process concurrently, when using a manifest (default: " + DEFAULT_CONCURRENCY + ")");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("hostConcurrency", "hostConcurrency", true, "Maximum number of concurrent requests per API host, when using a manifest (default: " + DEFAULT_HOST_CONCURRENCY + ")");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("retries", "retries", true, "Number of retries for rate limited (429), server (5xx) and I/O errors, when using a manifest (default: " + DEFAULT_RETRIES + ")");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("report", "report", true, "Path to a JSON file to write a summary report to, when using a manifest");
+        option.setRequired(false);
+        options.addOption(option);
+    }
+
+    static ManifestRunner fromCommandLine(CommandLine cmd) throws ParseException {
+        return new ManifestRunner(
+                parseInt(cmd, "concurrency", DEFAULT_CONCURRENCY),
+                parseInt(cmd, "hostConcurrency", DEFAULT_HOST_CONCURRENCY),
+                parseInt(cmd, "retries", DEFAULT_RETRIES),
+                DEFAULT_INITIAL_BACKOFF_IN_MILLISECONDS
+        );
+    }
+
+    private static int parseInt(CommandLine cmd, String option, String defaultValue) throws ParseException {
+        try {
+            return Integer.parseInt(cmd.getOptionValue(option, defaultValue));
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid value for -" + option + ": " + cmd.getOptionValue(option));
+        }
+    }
+
+    /**
+     * Logs the summary, and writes it to the given report file (if specified).
+     */
+    void report(Summary summary, String reportPath) throws Exception {
+        summary.log();
+
+        if (reportPath != null && !reportPath.isEmpty()) {
+            File reportFile = new File(reportPath);
+            summary.write(reportFile);
+            log.info(" - report written to " + reportFile.getCanonicalPath());
+        }
+    }
+
+    Summary run(String operation, List<RemoteWorkspace> workspaces, Task task) throws Exception {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(1, workspaces.size())), r -> {
+            Thread thread = new Thread(r, "structurizr-" + operation + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger completed = new AtomicInteger();
+        List<Future<Result>> futures = new ArrayList<>();
+        try {
+            for (RemoteWorkspace workspace : workspaces) {
+                futures.add(executorService.submit(() -> {
+                    Result result = runWithRetries(workspace, task);
+                    log.info(String.format("[%d/%d] %s: %s", completed.incrementAndGet(), workspaces.size(), workspace, result.describe()));
+
+                    return result;
+                }));
+            }
+
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+
+            return new Summary(operation, results);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private Result runWithRetries(RemoteWorkspace workspace, Task task) throws InterruptedException {
+        Semaphore permits = hostPermits.computeIfAbsent(workspace.getHost(), host -> new Semaphore(hostConcurrency));
+        RemoteWorkspace workspaceWithPermits = workspace.withRequestPermits(permits);
+        long start = System.currentTimeMillis();
+        int attempt = 0;
+
+        while (true) {
+            attempt++;
+
+            try {
+                String outcome = task.run(workspaceWithPermits);
+                return new Result(workspace, outcome, attempt, System.currentTimeMillis() - start, null);
+            } catch (Exception e) {
+                if (attempt > maxRetries || !isRetryable(e)) {
+                    return new Result(workspace, null, attempt, System.currentTimeMillis() - start, e);
+                }
+
+                log.warn(" - " + workspace + ": attempt " + attempt + " failed (" + e.getMessage() + "); retrying");
+            }
+
+            Thread.sleep(backoff(attempt));
+        }
+    }
+
+    long backoff(int attempt) {
+        long backoff = Math.min(MAXIMUM_BACKOFF_IN_MILLISECONDS, initialBackoffInMilliseconds << Math.min(attempt - 1, 20));
+
+        // add jitter, so that workspaces being rate limited don't all retry at the same time
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    static boolean isRetryable(Throwable throwable) {
+        while (throwable != null) {
+            if (throwable instanceof WorkspaceApiException) {
+                return ((WorkspaceApiException)throwable).isRetryable();
+            }
+
+            if (throwable instanceof IOException) {
+                return true;
+            }
+
+            throwable = throwable.getCause();
+        }
+
+        return false;
+    }
+
+    static final class Result {
+
+        private final RemoteWorkspace workspace;
+        private final String outcome;
+        private final int attempts;
+        private final long durationInMilliseconds;
+        private final Exception error;
+
+        Result(RemoteWorkspace workspace, String outcome, int attempts, long durationInMilliseconds, Exception error) {
+            this.workspace = workspace;
+            this.outcome = outcome;
+            this.attempts = attempts;
+            this.durationInMilliseconds = durationInMilliseconds;
+            this.error = error;
+        }
+
+        boolean isSuccessful() {
+            return error == null;
+        }
+
+        String getOutcome() {
+            return isSuccessful() ? outcome : "failed";
+        }
+
+        String describe() {
+            String description = getOutcome() + " in " + durationInMilliseconds + "ms";
+            if (attempts > 1) {
+                description += " (" + attempts + " attempts)";
+            }
+            if (error != null) {
+                description += ": " + error.getMessage();
+            }
+
+            return description;
+        }
+
+    }
+
+    static final class Summary {
+
+        private final String operation;
+        private final List<Result> results;
+
+        Summary(String operation, List<Result> results) {
+            this.operation = operation;
+            this.results = results;
+        }
+
+        List<Result> getResults() {
+            return results;
+        }
+
+        boolean hasFailures() {
+            return results.stream().anyMatch(r -> !r.isSuccessful());
+        }
+
+        Map<String,Integer> getOutcomes() {
+            Map<String,Integer> outcomes = new TreeMap<>();
+            for (Result result : results) {
+                outcomes.merge(result.getOutcome(), 1, Integer::sum);
+            }
+
+            return outcomes;
+        }
+
+        void log() {
+            log.info("Summary of " + operation + " for " + results.size() + " workspace(s)");
+            for (Map.Entry<String,Integer> entry : getOutcomes().entrySet()) {
+                log.info(" - " + entry.getKey() + ": " + entry.getValue());
+            }
+
+            for (Result result : results) {
+                if (!result.isSuccessful()) {
+                    log.error(" - " + result.workspace + " failed after " + result.attempts + " attempt(s): " + result.error.getMessage());
+                }
+            }
+        }
+
+        void write(File file) throws Exception {
+            ObjectMapper objectMapper = new ObjectMapper();
+            objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+
+            ObjectNode root = objectMapper.createObjectNode();
+            root.put("operation", operation);
+            ObjectNode outcomes = root.putObject("outcomes");
+            getOutcomes().forEach(outcomes::put);
+
+            ArrayNode workspaces = root.putArray("workspaces");
+            for (Result result : results) {
+                ObjectNode node = workspaces.addObject();
+                node.put("url", result.workspace.getApiUrl());
+                node.put("id", result.workspace.getWorkspaceId());
+                node.put("branch", result.workspace.getBranch());
+                node.put("outcome", result.getOutcome());
+                node.put("attempts", result.attempts);
+                node.put("durationMillis", result.durationInMilliseconds);
+                if (result.error != null) {
+                    node.put("error", result.error.getMessage());
+                }
+            }
+
+            objectMapper.writeValue(file, root);
+        }
+
+    }
+
+}
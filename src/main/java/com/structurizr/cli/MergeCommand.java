@@ -1,15 +1,27 @@
 package com.structurizr.cli;
 
 import com.structurizr.Workspace;
+import com.structurizr.model.Element;
 import com.structurizr.util.StringUtils;
 import com.structurizr.util.WorkspaceUtils;
 import com.structurizr.view.ModelView;
+import com.structurizr.view.RelationshipView;
 import com.structurizr.view.View;
 import org.apache.commons.cli.*;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class MergeCommand extends AbstractCommand {
 
@@ -29,7 +41,7 @@ class MergeCommand extends AbstractCommand {
         option.setRequired(false);
         options.addOption(option);
 
-        option = new Option("l", "layout", true, "Path or URL to the workspace JSON file that includes layout information");
+        option = new Option("l", "layout", true, "Path or URL to the workspace JSON file that includes layout information (repeat for multiple sources, highest priority first)");
         option.setRequired(true);
         options.addOption(option);
 
@@ -40,7 +52,7 @@ class MergeCommand extends AbstractCommand {
         CommandLineParser commandLineParser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
 
-        String workspaceWithLayoutPath = null;
+        List<String> workspacesWithLayoutPaths = new ArrayList<>();
         String workspaceWithoutLayoutPath = null;
         String viewKey = null;
         String outputPath = null;
@@ -49,7 +61,7 @@ class MergeCommand extends AbstractCommand {
             CommandLine cmd = commandLineParser.parse(options, args);
 
             workspaceWithoutLayoutPath = cmd.getOptionValue("workspace");
-            workspaceWithLayoutPath = cmd.getOptionValue("layout");
+            workspacesWithLayoutPaths.addAll(Arrays.asList(cmd.getOptionValues("layout")));
             viewKey = cmd.getOptionValue("view");
             outputPath = cmd.getOptionValue("output");
 
@@ -69,43 +81,214 @@ class MergeCommand extends AbstractCommand {
             log.info(" - for view \"" + viewKey + "\"");
         }
 
-        log.info(" - loading workspace from " + workspaceWithoutLayoutPath);
-        Workspace workspaceWithoutLayout = loadWorkspace(workspaceWithoutLayoutPath);
+        ExecutorService executorService = createExecutorService(workspacesWithLayoutPaths.size() + 1);
+        Workspace workspaceWithoutLayout;
+        try {
+            // load the workspace and all of the layout sources in parallel
+            log.info(" - loading workspace from " + workspaceWithoutLayoutPath);
+            Future<Workspace> workspaceWithoutLayoutFuture = submitLoad(executorService, workspaceWithoutLayoutPath, "");
 
-        log.info(" - loading layout information from " + workspaceWithLayoutPath);
-        Workspace workspaceWithLayout = loadWorkspace(workspaceWithLayoutPath);
+            List<Future<Workspace>> workspacesWithLayoutFutures = new ArrayList<>();
+            for (int i = 0; i < workspacesWithLayoutPaths.size(); i++) {
+                log.info(" - loading layout information from " + workspacesWithLayoutPaths.get(i) + " (priority " + (i + 1) + ")");
+                workspacesWithLayoutFutures.add(submitLayoutLoad(executorService, workspacesWithLayoutPaths.get(i), viewKey));
+            }
 
-        log.info(" - merging layout information");
-        if (StringUtils.isNullOrEmpty(viewKey)) {
-            workspaceWithoutLayout.getViews().copyLayoutInformationFrom(workspaceWithLayout.getViews());
-            workspaceWithoutLayout.getViews().getConfiguration().copyConfigurationFrom(workspaceWithLayout.getViews().getConfiguration());
-        } else {
-            View viewWithoutLayout = workspaceWithoutLayout.getViews().getViewWithKey(viewKey);
-            View viewWithLayout = workspaceWithLayout.getViews().getViewWithKey(viewKey);
-
-            if (viewWithoutLayout == null) {
-                log.info(" - \"" + viewKey + "\" does not exist in " + workspaceWithoutLayoutPath);
-                System.exit(1);
-            } else if (!(viewWithoutLayout instanceof ModelView)) {
-                log.info(" - \"" + viewKey + "\" is not a model view in " + workspaceWithoutLayoutPath);
-                System.exit(1);
+            workspaceWithoutLayout = await(workspaceWithoutLayoutFuture);
+
+            // layout information is merged from the lowest priority source to the highest, so higher priority sources win
+            List<Workspace> workspacesWithLayout = new ArrayList<>();
+            List<String> workspacesWithLayoutSourcePaths = new ArrayList<>();
+            for (int i = workspacesWithLayoutFutures.size() - 1; i >= 0; i--) {
+                workspacesWithLayout.add(await(workspacesWithLayoutFutures.get(i)));
+                workspacesWithLayoutSourcePaths.add(workspacesWithLayoutPaths.get(i));
             }
-            if (viewWithLayout == null) {
-                log.info(" - \"" + viewKey + "\" does not exist in " + workspaceWithLayoutPath);
-                System.exit(1);
-            } else if (!(viewWithLayout instanceof ModelView)) {
-                log.info(" - \"" + viewKey + "\" is not a model view in " + workspaceWithLayoutPath);
-                System.exit(1);
+
+            List<ModelView> views = new ArrayList<>();
+            if (StringUtils.isNullOrEmpty(viewKey)) {
+                for (View view : workspaceWithoutLayout.getViews().getViews()) {
+                    if (view instanceof ModelView && ((ModelView)view).getAutomaticLayout() == null && ((ModelView)view).getMergeFromRemote()) {
+                        views.add((ModelView)view);
+                    }
+                }
+            } else {
+                View viewWithoutLayout = workspaceWithoutLayout.getViews().getViewWithKey(viewKey);
+
+                if (viewWithoutLayout == null) {
+                    log.info(" - \"" + viewKey + "\" does not exist in " + workspaceWithoutLayoutPath);
+                    System.exit(1);
+                } else if (!(viewWithoutLayout instanceof ModelView)) {
+                    log.info(" - \"" + viewKey + "\" is not a model view in " + workspaceWithoutLayoutPath);
+                    System.exit(1);
+                }
+
+                for (int i = 0; i < workspacesWithLayout.size(); i++) {
+                    View viewWithLayout = workspacesWithLayout.get(i).getViews().getViewWithKey(viewKey);
+                    if (viewWithLayout == null) {
+                        log.info(" - \"" + viewKey + "\" does not exist in " + workspacesWithLayoutSourcePaths.get(i));
+                        System.exit(1);
+                    } else if (!(viewWithLayout instanceof ModelView)) {
+                        log.info(" - \"" + viewKey + "\" is not a model view in " + workspacesWithLayoutSourcePaths.get(i));
+                        System.exit(1);
+                    }
+                }
+
+                views.add((ModelView)viewWithoutLayout);
             }
 
-            ((ModelView)viewWithoutLayout).copyLayoutInformationFrom((ModelView)viewWithLayout);
+            log.info(" - merging layout information for " + views.size() + " view(s)");
+            try (Metrics.Phase phase = getMetrics().phase("merge")) {
+                // each view is independent of the others, so they can be merged in parallel
+                MatchCounts counts = new MatchCounts();
+                List<Future<?>> merges = new ArrayList<>();
+                for (ModelView view : views) {
+                    merges.add(executorService.submit(() -> mergeView(view, workspacesWithLayout, counts)));
+                }
+                for (Future<?> merge : merges) {
+                    await(merge);
+                }
+
+                log.info(" - matched " + counts.matchedElements + " element(s) and " + counts.matchedRelationships + " relationship(s)");
+                log.info(" - could not match " + counts.unmatchedElements + " element(s) and " + counts.unmatchedRelationships + " relationship(s)");
+                getMetrics().count("matchedElements", counts.matchedElements);
+                getMetrics().count("unmatchedElements", counts.unmatchedElements);
+                getMetrics().count("matchedRelationships", counts.matchedRelationships);
+                getMetrics().count("unmatchedRelationships", counts.unmatchedRelationships);
+
+                if (StringUtils.isNullOrEmpty(viewKey)) {
+                    for (Workspace workspaceWithLayout : workspacesWithLayout) {
+                        workspaceWithoutLayout.getViews().getConfiguration().copyConfigurationFrom(workspaceWithLayout.getViews().getConfiguration());
+                    }
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
         }
 
         File outputFile = new File(outputPath);
         log.info(" - writing " + outputFile.getCanonicalPath());
-        WorkspaceUtils.saveWorkspaceToJson(workspaceWithoutLayout, outputFile);
+        try (Metrics.Phase phase = getMetrics().phase("write")) {
+            WorkspaceUtils.saveWorkspaceToJson(workspaceWithoutLayout, outputFile);
+        }
+        getMetrics().count("files", 1);
 
         log.info(" - finished");
     }
 
+    /**
+     * Copies layout information into the given view from the matching view in each of the workspaces,
+     * which are ordered lowest priority first.
+     */
+    private void mergeView(ModelView view, List<Workspace> workspacesWithLayout, MatchCounts counts) {
+        Set<Element> matchedElements = new HashSet<>();
+        Set<RelationshipView> matchedRelationships = new HashSet<>();
+
+        for (Workspace workspaceWithLayout : workspacesWithLayout) {
+            ModelView viewWithLayout = findView(workspaceWithLayout, view);
+            if (viewWithLayout != null) {
+                LayoutMatcher.Result result = LayoutMatcher.copyLayoutInformation(viewWithLayout, view);
+                matchedElements.addAll(result.getMatchedElements());
+                matchedRelationships.addAll(result.getMatchedRelationships());
+            }
+        }
+
+        int unmatchedElements = view.getElements().size() - matchedElements.size();
+        int unmatchedRelationships = view.getRelationships().size() - matchedRelationships.size();
+        if (unmatchedElements > 0 || unmatchedRelationships > 0) {
+            log.info(" - \"" + view.getKey() + "\": " + unmatchedElements + " element(s) and " + unmatchedRelationships + " relationship(s) could not be matched");
+        }
+
+        counts.add(matchedElements.size(), unmatchedElements, matchedRelationships.size(), unmatchedRelationships);
+    }
+
+    /**
+     * Finds the matching view in the given workspace, in the same way as ViewSet.copyLayoutInformationFrom
+     * (by key, falling back to name and description).
+     */
+    private ModelView findView(Workspace workspace, ModelView view) {
+        View viewWithLayout = workspace.getViews().getViewWithKey(view.getKey());
+        if (viewWithLayout != null && viewWithLayout.getClass() == view.getClass()) {
+            return (ModelView)viewWithLayout;
+        }
+
+        for (View candidate : workspace.getViews().getViews()) {
+            if (candidate.getClass() == view.getClass() && candidate.getName() != null && candidate.getName().equals(view.getName())) {
+                if (candidate.getDescription() == null || candidate.getDescription().equals(view.getDescription())) {
+                    return (ModelView)candidate;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private Future<Workspace> submitLoad(ExecutorService executorService, String path, String input) {
+        return executorService.submit(() -> loadWorkspace(path, input));
+    }
+
+    /**
+     * When only a single view is being merged, local JSON layout files are read partially (just that view,
+     * and the model items it needs), rather than loading the whole workspace. Either way, the size of a layout
+     * source isn't recorded in the metrics; only that of the workspace being merged into is.
+     */
+    private Future<Workspace> submitLayoutLoad(ExecutorService executorService, String path, String viewKey) {
+        File file = new File(path);
+        if (StringUtils.isNullOrEmpty(viewKey) || !path.endsWith(".json") || !file.isFile()) {
+            return submitLoad(executorService, path, null);
+        }
+
+        return executorService.submit(() -> {
+            Workspace workspace;
+            try (Metrics.Phase phase = getMetrics().phase("parse")) {
+                workspace = new PartialWorkspaceReader().read(file, viewKey);
+            }
+
+            if (workspace == null) {
+                // the view doesn't exist, which is reported once all of the workspaces have been loaded
+                workspace = new Workspace(path, "");
+            }
+
+            return workspace;
+        });
+    }
+
+    private ExecutorService createExecutorService(int tasks) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        int threads = Math.max(1, Math.min(tasks, Runtime.getRuntime().availableProcessors()));
+
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "structurizr-merge-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception)e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    private static class MatchCounts {
+
+        private long matchedElements;
+        private long unmatchedElements;
+        private long matchedRelationships;
+        private long unmatchedRelationships;
+
+        synchronized void add(long matchedElements, long unmatchedElements, long matchedRelationships, long unmatchedRelationships) {
+            this.matchedElements += matchedElements;
+            this.unmatchedElements += unmatchedElements;
+            this.matchedRelationships += matchedRelationships;
+            this.unmatchedRelationships += unmatchedRelationships;
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,229 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records wall time, CPU time and allocated bytes for each named phase of a command,
+ * along with GC activity and a handful of counters (views, elements, files, etc).
+ *
+ * Phases are measured on the thread that opens them, and phases with the same name are aggregated.
+ * Every phase is also emitted as a JFR event (see {@link PhaseEvent}), so a flight recording captures
+ * the same breakdown even when no metrics file has been requested.
+ */
+public class Metrics {
+
+    private final String command;
+    private final long startTime = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final Map<String,PhaseTotals> phases = new LinkedHashMap<>();
+    private final Map<String,Long> counts = new LinkedHashMap<>();
+    private final Map<String,GcTotals> gc = new LinkedHashMap<>();
+
+    public Metrics(String command) {
+        this.command = command;
+    }
+
+    /**
+     * Starts a new phase on the current thread; close the returned phase (e.g. with try-with-resources) to record it.
+     */
+    public Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    public synchronized void count(String name, long delta) {
+        counts.merge(name, delta, Long::sum);
+    }
+
+    public synchronized long getCount(String name) {
+        return counts.getOrDefault(name, 0L);
+    }
+
+    /**
+     * Starts listening for GC notifications, so that pause times can be included in the metrics file.
+     */
+    void startGcMonitoring() {
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            synchronized (this) {
+                gc.put(gcBean.getName(), new GcTotals(gcBean.getCollectionCount(), gcBean.getCollectionTime()));
+            }
+
+            if (gcBean instanceof NotificationEmitter) {
+                ((NotificationEmitter)gcBean).addNotificationListener(new GcListener(), null, null);
+            }
+        }
+    }
+
+    private synchronized void record(String name, long wallTime, long cpuTime, long allocatedBytes) {
+        PhaseTotals totals = phases.computeIfAbsent(name, k -> new PhaseTotals());
+        totals.invocations++;
+        totals.wallTime += wallTime;
+        totals.cpuTime += cpuTime;
+        totals.allocatedBytes += allocatedBytes;
+    }
+
+    private long currentThreadCpuTime() {
+        if (threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            return threadMXBean.getCurrentThreadCpuTime();
+        } else {
+            return 0;
+        }
+    }
+
+    private long currentThreadAllocatedBytes() {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean)threadMXBean;
+            if (mxBean.isThreadAllocatedMemorySupported() && mxBean.isThreadAllocatedMemoryEnabled()) {
+                return mxBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Writes the metrics recorded so far to the given file, as JSON.
+     */
+    public synchronized void write(File file) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("command", command);
+        root.put("startTime", startTime);
+        root.put("wallTimeMillis", nanosToMillis(System.nanoTime() - startNanos));
+
+        ArrayNode phasesNode = root.putArray("phases");
+        for (Map.Entry<String,PhaseTotals> entry : phases.entrySet()) {
+            PhaseTotals totals = entry.getValue();
+            ObjectNode phaseNode = phasesNode.addObject();
+            phaseNode.put("name", entry.getKey());
+            phaseNode.put("invocations", totals.invocations);
+            phaseNode.put("wallTimeMillis", nanosToMillis(totals.wallTime));
+            phaseNode.put("cpuTimeMillis", nanosToMillis(totals.cpuTime));
+            phaseNode.put("allocatedBytes", totals.allocatedBytes);
+        }
+
+        ObjectNode countsNode = root.putObject("counts");
+        for (Map.Entry<String,Long> entry : counts.entrySet()) {
+            countsNode.put(entry.getKey(), entry.getValue());
+        }
+
+        ArrayNode gcNode = root.putArray("gc");
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            GcTotals totals = gc.getOrDefault(gcBean.getName(), new GcTotals(0, 0));
+            ObjectNode collectorNode = gcNode.addObject();
+            collectorNode.put("name", gcBean.getName());
+            collectorNode.put("collections", gcBean.getCollectionCount() - totals.initialCount);
+            collectorNode.put("timeMillis", gcBean.getCollectionTime() - totals.initialTime);
+            collectorNode.put("pauses", totals.pauses);
+            collectorNode.put("maxPauseMillis", totals.maxPause);
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        objectMapper.writeValue(file, root);
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public class Phase implements AutoCloseable {
+
+        private final String name;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long startWallTime;
+        private final long startCpuTime;
+        private final long startAllocatedBytes;
+
+        private Phase(String name) {
+            this.name = name;
+            this.event.command = command;
+            this.event.phase = name;
+            this.event.begin();
+
+            this.startWallTime = System.nanoTime();
+            this.startCpuTime = currentThreadCpuTime();
+            this.startAllocatedBytes = currentThreadAllocatedBytes();
+        }
+
+        @Override
+        public void close() {
+            long wallTime = System.nanoTime() - startWallTime;
+            long cpuTime = currentThreadCpuTime() - startCpuTime;
+            long allocatedBytes = currentThreadAllocatedBytes() - startAllocatedBytes;
+
+            record(name, wallTime, cpuTime, allocatedBytes);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.cpuTime = cpuTime;
+                event.allocatedBytes = allocatedBytes;
+                event.commit();
+            }
+        }
+
+    }
+
+    private static class PhaseTotals {
+
+        private long invocations;
+        private long wallTime;
+        private long cpuTime;
+        private long allocatedBytes;
+
+    }
+
+    private static class GcTotals {
+
+        private final long initialCount;
+        private final long initialTime;
+        private long pauses;
+        private long maxPause;
+
+        GcTotals(long initialCount, long initialTime) {
+            this.initialCount = initialCount;
+            this.initialTime = initialTime;
+        }
+
+    }
+
+    private class GcListener implements NotificationListener {
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+
+                synchronized (Metrics.this) {
+                    GcTotals totals = gc.get(info.getGcName());
+                    if (totals != null) {
+                        totals.pauses++;
+                        totals.maxPause = Math.max(totals.maxPause, info.getGcInfo().getDuration());
+                    }
+                }
+            }
+        }
+
+    }
+
+}
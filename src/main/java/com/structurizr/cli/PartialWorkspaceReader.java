@@ -0,0 +1,345 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.io.json.JsonReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads a single view from a workspace JSON file, along with only the parts of the model that the view needs
+ * (the elements and relationships it includes, their parents, and any elements they refer to).
+ *
+ * The file is read with a streaming parser: one pass to find the view (reading only the key of each view),
+ * one to read that view, and then one (or occasionally more) passes to collect the required model items.
+ * Other views and documentation are skipped without being deserialised, and model items are read one at a time,
+ * keeping only those that are needed. This is much faster and uses much less memory than loading the whole workspace
+ * when only one view's layout information is needed.
+ */
+final class PartialWorkspaceReader {
+
+    private static final String[] ELEMENT_ARRAYS = {
+            "people", "softwareSystems", "customElements", "deploymentNodes",
+            "containers", "components", "children", "infrastructureNodes", "softwareSystemInstances", "containerInstances"
+    };
+    private static final String[] ELEMENT_REFERENCES = { "softwareSystemId", "containerId", "elementId" };
+
+    private static final int MAXIMUM_PASSES = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Returns a workspace containing only the view with the given key (and the model items it needs),
+     * or null if the file doesn't contain a view with that key.
+     */
+    Workspace read(File file, String viewKey) throws Exception {
+        ObjectNode views = findView(file, viewKey);
+        if (views == null) {
+            return null;
+        }
+
+        Set<String> elementIds = new HashSet<>();
+        Set<String> relationshipIds = new HashSet<>();
+        for (JsonNode viewsOfType : views) {
+            for (JsonNode view : viewsOfType) {
+                addReferences(view, elementIds);
+                for (JsonNode elementView : view.path("elements")) {
+                    elementIds.add(elementView.path("id").asText());
+                }
+                for (JsonNode relationshipView : view.path("relationships")) {
+                    relationshipIds.add(relationshipView.path("id").asText());
+                }
+            }
+        }
+
+        ObjectNode root = null;
+        for (int pass = 0; pass < MAXIMUM_PASSES; pass++) {
+            ModelFilter filter = new ModelFilter(elementIds, relationshipIds);
+            root = readWorkspaceWithFilteredModel(file, filter);
+
+            Set<String> missing = new HashSet<>(filter.referencedIds);
+            missing.removeAll(filter.keptIds);
+            if (missing.isEmpty() || elementIds.containsAll(missing)) {
+                break;
+            }
+
+            // e.g. a container instance refers to a container that appears earlier in the file
+            elementIds.addAll(missing);
+        }
+
+        root.set("views", views);
+
+        return new JsonReader().read(new StringReader(objectMapper.writeValueAsString(root)));
+    }
+
+    /**
+     * Finds the view with the given key, returning a "views" object containing just that view and the view configuration.
+     */
+    private ObjectNode findView(File file, String viewKey) throws IOException {
+        ViewLocation location = locateView(file, viewKey);
+        if (location == null) {
+            return null;
+        }
+
+        ObjectNode views = objectMapper.createObjectNode();
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            moveToViews(parser);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String viewType = parser.getCurrentName();
+                JsonToken viewTypeToken = parser.nextToken();
+
+                if (viewType.equals(location.viewType) && viewTypeToken == JsonToken.START_ARRAY) {
+                    int index = 0;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (index == location.index) {
+                            JsonNode view = objectMapper.readTree(parser);
+                            views.putArray(viewType).add(view);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        index++;
+                    }
+                } else if ("configuration".equals(viewType)) {
+                    views.set(viewType, objectMapper.readTree(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return views;
+    }
+
+    /**
+     * Returns the type and position of the view with the given key, reading only the key of each view.
+     */
+    private ViewLocation locateView(File file, String viewKey) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            if (!moveToViews(parser)) {
+                return null;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String viewType = parser.getCurrentName();
+                JsonToken viewTypeToken = parser.nextToken();
+
+                if (viewTypeToken == JsonToken.START_ARRAY) {
+                    int index = 0;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (viewKey.equals(readViewKey(parser))) {
+                            return new ViewLocation(viewType, index);
+                        }
+                        index++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the rest of the current view, skipping everything but its key.
+     */
+    private static String readViewKey(JsonParser parser) throws IOException {
+        String key = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("key".equals(name) && token == JsonToken.VALUE_STRING) {
+                key = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * Moves the parser to the start of the "views" object, returning false if there isn't one.
+     */
+    private static boolean moveToViews(JsonParser parser) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("views".equals(name) && token == JsonToken.START_OBJECT) {
+                return true;
+            }
+
+            parser.skipChildren();
+        }
+
+        return false;
+    }
+
+    private ObjectNode readWorkspaceWithFilteredModel(File file, ModelFilter filter) throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                if ("model".equals(name) && token == JsonToken.START_OBJECT) {
+                    root.set(name, filterModel(parser, filter));
+                } else if ("views".equals(name) || "documentation".equals(name)) {
+                    parser.skipChildren();
+                } else {
+                    root.set(name, objectMapper.readTree(parser));
+                }
+            }
+        }
+
+        return root;
+    }
+
+    private ObjectNode filterModel(JsonParser parser, ModelFilter filter) throws IOException {
+        ObjectNode model = objectMapper.createObjectNode();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if (isElementArray(name) && token == JsonToken.START_ARRAY) {
+                ArrayNode elements = filterElements(parser, filter);
+                if (!elements.isEmpty()) {
+                    model.set(name, elements);
+                }
+            } else {
+                model.set(name, objectMapper.readTree(parser));
+            }
+        }
+
+        return model;
+    }
+
+    private ArrayNode filterElements(JsonParser parser, ModelFilter filter) throws IOException {
+        ArrayNode elements = objectMapper.createArrayNode();
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            ObjectNode element = filterElement(parser, filter);
+            if (element != null) {
+                elements.add(element);
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Reads an element, returning null if neither it nor any of its children are required.
+     */
+    private ObjectNode filterElement(JsonParser parser, ModelFilter filter) throws IOException {
+        ObjectNode element = objectMapper.createObjectNode();
+        boolean hasRequiredChildren = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if (isElementArray(name) && token == JsonToken.START_ARRAY) {
+                ArrayNode children = filterElements(parser, filter);
+                if (!children.isEmpty()) {
+                    element.set(name, children);
+                    hasRequiredChildren = true;
+                }
+            } else if ("relationships".equals(name) && token == JsonToken.START_ARRAY) {
+                ArrayNode relationships = objectMapper.createArrayNode();
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    JsonNode relationship = objectMapper.readTree(parser);
+                    if (filter.relationshipIds.contains(relationship.path("id").asText())) {
+                        relationships.add(relationship);
+                        filter.referencedIds.add(relationship.path("destinationId").asText());
+                    }
+                }
+                if (!relationships.isEmpty()) {
+                    element.set(name, relationships);
+                }
+            } else if ("documentation".equals(name)) {
+                parser.skipChildren();
+            } else {
+                element.set(name, objectMapper.readTree(parser));
+            }
+        }
+
+        String id = element.path("id").asText();
+        if (filter.elementIds.contains(id) || hasRequiredChildren || element.has("relationships")) {
+            filter.keptIds.add(id);
+            addReferences(element, filter.referencedIds);
+
+            return element;
+        }
+
+        return null;
+    }
+
+    private static void addReferences(JsonNode node, Set<String> ids) {
+        for (String reference : ELEMENT_REFERENCES) {
+            if (node.hasNonNull(reference)) {
+                ids.add(node.get(reference).asText());
+            }
+        }
+    }
+
+    private static boolean isElementArray(String name) {
+        for (String elementArray : ELEMENT_ARRAYS) {
+            if (elementArray.equals(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual);
+        }
+    }
+
+    private static final class ViewLocation {
+
+        private final String viewType;
+        private final int index;
+
+        ViewLocation(String viewType, int index) {
+            this.viewType = viewType;
+            this.index = index;
+        }
+
+    }
+
+    private static final class ModelFilter {
+
+        private final Set<String> elementIds;
+        private final Set<String> relationshipIds;
+        private final Set<String> keptIds = new HashSet<>();
+        private final Set<String> referencedIds = new HashSet<>();
+
+        ModelFilter(Set<String> elementIds, Set<String> relationshipIds) {
+            this.elementIds = elementIds;
+            this.relationshipIds = relationshipIds;
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.structurizr.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JFR event that is emitted for each phase recorded by {@link Metrics}.
+ */
+@Name("com.structurizr.cli.Phase")
+@Label("Structurizr CLI Phase")
+@Category("Structurizr CLI")
+@Description("A phase (parse, validate, export, etc) of a Structurizr CLI command")
+class PhaseEvent extends jdk.jfr.Event {
+
+    @Label("Command")
+    String command;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long cpuTime;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+
+}
@@ -0,0 +1,215 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.encryption.AesEncryptionStrategy;
+import com.structurizr.util.StringUtils;
+import org.apache.commons.cli.*;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Locks, pushes and unlocks a workspace in a single process, using a single (pooled) HTTP client.
+ * The remote workspace (used to merge layout information) is fetched while the local workspace is being parsed,
+ * and the workspace is always unlocked once it has been locked, even if the push fails.
+ */
+class PublishCommand extends AbstractCommand {
+
+    private static final Log log = LogFactory.getLog(PublishCommand.class);
+
+    PublishCommand() {
+    }
+
+    public void run(String... args) throws Exception {
+        Options options = new Options();
+
+        Option option = new Option("url", "structurizrApiUrl", true, "Structurizr API URL (default: https://api.structurizr.com)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("id", "workspaceId", true, "Workspace ID");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option("key", "apiKey", true, "Workspace API key");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option("secret", "apiSecret", true, "Workspace API secret");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option("branch", "branch", true, "Branch name");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("w", "workspace", true, "Path or URL to the workspace JSON/DSL file");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option("passphrase", "passphrase", true, "Client-side encryption passphrase");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("merge", "mergeFromRemote", true, "Whether to merge layout information from the remote workspace");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("archive", "archive", true, "Stores the previous version of the remote workspace");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("archiveRetention", "archiveRetention", true, "Number of previous versions of the remote workspace to keep in the archive (default: " + WorkspaceArchive.DEFAULT_RETENTION + ")");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("gzip", "gzip", false, "Compresses the workspace with gzip content encoding when uploading it (requires server support)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser commandLineParser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+
+        String apiUrl = "";
+        long workspaceId = 1;
+        String apiKey = "";
+        String apiSecret = "";
+        String branch = "";
+        String workspacePath = "";
+        String passphrase = "";
+        boolean mergeFromRemote = true;
+        boolean archive = true;
+        int archiveRetention = WorkspaceArchive.DEFAULT_RETENTION;
+        boolean compress = false;
+
+        try {
+            CommandLine cmd = commandLineParser.parse(options, args);
+
+            apiUrl = cmd.getOptionValue("structurizrApiUrl", "https://api.structurizr.com");
+            workspaceId = Long.parseLong(cmd.getOptionValue("workspaceId"));
+            apiKey = cmd.getOptionValue("apiKey");
+            apiSecret = cmd.getOptionValue("apiSecret");
+            branch = cmd.getOptionValue("branch");
+            workspacePath = cmd.getOptionValue("workspace");
+            passphrase = cmd.getOptionValue("passphrase");
+            mergeFromRemote = Boolean.parseBoolean(cmd.getOptionValue("merge", "true"));
+            archive = Boolean.parseBoolean(cmd.getOptionValue("archive", "true"));
+            try {
+                archiveRetention = Integer.parseInt(cmd.getOptionValue("archiveRetention", "" + WorkspaceArchive.DEFAULT_RETENTION));
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid number of versions to keep: " + cmd.getOptionValue("archiveRetention"));
+            }
+            if (archiveRetention < 0) {
+                throw new ParseException("The number of versions to keep must not be negative: " + archiveRetention);
+            }
+            compress = cmd.hasOption("gzip");
+        } catch (ParseException e) {
+            log.error(e.getMessage());
+            formatter.printHelp("publish", options);
+
+            System.exit(1);
+        }
+
+        File path = new File(workspacePath);
+        if (!path.exists()) {
+            log.error(" - workspace path " + workspacePath + " does not exist");
+            System.exit(1);
+        }
+
+        RemoteWorkspace remoteWorkspace = new RemoteWorkspace(apiUrl, workspaceId, apiKey, apiSecret, branch, passphrase, workspacePath);
+        log.info("Publishing " + remoteWorkspace);
+
+        try (WorkspaceHttpClient client = remoteWorkspace.createClient(getAgent())) {
+            client.setCompressPayload(compress);
+
+            if (!StringUtils.isNullOrEmpty(passphrase)) {
+                log.info(" - using client-side encryption");
+                client.setEncryptionStrategy(new AesEncryptionStrategy(passphrase));
+            }
+
+            if (archive) {
+                WorkspaceArchive workspaceArchive = WorkspaceArchive.open(new File(path.getAbsoluteFile().getParentFile(), WorkspaceArchive.DIRECTORY_NAME));
+                workspaceArchive.setRetention(archiveRetention);
+                client.setWorkspaceArchive(workspaceArchive);
+                log.info(" - storing previous version of workspace in " + workspaceArchive.getDirectory() + " (keeping " + archiveRetention + " versions)");
+            }
+
+            boolean locked;
+            try (Metrics.Phase phase = getMetrics().phase("lock")) {
+                locked = client.lockWorkspace(workspaceId);
+            }
+            log.info(" - locked " + locked);
+
+            if (!locked) {
+                log.error(" - could not lock workspace " + workspaceId);
+                System.exit(1);
+            }
+
+            FutureTask<Workspace> fetch = null;
+            try {
+                log.info(" - merge layout from remote: " + mergeFromRemote);
+                if (mergeFromRemote) {
+                    // fetch the remote workspace while the local workspace is being parsed
+                    fetch = new FutureTask<>(() -> {
+                        try (Metrics.Phase phase = getMetrics().phase("fetch")) {
+                            return client.getWorkspace(remoteWorkspace.getWorkspaceId());
+                        }
+                    });
+                    Thread thread = new Thread(fetch, "structurizr-publish-fetch");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+
+                log.info(" - parsing model and views from " + path.getCanonicalPath());
+                Workspace workspace = loadWorkspace(workspacePath);
+                addDefaultViewsAndStyles(workspace);
+
+                Workspace remote = null;
+                if (fetch != null) {
+                    remote = await(fetch);
+                }
+
+                log.info(" - pushing workspace" + (compress ? " (gzip)" : ""));
+                long bytesUploaded;
+                try (Metrics.Phase phase = getMetrics().phase("push")) {
+                    bytesUploaded = client.putWorkspace(workspaceId, workspace, remote);
+                }
+                getMetrics().count("bytesUploaded", bytesUploaded);
+                log.info(" - uploaded " + bytesUploaded + " bytes");
+            } finally {
+                if (fetch != null && !fetch.isDone()) {
+                    // don't release the lock (or close the client) while the fetch is still using it
+                    try {
+                        fetch.get();
+                    } catch (Exception e) {
+                        // the push has already failed for another reason
+                    }
+                }
+
+                try (Metrics.Phase phase = getMetrics().phase("unlock")) {
+                    log.info(" - unlocked " + client.unlockWorkspace(workspaceId));
+                } catch (Exception e) {
+                    log.error(" - could not unlock workspace " + workspaceId + ": " + e.getMessage());
+                }
+            }
+        }
+
+        log.info(" - finished");
+    }
+
+    private Workspace await(FutureTask<Workspace> fetch) throws Exception {
+        try {
+            return fetch.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception)e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+}
@@ -1,7 +1,7 @@
 package com.structurizr.cli;
 
 import com.structurizr.Workspace;
-import com.structurizr.api.WorkspaceApiClient;
+import com.structurizr.encryption.AesEncryptionStrategy;
 import com.structurizr.util.StringUtils;
 import com.structurizr.util.WorkspaceUtils;
 import org.apache.commons.cli.*;
@@ -9,11 +9,26 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 
 class PullCommand extends AbstractCommand {
 
     private static final Log log = LogFactory.getLog(PullCommand.class);
 
+    private static final String STATE_FILENAME = ".structurizr-pull.properties";
+    private static final String ETAG_STATE_SUFFIX = ".etag";
+    private static final String LAST_MODIFIED_STATE_SUFFIX = ".lastModified";
+    private static final String LAST_MODIFIED_DATE_STATE_SUFFIX = ".lastModifiedDate";
+
+    private static final String PULLED_OUTCOME = "pulled";
+    private static final String UNCHANGED_OUTCOME = "unchanged";
+
+    private int archiveRetention = WorkspaceArchive.DEFAULT_RETENTION;
+
     PullCommand() {
     }
 
@@ -25,21 +40,51 @@ class PullCommand extends AbstractCommand {
         options.addOption(option);
 
         option = new Option("id", "workspaceId", true, "Workspace ID");
-        option.setRequired(true);
+        option.setRequired(false);
         options.addOption(option);
 
         option = new Option("key", "apiKey", true, "Workspace API key");
-        option.setRequired(true);
+        option.setRequired(false);
         options.addOption(option);
 
         option = new Option("secret", "apiSecret", true, "Workspace API secret");
-        option.setRequired(true);
+        option.setRequired(false);
         options.addOption(option);
 
         option = new Option("branch", "branch", true, "Branch name");
         option.setRequired(false);
         options.addOption(option);
 
+        option = new Option("passphrase", "passphrase", true, "Client-side encryption passphrase");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("o", "output", true, "Path to an output directory (default: current directory)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("archive", "archive", true, "Stores each version of the workspace that is downloaded (default: true; not with -raw)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("archiveRetention", "archiveRetention", true, "Number of versions of the workspace to keep in the archive (default: " + WorkspaceArchive.DEFAULT_RETENTION + ")");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("force", "force", false, "Downloads and writes the workspace even if it has not changed since the last pull");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("raw", "raw", false, "Streams the workspace JSON straight to the output file, without parsing it (unless a passphrase is specified, to decrypt it)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("validate", "validate", false, "Checks that the workspace JSON can be parsed before writing it (with -raw)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        ManifestRunner.addOptions(options, "Path to a JSON manifest of workspaces to pull (instead of -id/-key/-secret)");
+
         CommandLineParser commandLineParser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
 
@@ -48,15 +93,50 @@ class PullCommand extends AbstractCommand {
         String apiKey = "";
         String apiSecret = "";
         String branch = "";
+        String passphrase = "";
+        String outputPath = null;
+        boolean archive = true;
+        boolean force = false;
+        boolean raw = false;
+        boolean validate = false;
+        String manifestPath = null;
+        String reportPath = null;
+        ManifestRunner manifestRunner = null;
 
         try {
             CommandLine cmd = commandLineParser.parse(options, args);
 
             apiUrl = cmd.getOptionValue("structurizrApiUrl", "https://api.structurizr.com");
-            workspaceId = Long.parseLong(cmd.getOptionValue("workspaceId"));
+            manifestPath = cmd.getOptionValue("manifest");
+            reportPath = cmd.getOptionValue("report");
+            manifestRunner = ManifestRunner.fromCommandLine(cmd);
+
+            if (StringUtils.isNullOrEmpty(manifestPath)) {
+                if (!cmd.hasOption("workspaceId") || !cmd.hasOption("apiKey") || !cmd.hasOption("apiSecret")) {
+                    log.error("-workspaceId, -apiKey and -apiSecret must be specified (or -manifest)");
+                    formatter.printHelp("pull", options);
+                    System.exit(1);
+                }
+                workspaceId = Long.parseLong(cmd.getOptionValue("workspaceId"));
+            }
+
             apiKey = cmd.getOptionValue("apiKey");
             apiSecret = cmd.getOptionValue("apiSecret");
             branch = cmd.getOptionValue("branch");
+            passphrase = cmd.getOptionValue("passphrase");
+            outputPath = cmd.getOptionValue("output", ".");
+            archive = Boolean.parseBoolean(cmd.getOptionValue("archive", "true"));
+            try {
+                archiveRetention = Integer.parseInt(cmd.getOptionValue("archiveRetention", "" + WorkspaceArchive.DEFAULT_RETENTION));
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid number of versions to keep: " + cmd.getOptionValue("archiveRetention"));
+            }
+            if (archiveRetention < 0) {
+                throw new ParseException("The number of versions to keep must not be negative: " + archiveRetention);
+            }
+            force = cmd.hasOption("force");
+            raw = cmd.hasOption("raw");
+            validate = cmd.hasOption("validate");
         } catch (ParseException e) {
             log.error(e.getMessage());
             formatter.printHelp("pull", options);
@@ -64,23 +144,172 @@ class PullCommand extends AbstractCommand {
             System.exit(1);
         }
 
+        if (!StringUtils.isNullOrEmpty(manifestPath)) {
+            List<RemoteWorkspace> workspaces = new ArrayList<>();
+            for (RemoteWorkspace workspace : WorkspaceManifest.load(new File(manifestPath), WorkspaceManifest.OUTPUT_PATH_PROPERTY)) {
+                if (StringUtils.isNullOrEmpty(workspace.getPath())) {
+                    // default to the output directory specified on the command line
+                    workspace = new RemoteWorkspace(workspace.getApiUrl(), workspace.getWorkspaceId(), workspace.getApiKey(), workspace.getApiSecret(), workspace.getBranch(), workspace.getPassphrase(), outputPath);
+                }
+                workspaces.add(workspace);
+            }
+            log.info("Pulling " + workspaces.size() + " workspace(s) from " + manifestPath);
+
+            boolean archiveForAll = archive;
+            boolean forceForAll = force;
+            boolean rawForAll = raw;
+            boolean validateForAll = validate;
+            ManifestRunner.Summary summary = manifestRunner.run("pull", workspaces, w -> pull(w, archiveForAll, forceForAll, rawForAll, validateForAll));
+            manifestRunner.report(summary, reportPath);
+
+            log.info(" - finished");
+            if (summary.hasFailures()) {
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        pull(new RemoteWorkspace(apiUrl, workspaceId, apiKey, apiSecret, branch, passphrase, outputPath), archive, force, raw, validate);
+
+        log.info(" - finished");
+    }
+
+    String pull(RemoteWorkspace remoteWorkspace, boolean archive, boolean force, boolean raw, boolean validate) throws Exception {
+        long workspaceId = remoteWorkspace.getWorkspaceId();
+        String branch = remoteWorkspace.getBranch();
+
+        File outputDir = new File(remoteWorkspace.getPath());
         File file;
         if (StringUtils.isNullOrEmpty(branch)) {
-            log.info("Pulling workspace " + workspaceId + " from " + apiUrl);
-            file = new File("structurizr-" + workspaceId + "-workspace.json");
+            log.info("Pulling workspace " + workspaceId + " from " + remoteWorkspace.getApiUrl());
+            file = new File(outputDir, "structurizr-" + workspaceId + "-workspace.json");
         } else {
-            log.info("Pulling workspace " + workspaceId + " from " + apiUrl + " (branch=" + branch + ")");
-            file = new File("structurizr-" + workspaceId + "-" + branch + "-workspace.json");
+            log.info("Pulling workspace " + workspaceId + " from " + remoteWorkspace.getApiUrl() + " (branch=" + branch + ")");
+            file = new File(outputDir, "structurizr-" + workspaceId + "-" + branch + "-workspace.json");
         }
 
-        WorkspaceApiClient client = new WorkspaceApiClient(apiUrl, apiKey, apiSecret);
-        client.setBranch(branch);
-        client.setAgent(getAgent());
-        Workspace workspace = client.getWorkspace(workspaceId);
+        StateFile pullState = StateFile.open(new File(outputDir, STATE_FILENAME));
+        String stateKey = StateFile.workspaceKey(remoteWorkspace.getApiUrl(), workspaceId, branch);
 
-        WorkspaceUtils.saveWorkspaceToJson(workspace, file);
-        log.info(" - workspace saved as " + file.getCanonicalPath());
-        log.info(" - finished");
+        String etag = null;
+        String lastModified = null;
+        if (file.exists() && !force) {
+            etag = pullState.get(stateKey + ETAG_STATE_SUFFIX);
+            lastModified = pullState.get(stateKey + LAST_MODIFIED_STATE_SUFFIX);
+        }
+
+        try (WorkspaceHttpClient client = remoteWorkspace.createClient(getAgent())) {
+            if (!StringUtils.isNullOrEmpty(remoteWorkspace.getPassphrase())) {
+                client.setEncryptionStrategy(new AesEncryptionStrategy(remoteWorkspace.getPassphrase()));
+            }
+
+            if (raw) {
+                // the JSON isn't read into memory, so isn't archived
+                return pullRaw(client, remoteWorkspace, file, etag, lastModified, pullState, stateKey, validate);
+            }
+
+            if (archive) {
+                WorkspaceArchive workspaceArchive = WorkspaceArchive.open(new File(outputDir, WorkspaceArchive.DIRECTORY_NAME));
+                workspaceArchive.setRetention(archiveRetention);
+                client.setWorkspaceArchive(workspaceArchive);
+            }
+
+            WorkspaceHttpClient.Response response;
+            try (Metrics.Phase phase = getMetrics().phase("pull")) {
+                response = client.getWorkspace(workspaceId, etag, lastModified);
+            }
+
+            if (response.isNotModified()) {
+                log.info(" - workspace has not changed since the last pull; skipping");
+                return UNCHANGED_OUTCOME;
+            }
+
+            if (response.getStatus() != WorkspaceHttpClient.HTTP_OK_STATUS) {
+                throw new WorkspaceApiException(response.getStatus(), "Could not pull workspace " + workspaceId + ": " + response.getErrorMessage());
+            }
+
+            Workspace workspace = client.fromJson(response.getBody());
+            String lastModifiedDate = workspace.getLastModifiedDate() != null ? "" + workspace.getLastModifiedDate().getTime() : null;
+
+            pullState.put(stateKey + ETAG_STATE_SUFFIX, response.getEtag());
+            pullState.put(stateKey + LAST_MODIFIED_STATE_SUFFIX, response.getLastModified());
+
+            String outcome;
+            if (file.exists() && !force && lastModifiedDate != null && lastModifiedDate.equals(pullState.get(stateKey + LAST_MODIFIED_DATE_STATE_SUFFIX))) {
+                // the server doesn't support conditional requests, but the workspace is the same revision as last time
+                log.info(" - workspace has not changed since the last pull; not rewriting " + file.getCanonicalPath());
+                outcome = UNCHANGED_OUTCOME;
+            } else {
+                outputDir.mkdirs();
+                try (Metrics.Phase phase = getMetrics().phase("write")) {
+                    WorkspaceUtils.saveWorkspaceToJson(workspace, file);
+                }
+                getMetrics().count("files", 1);
+                log.info(" - workspace saved as " + file.getCanonicalPath());
+                outcome = PULLED_OUTCOME;
+            }
+
+            pullState.put(stateKey + LAST_MODIFIED_DATE_STATE_SUFFIX, lastModifiedDate);
+            pullState.save();
+
+            return outcome;
+        }
+    }
+
+    /**
+     * Streams the workspace JSON to a temporary file, which then replaces the output file. The JSON is only parsed
+     * if it needs to be decrypted (in which case the decrypted workspace is written instead) or validated.
+     */
+    private String pullRaw(WorkspaceHttpClient client, RemoteWorkspace remoteWorkspace, File file, String etag, String lastModified, StateFile pullState, String stateKey, boolean validate) throws Exception {
+        File outputDir = file.getAbsoluteFile().getParentFile();
+        outputDir.mkdirs();
+        Path tmpFile = Files.createTempFile(outputDir.toPath(), file.getName(), ".tmp");
+
+        try {
+            WorkspaceHttpClient.Response response;
+            try (Metrics.Phase phase = getMetrics().phase("pull")) {
+                response = client.getWorkspace(remoteWorkspace.getWorkspaceId(), etag, lastModified, tmpFile);
+            }
+
+            if (response.isNotModified()) {
+                log.info(" - workspace has not changed since the last pull; skipping");
+                return UNCHANGED_OUTCOME;
+            }
+
+            if (response.getStatus() != WorkspaceHttpClient.HTTP_OK_STATUS) {
+                throw new WorkspaceApiException(response.getStatus(), "Could not pull workspace " + remoteWorkspace.getWorkspaceId() + ": " + response.getErrorMessage());
+            }
+            getMetrics().count("bytesDownloaded", Files.size(tmpFile));
+
+            if (!StringUtils.isNullOrEmpty(remoteWorkspace.getPassphrase())) {
+                Workspace workspace;
+                try (Metrics.Phase phase = getMetrics().phase("decrypt")) {
+                    workspace = client.fromJson(tmpFile);
+                }
+                try (Metrics.Phase phase = getMetrics().phase("write")) {
+                    WorkspaceUtils.saveWorkspaceToJson(workspace, tmpFile.toFile());
+                }
+            } else if (validate) {
+                try (Metrics.Phase phase = getMetrics().phase("validate")) {
+                    client.fromJson(tmpFile);
+                }
+            }
+
+            Files.move(tmpFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            getMetrics().count("files", 1);
+            log.info(" - workspace saved as " + file.getCanonicalPath());
+
+            // the workspace hasn't been parsed, so its last modified date isn't known
+            pullState.put(stateKey + ETAG_STATE_SUFFIX, response.getEtag());
+            pullState.put(stateKey + LAST_MODIFIED_STATE_SUFFIX, response.getLastModified());
+            pullState.put(stateKey + LAST_MODIFIED_DATE_STATE_SUFFIX, null);
+            pullState.save();
+
+            return PULLED_OUTCOME;
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
     }
 
 }
\ No newline at end of file
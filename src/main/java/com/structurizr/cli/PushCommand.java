@@ -1,7 +1,6 @@
 package com.structurizr.cli;
 
 import com.structurizr.Workspace;
-import com.structurizr.api.WorkspaceApiClient;
 import com.structurizr.encryption.AesEncryptionStrategy;
 import com.structurizr.util.StringUtils;
 import org.apache.commons.cli.*;
@@ -9,11 +8,20 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.File;
+import java.util.List;
 
 class PushCommand extends AbstractCommand {
 
     private static final Log log = LogFactory.getLog(PushCommand.class);
 
+    private static final String STATE_FILENAME = ".structurizr-push.properties";
+    private static final String ENCRYPTED_FINGERPRINT_PREFIX = "encrypted:";
+
+    private static final String PUSHED_OUTCOME = "pushed";
+    private static final String UNCHANGED_OUTCOME = "unchanged";
+
+    private int archiveRetention = WorkspaceArchive.DEFAULT_RETENTION;
+
     PushCommand() {
     }
 
@@ -25,15 +33,15 @@ class PushCommand extends AbstractCommand {
         options.addOption(option);
 
         option = new Option("id", "workspaceId", true, "Workspace ID");
-        option.setRequired(true);
+        option.setRequired(false);
         options.addOption(option);
 
         option = new Option("key", "apiKey", true, "Workspace API key");
-        option.setRequired(true);
+        option.setRequired(false);
         options.addOption(option);
 
         option = new Option("secret", "apiSecret", true, "Workspace API secret");
-        option.setRequired(true);
+        option.setRequired(false);
         options.addOption(option);
 
         option = new Option("branch", "branch", true, "Branch name");
@@ -56,6 +64,20 @@ class PushCommand extends AbstractCommand {
         option.setRequired(false);
         options.addOption(option);
 
+        option = new Option("archiveRetention", "archiveRetention", true, "Number of previous versions of the remote workspace to keep in the archive (default: " + WorkspaceArchive.DEFAULT_RETENTION + ")");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("force", "force", false, "Pushes the workspace even if it has not changed since the last push");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("gzip", "gzip", false, "Compresses the workspace with gzip content encoding when uploading it (requires server support)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        ManifestRunner.addOptions(options, "Path to a JSON manifest of workspaces to push (instead of -id/-key/-secret/-workspace)");
+
         CommandLineParser commandLineParser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
 
@@ -68,12 +90,29 @@ class PushCommand extends AbstractCommand {
         String passphrase = "";
         boolean mergeFromRemote = true;
         boolean archive = true;
+        boolean force = false;
+        boolean compress = false;
+        String manifestPath = null;
+        String reportPath = null;
+        ManifestRunner manifestRunner = null;
 
         try {
             CommandLine cmd = commandLineParser.parse(options, args);
 
             apiUrl = cmd.getOptionValue("structurizrApiUrl", "https://api.structurizr.com");
-            workspaceId = Long.parseLong(cmd.getOptionValue("workspaceId"));
+            manifestPath = cmd.getOptionValue("manifest");
+            reportPath = cmd.getOptionValue("report");
+            manifestRunner = ManifestRunner.fromCommandLine(cmd);
+
+            if (StringUtils.isNullOrEmpty(manifestPath)) {
+                if (!cmd.hasOption("workspaceId") || !cmd.hasOption("apiKey") || !cmd.hasOption("apiSecret")) {
+                    log.error("-workspaceId, -apiKey and -apiSecret must be specified (or -manifest)");
+                    formatter.printHelp("push", options);
+                    System.exit(1);
+                }
+                workspaceId = Long.parseLong(cmd.getOptionValue("workspaceId"));
+            }
+
             apiKey = cmd.getOptionValue("apiKey");
             apiSecret = cmd.getOptionValue("apiSecret");
             branch = cmd.getOptionValue("branch");
@@ -81,8 +120,18 @@ class PushCommand extends AbstractCommand {
             passphrase = cmd.getOptionValue("passphrase");
             mergeFromRemote = Boolean.parseBoolean(cmd.getOptionValue("merge", "true"));
             archive = Boolean.parseBoolean(cmd.getOptionValue("archive", "true"));
+            try {
+                archiveRetention = Integer.parseInt(cmd.getOptionValue("archiveRetention", "" + WorkspaceArchive.DEFAULT_RETENTION));
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid number of versions to keep: " + cmd.getOptionValue("archiveRetention"));
+            }
+            if (archiveRetention < 0) {
+                throw new ParseException("The number of versions to keep must not be negative: " + archiveRetention);
+            }
+            force = cmd.hasOption("force");
+            compress = cmd.hasOption("gzip");
 
-            if (StringUtils.isNullOrEmpty(workspacePath)) {
+            if (StringUtils.isNullOrEmpty(workspacePath) && StringUtils.isNullOrEmpty(manifestPath)) {
                 log.error("-workspace must be specified");
                 formatter.printHelp("push", options);
                 System.exit(1);
@@ -93,50 +142,110 @@ class PushCommand extends AbstractCommand {
             System.exit(1);
         }
 
-        if (StringUtils.isNullOrEmpty(branch)) {
-            log.info("Pushing workspace " + workspaceId + " to " + apiUrl);
-        } else {
-            log.info("Pushing workspace " + workspaceId + " to " + apiUrl + " (branch=" + branch + ")");
-        }
+        if (!StringUtils.isNullOrEmpty(manifestPath)) {
+            List<RemoteWorkspace> workspaces = WorkspaceManifest.load(new File(manifestPath), WorkspaceManifest.WORKSPACE_PATH_PROPERTY);
+            log.info("Pushing " + workspaces.size() + " workspace(s) from " + manifestPath);
 
-        WorkspaceApiClient client = new WorkspaceApiClient(apiUrl, apiKey, apiSecret);
-        client.setBranch(branch);
-        client.setAgent(getAgent());
-        client.setWorkspaceArchiveLocation(null);
+            boolean mergeFromRemoteForAll = mergeFromRemote;
+            boolean archiveForAll = archive;
+            boolean forceForAll = force;
+            boolean compressForAll = compress;
+            ManifestRunner.Summary summary = manifestRunner.run("push", workspaces, w -> push(w, mergeFromRemoteForAll, archiveForAll, forceForAll, compressForAll));
+            manifestRunner.report(summary, reportPath);
 
-        if (!StringUtils.isNullOrEmpty(passphrase)) {
-            log.info(" - using client-side encryption");
-            client.setEncryptionStrategy(new AesEncryptionStrategy(passphrase));
-        }
+            log.info(" - finished");
+            if (summary.hasFailures()) {
+                System.exit(1);
+            }
 
-        File archivePath = new File(".");
+            return;
+        }
 
         File path = new File(workspacePath);
-        archivePath = path.getParentFile();
         if (!path.exists()) {
             log.error(" - workspace path " + workspacePath + " does not exist");
             System.exit(1);
         }
 
+        push(new RemoteWorkspace(apiUrl, workspaceId, apiKey, apiSecret, branch, passphrase, workspacePath), mergeFromRemote, archive, force, compress);
+
+        log.info(" - finished");
+    }
+
+    String push(RemoteWorkspace remoteWorkspace, boolean mergeFromRemote, boolean archive, boolean force, boolean compress) throws Exception {
+        long workspaceId = remoteWorkspace.getWorkspaceId();
+        String workspacePath = remoteWorkspace.getPath();
+
+        if (StringUtils.isNullOrEmpty(remoteWorkspace.getBranch())) {
+            log.info("Pushing workspace " + workspaceId + " to " + remoteWorkspace.getApiUrl());
+        } else {
+            log.info("Pushing workspace " + workspaceId + " to " + remoteWorkspace.getApiUrl() + " (branch=" + remoteWorkspace.getBranch() + ")");
+        }
+
+        if (StringUtils.isNullOrEmpty(workspacePath)) {
+            throw new StructurizrCliException("No workspace path has been specified for workspace " + workspaceId);
+        }
+
+        File path = new File(workspacePath);
+        if (!path.exists()) {
+            throw new StructurizrCliException("Workspace path " + workspacePath + " does not exist");
+        }
+        File directory = path.getAbsoluteFile().getParentFile();
+
         log.info(" - creating new workspace");
         log.info(" - parsing model and views from " + path.getCanonicalPath());
 
         Workspace workspace = loadWorkspace(workspacePath);
 
         log.info(" - merge layout from remote: " + mergeFromRemote);
-        client.setMergeFromRemote(mergeFromRemote);
 
         addDefaultViewsAndStyles(workspace);
 
-        if (archive) {
-            client.setWorkspaceArchiveLocation(archivePath);
-            log.info(" - storing previous version of workspace in " + client.getWorkspaceArchiveLocation());
+        StateFile pushState = StateFile.open(new File(directory, STATE_FILENAME));
+        String stateKey = StateFile.workspaceKey(remoteWorkspace.getApiUrl(), workspaceId, remoteWorkspace.getBranch());
+        String fingerprint = WorkspaceFingerprint.of(workspace);
+        if (!StringUtils.isNullOrEmpty(remoteWorkspace.getPassphrase())) {
+            fingerprint = ENCRYPTED_FINGERPRINT_PREFIX + fingerprint;
         }
 
-        log.info(" - pushing workspace");
-        client.putWorkspace(workspaceId, workspace);
+        if (fingerprint.equals(pushState.get(stateKey))) {
+            if (force) {
+                log.info(" - workspace has not changed since the last push, but -force has been specified");
+            } else {
+                log.info(" - workspace has not changed since the last push; skipping (use -force to push anyway)");
+                return UNCHANGED_OUTCOME;
+            }
+        }
 
-        log.info(" - finished");
+        try (WorkspaceHttpClient client = remoteWorkspace.createClient(getAgent())) {
+            client.setMergeFromRemote(mergeFromRemote);
+            client.setCompressPayload(compress);
+
+            if (!StringUtils.isNullOrEmpty(remoteWorkspace.getPassphrase())) {
+                log.info(" - using client-side encryption");
+                client.setEncryptionStrategy(new AesEncryptionStrategy(remoteWorkspace.getPassphrase()));
+            }
+
+            if (archive) {
+                WorkspaceArchive workspaceArchive = WorkspaceArchive.open(new File(directory, WorkspaceArchive.DIRECTORY_NAME));
+                workspaceArchive.setRetention(archiveRetention);
+                client.setWorkspaceArchive(workspaceArchive);
+                log.info(" - storing previous version of workspace in " + workspaceArchive.getDirectory() + " (keeping " + archiveRetention + " versions)");
+            }
+
+            log.info(" - pushing workspace" + (compress ? " (gzip)" : ""));
+            long bytesUploaded;
+            try (Metrics.Phase phase = getMetrics().phase("push")) {
+                bytesUploaded = client.putWorkspace(workspaceId, workspace);
+            }
+            getMetrics().count("bytesUploaded", bytesUploaded);
+            log.info(" - uploaded " + bytesUploaded + " bytes");
+        }
+
+        pushState.put(stateKey, fingerprint);
+        pushState.save();
+
+        return PUSHED_OUTCOME;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.structurizr.cli;
+
+import com.structurizr.util.StringUtils;
+
+import java.net.URI;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The details needed to push/pull a single workspace: API URL, credentials, branch and local path.
+ */
+final class RemoteWorkspace {
+
+    static final String DEFAULT_API_URL = "https://api.structurizr.com";
+
+    private final String apiUrl;
+    private final long workspaceId;
+    private final String apiKey;
+    private final String apiSecret;
+    private final String branch;
+    private final String passphrase;
+    private final String path;
+    private Semaphore requestPermits;
+
+    RemoteWorkspace(String apiUrl, long workspaceId, String apiKey, String apiSecret, String branch, String passphrase, String path) {
+        this.apiUrl = StringUtils.isNullOrEmpty(apiUrl) ? DEFAULT_API_URL : apiUrl;
+        this.workspaceId = workspaceId;
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+        this.branch = branch;
+        this.passphrase = passphrase;
+        this.path = path;
+    }
+
+    String getApiUrl() {
+        return apiUrl;
+    }
+
+    String getHost() {
+        URI uri = URI.create(apiUrl);
+        return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    }
+
+    long getWorkspaceId() {
+        return workspaceId;
+    }
+
+    String getApiKey() {
+        return apiKey;
+    }
+
+    String getApiSecret() {
+        return apiSecret;
+    }
+
+    String getBranch() {
+        return branch;
+    }
+
+    String getPassphrase() {
+        return passphrase;
+    }
+
+    /**
+     * The workspace file (for push) or output directory (for pull).
+     */
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns a copy of this workspace, whose clients acquire one of the given permits for each request.
+     */
+    RemoteWorkspace withRequestPermits(Semaphore requestPermits) {
+        RemoteWorkspace remoteWorkspace = new RemoteWorkspace(apiUrl, workspaceId, apiKey, apiSecret, branch, passphrase, path);
+        remoteWorkspace.requestPermits = requestPermits;
+
+        return remoteWorkspace;
+    }
+
+    WorkspaceHttpClient createClient(String agent) {
+        WorkspaceHttpClient client = new WorkspaceHttpClient(apiUrl, apiKey, apiSecret);
+        client.setBranch(branch);
+        client.setAgent(agent);
+        client.setRequestPermits(requestPermits);
+
+        return client;
+    }
+
+    @Override
+    public String toString() {
+        if (StringUtils.isNullOrEmpty(branch)) {
+            return "workspace " + workspaceId + " at " + apiUrl;
+        } else {
+            return "workspace " + workspaceId + " at " + apiUrl + " (branch=" + branch + ")";
+        }
+    }
+
+}
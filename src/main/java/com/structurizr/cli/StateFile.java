@@ -0,0 +1,91 @@
+package com.structurizr.cli;
+
+import com.structurizr.util.StringUtils;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A small properties file used to remember state between CLI invocations (e.g. what was last pushed/pulled).
+ */
+class StateFile {
+
+    private static final Map<File,StateFile> STATE_FILES = new HashMap<>();
+
+    private final File file;
+    private final Properties properties = new Properties();
+
+    /**
+     * Opens the given state file; the same instance is returned for the same file, so that concurrent
+     * pushes/pulls don't overwrite each other's state.
+     */
+    static synchronized StateFile open(File file) throws Exception {
+        File key = file.getCanonicalFile();
+        StateFile stateFile = STATE_FILES.get(key);
+        if (stateFile == null) {
+            stateFile = new StateFile(key);
+            STATE_FILES.put(key, stateFile);
+        }
+
+        return stateFile;
+    }
+
+    private StateFile(File file) throws Exception {
+        this.file = file;
+
+        if (file.exists()) {
+            try (Reader reader = new FileReader(file)) {
+                properties.load(reader);
+            }
+        }
+    }
+
+    /**
+     * Returns a key that identifies a workspace (and branch) on a given Structurizr installation.
+     */
+    static String workspaceKey(String apiUrl, long workspaceId, String branch) {
+        if (StringUtils.isNullOrEmpty(branch)) {
+            return apiUrl + "/workspace/" + workspaceId;
+        } else {
+            return apiUrl + "/workspace/" + workspaceId + "/branch/" + branch;
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    synchronized String get(String key) {
+        return properties.getProperty(key);
+    }
+
+    synchronized void put(String key, String value) {
+        if (value == null) {
+            properties.remove(key);
+        } else {
+            properties.setProperty(key, value);
+        }
+    }
+
+    synchronized void remove(String key) {
+        properties.remove(key);
+    }
+
+    synchronized void save() throws Exception {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        try (Writer writer = new FileWriter(file)) {
+            properties.store(writer, "Structurizr CLI state");
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.structurizr.Workspace;
+import org.apache.commons.cli.*;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Reports the size of a workspace (elements, relationships, views and documentation) and estimates of its memory
+ * footprint and export cost, to help find the views that make an export slow.
+ */
+class StatsCommand extends AbstractCommand {
+
+    private static final Log log = LogFactory.getLog(StatsCommand.class);
+
+    private static final String TEXT_FORMAT = "text";
+    private static final String JSON_FORMAT = "json";
+    private static final int DEFAULT_NUMBER_OF_VIEWS = 10;
+
+    StatsCommand() {
+    }
+
+    public void run(String... args) throws Exception {
+        Options options = new Options();
+
+        Option option = new Option("w", "workspace", true, "Path or URL to the workspace JSON/DSL file");
+        option.setRequired(true);
+        options.addOption(option);
+
+        option = new Option("f", "format", true, String.format("Output format: %s|%s (default: %s)", TEXT_FORMAT, JSON_FORMAT, TEXT_FORMAT));
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("o", "output", true, "Path and name of an output file (default: the console)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("n", "top", true, String.format("Number of largest views to report (default: %d)", DEFAULT_NUMBER_OF_VIEWS));
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser commandLineParser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+
+        String workspacePathAsString = null;
+        String format = TEXT_FORMAT;
+        String outputPath = null;
+        int numberOfViews = DEFAULT_NUMBER_OF_VIEWS;
+
+        try {
+            CommandLine cmd = commandLineParser.parse(options, args);
+
+            workspacePathAsString = cmd.getOptionValue("workspace");
+            format = cmd.getOptionValue("format", TEXT_FORMAT);
+            outputPath = cmd.getOptionValue("output");
+
+            if (!TEXT_FORMAT.equalsIgnoreCase(format) && !JSON_FORMAT.equalsIgnoreCase(format)) {
+                throw new ParseException("Unknown format: " + format);
+            }
+
+            try {
+                numberOfViews = Integer.parseInt(cmd.getOptionValue("top", String.valueOf(DEFAULT_NUMBER_OF_VIEWS)));
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid number of views: " + cmd.getOptionValue("top"));
+            }
+            if (numberOfViews < 0) {
+                throw new ParseException("The number of views must not be negative: " + numberOfViews);
+            }
+        } catch (ParseException e) {
+            log.error(e.getMessage());
+            formatter.printHelp("stats", options);
+
+            System.exit(1);
+        }
+
+        log.info("Gathering statistics for " + workspacePathAsString);
+
+        Workspace workspace = loadWorkspace(workspacePathAsString);
+
+        WorkspaceStatistics statistics;
+        try (Metrics.Phase phase = getMetrics().phase("stats")) {
+            statistics = WorkspaceStatistics.of(workspace);
+        }
+
+        if (outputPath != null) {
+            File outputFile = new File(outputPath);
+            outputFile.getAbsoluteFile().getParentFile().mkdirs();
+            log.info(" - writing " + outputFile.getCanonicalPath());
+
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8))) {
+                if (JSON_FORMAT.equalsIgnoreCase(format)) {
+                    writer.println(toJson(statistics, numberOfViews));
+                } else {
+                    statistics.writeText(numberOfViews, writer::println);
+                }
+            }
+        } else {
+            if (JSON_FORMAT.equalsIgnoreCase(format)) {
+                System.out.println(toJson(statistics, numberOfViews));
+            } else {
+                statistics.writeText(numberOfViews, log::info);
+            }
+        }
+
+        log.info(" - finished");
+    }
+
+    private String toJson(WorkspaceStatistics statistics, int numberOfViews) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        return objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValueAsString(statistics.toJson(objectMapper, numberOfViews));
+    }
+
+}
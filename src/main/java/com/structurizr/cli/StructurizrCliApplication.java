@@ -1,6 +1,7 @@
 package com.structurizr.cli;
 
 import com.structurizr.cli.export.ExportCommand;
+import com.structurizr.cli.export.ServeCommand;
 import com.structurizr.util.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -11,6 +12,7 @@ import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFact
 import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
 import org.apache.logging.log4j.core.layout.PatternLayout;
 
+import java.io.File;
 import java.util.*;
 
 public class StructurizrCliApplication {
@@ -21,14 +23,22 @@ public class StructurizrCliApplication {
 	private static final String PULL_COMMAND = "pull";
 	private static final String LOCK_COMMAND = "lock";
 	private static final String UNLOCK_COMMAND = "unlock";
+	private static final String PUBLISH_COMMAND = "publish";
 	private static final String EXPORT_COMMAND = "export";
+	private static final String SERVE_COMMAND = "serve";
 	private static final String MERGE_COMMAND = "merge";
+	private static final String DIFF_COMMAND = "diff";
+	private static final String STATS_COMMAND = "stats";
 	private static final String VALIDATE_COMMAND = "validate";
 	private static final String INSPECT_COMMAND = "inspect";
 	private static final String LIST_COMMAND = "list";
+	private static final String GENERATE_COMMAND = "generate";
+	private static final String THEMES_COMMAND = "themes";
 	private static final String VERSION_COMMAND = "version";
 	private static final String HELP_COMMAND = "help";
 
+	private static final String METRICS_OPTION = "metrics";
+
 	private static final Map<String,AbstractCommand> COMMANDS = new HashMap<>();
 
 	static {
@@ -62,11 +72,17 @@ public class StructurizrCliApplication {
 		COMMANDS.put(PULL_COMMAND, new PullCommand());
 		COMMANDS.put(LOCK_COMMAND, new LockCommand());
 		COMMANDS.put(UNLOCK_COMMAND, new UnlockCommand());
+		COMMANDS.put(PUBLISH_COMMAND, new PublishCommand());
 		COMMANDS.put(EXPORT_COMMAND, new ExportCommand());
+		COMMANDS.put(SERVE_COMMAND, new ServeCommand());
 		COMMANDS.put(MERGE_COMMAND, new MergeCommand());
+		COMMANDS.put(DIFF_COMMAND, new DiffCommand());
+		COMMANDS.put(STATS_COMMAND, new StatsCommand());
 		COMMANDS.put(VALIDATE_COMMAND, new ValidateCommand());
 		COMMANDS.put(INSPECT_COMMAND, new InspectCommand());
 		COMMANDS.put(LIST_COMMAND, new ListCommand());
+		COMMANDS.put(GENERATE_COMMAND, new GenerateCommand());
+		COMMANDS.put(THEMES_COMMAND, new ThemesCommand());
 		COMMANDS.put(VERSION_COMMAND, new VersionCommand());
 		COMMANDS.put(HELP_COMMAND, new HelpCommand());
 	}
@@ -80,7 +96,25 @@ public class StructurizrCliApplication {
 			String commandName = args[0];
 			AbstractCommand command = COMMANDS.get(commandName);
 			if (command != null) {
-				command.run(Arrays.copyOfRange(args, 1, args.length));
+				List<String> commandArgs = new ArrayList<>();
+				String metricsPath = null;
+				for (int i = 1; i < args.length; i++) {
+					if (("-" + METRICS_OPTION).equals(args[i]) || ("--" + METRICS_OPTION).equals(args[i])) {
+						if (i + 1 < args.length) {
+							metricsPath = args[++i];
+						}
+					} else {
+						commandArgs.add(args[i]);
+					}
+				}
+
+				Metrics metrics = new Metrics(commandName);
+				command.setMetrics(metrics);
+				if (!StringUtils.isNullOrEmpty(metricsPath)) {
+					writeMetricsOnExit(metrics, new File(metricsPath));
+				}
+
+				command.run(commandArgs.toArray(new String[0]));
 				System.exit(0);
 			} else {
 				printUsageMessageAndExit(commandName);
@@ -91,6 +125,19 @@ public class StructurizrCliApplication {
 		}
 	}
 
+	private void writeMetricsOnExit(Metrics metrics, File file) {
+		metrics.startGcMonitoring();
+
+		// commands call System.exit() directly, so the metrics file is written from a shutdown hook
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				metrics.write(file);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}));
+	}
+
 	private void printUsageMessageAndExit(String commandName) throws Exception {
 		if (!StringUtils.isNullOrEmpty(commandName)) {
 			log.error("Error: " + commandName + " not recognised");
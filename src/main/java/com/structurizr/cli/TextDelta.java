@@ -0,0 +1,177 @@
+package com.structurizr.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A simple copy/insert delta between two versions of a (JSON) document.
+ *
+ * Both versions are split into segments ending at JSON structural characters (and newlines), and the target is
+ * encoded as a sequence of "copy this range of the base" and "insert this text" operations, found greedily.
+ * This works well for workspace JSON, where consecutive versions are usually near-identical.
+ *
+ * The encoded form is line-based text:
+ * <pre>
+ * C offset length
+ * I length
+ * text
+ * </pre>
+ */
+final class TextDelta {
+
+    private static final String COPY_OPERATION = "C";
+    private static final String INSERT_OPERATION = "I";
+
+    private static final int MINIMUM_COPY_LENGTH = 16;
+    private static final int MAXIMUM_CANDIDATES = 32;
+
+    private TextDelta() {
+    }
+
+    /**
+     * Writes a delta that turns the base into the target.
+     */
+    static void write(String base, String target, Writer writer) throws IOException {
+        List<Integer> baseOffsets = segment(base);
+        List<Integer> targetOffsets = segment(target);
+        int baseSegments = baseOffsets.size() - 1;
+        int targetSegments = targetOffsets.size() - 1;
+
+        Map<String,List<Integer>> index = new HashMap<>();
+        for (int i = 0; i < baseSegments; i++) {
+            index.computeIfAbsent(base.substring(baseOffsets.get(i), baseOffsets.get(i + 1)), k -> new ArrayList<>()).add(i);
+        }
+
+        int insertStart = 0;
+        int expected = -1;
+        int i = 0;
+        while (i < targetSegments) {
+            String segment = target.substring(targetOffsets.get(i), targetOffsets.get(i + 1));
+            List<Integer> candidates = index.getOrDefault(segment, List.of());
+
+            int bestStart = -1;
+            int bestLength = 0;
+
+            // prefer continuing on from the previous copy, since that's the common case
+            if (expected >= 0 && expected < baseSegments) {
+                int length = matchLength(base, baseOffsets, expected, target, targetOffsets, i);
+                if (length > 0) {
+                    bestStart = expected;
+                    bestLength = length;
+                }
+            }
+
+            for (int c = 0; c < Math.min(candidates.size(), MAXIMUM_CANDIDATES); c++) {
+                int candidate = candidates.get(c);
+                if (candidate != expected) {
+                    int length = matchLength(base, baseOffsets, candidate, target, targetOffsets, i);
+                    if (length > bestLength) {
+                        bestStart = candidate;
+                        bestLength = length;
+                    }
+                }
+            }
+
+            int copyLength = bestLength > 0 ? baseOffsets.get(bestStart + bestLength) - baseOffsets.get(bestStart) : 0;
+            if (copyLength >= MINIMUM_COPY_LENGTH) {
+                writeInsert(target, insertStart, targetOffsets.get(i), writer);
+                writer.write(COPY_OPERATION + " " + baseOffsets.get(bestStart) + " " + copyLength + "\n");
+
+                i += bestLength;
+                insertStart = targetOffsets.get(i);
+                expected = bestStart + bestLength;
+            } else {
+                i++;
+                expected = -1;
+            }
+        }
+
+        writeInsert(target, insertStart, target.length(), writer);
+    }
+
+    /**
+     * Applies a delta (as written by {@link #write(String, String, Writer)}) to the base.
+     */
+    static String apply(String base, BufferedReader reader) throws IOException {
+        StringBuilder buf = new StringBuilder(base.length());
+
+        String line = reader.readLine();
+        while (line != null) {
+            String[] parts = line.split(" ");
+            if (COPY_OPERATION.equals(parts[0]) && parts.length == 3) {
+                int offset = Integer.parseInt(parts[1]);
+                buf.append(base, offset, offset + Integer.parseInt(parts[2]));
+            } else if (INSERT_OPERATION.equals(parts[0]) && parts.length == 2) {
+                char[] text = new char[Integer.parseInt(parts[1])];
+                int read = 0;
+                while (read < text.length) {
+                    int n = reader.read(text, read, text.length - read);
+                    if (n < 0) {
+                        throw new IOException("Unexpected end of delta");
+                    }
+                    read += n;
+                }
+                buf.append(text);
+                reader.readLine();
+            } else if (!line.isEmpty()) {
+                throw new IOException("Unexpected delta operation: " + line);
+            }
+
+            line = reader.readLine();
+        }
+
+        return buf.toString();
+    }
+
+    private static void writeInsert(String target, int start, int end, Writer writer) throws IOException {
+        if (end > start) {
+            writer.write(INSERT_OPERATION + " " + (end - start) + "\n");
+            writer.write(target, start, end - start);
+            writer.write("\n");
+        }
+    }
+
+    private static int matchLength(String base, List<Integer> baseOffsets, int baseSegment, String target, List<Integer> targetOffsets, int targetSegment) {
+        int length = 0;
+        while (baseSegment + length < baseOffsets.size() - 1 && targetSegment + length < targetOffsets.size() - 1) {
+            int baseStart = baseOffsets.get(baseSegment + length);
+            int baseEnd = baseOffsets.get(baseSegment + length + 1);
+            int targetStart = targetOffsets.get(targetSegment + length);
+            int targetEnd = targetOffsets.get(targetSegment + length + 1);
+
+            if (baseEnd - baseStart != targetEnd - targetStart || !base.regionMatches(baseStart, target, targetStart, baseEnd - baseStart)) {
+                break;
+            }
+            length++;
+        }
+
+        return length;
+    }
+
+    /**
+     * Returns the segment boundaries (including 0 and the length of the text).
+     */
+    private static List<Integer> segment(String text) {
+        List<Integer> offsets = new ArrayList<>();
+        offsets.add(0);
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '{' || c == '}' || c == '[' || c == ']' || c == '\n') {
+                offsets.add(i + 1);
+            }
+        }
+
+        if (offsets.get(offsets.size() - 1) != text.length()) {
+            offsets.add(text.length());
+        }
+
+        return offsets;
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.util.StringUtils;
+import com.structurizr.util.Url;
+import com.structurizr.view.Styles;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local cache of theme definitions, keyed by URL, so that exports don't need to fetch the same themes over the
+ * network every time (and can run without network access at all).
+ *
+ * Themes that are missing from the cache, or older than the time-to-live, are fetched in parallel with a timeout;
+ * if a theme can't be fetched, a stale copy from the cache is used instead. In offline mode, only the cache is used.
+ * The cache directory is ~/.structurizr/themes, unless the STRUCTURIZR_THEME_CACHE environment variable is set.
+ */
+final class ThemeCache {
+
+    private static final Log log = LogFactory.getLog(ThemeCache.class);
+
+    static final String DIRECTORY_ENVIRONMENT_VARIABLE = "STRUCTURIZR_THEME_CACHE";
+    static final String DEFAULT_THEME_URL = "https://static.structurizr.com/themes/default/theme.json";
+    static final long DEFAULT_TIME_TO_LIVE_IN_MILLISECONDS = TimeUnit.DAYS.toMillis(1);
+    static final int DEFAULT_TIMEOUT_IN_MILLISECONDS = 10000;
+
+    private static final int HTTP_OK_STATUS = 200;
+    private static final int MAXIMUM_NUMBER_OF_THREADS = 8;
+
+    private static final Class<?> THEME_CLASS;
+    private static final Method ADD_STYLES_FROM_THEME;
+
+    static {
+        try {
+            THEME_CLASS = Class.forName("com.structurizr.view.Theme");
+            ADD_STYLES_FROM_THEME = Styles.class.getMethod("addStylesFromTheme", THEME_CLASS);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final File directory;
+    private long timeToLive = DEFAULT_TIME_TO_LIVE_IN_MILLISECONDS;
+    private int timeout = DEFAULT_TIMEOUT_IN_MILLISECONDS;
+    private boolean offline = false;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger fetched = new AtomicInteger();
+
+    ThemeCache(File directory) {
+        this.directory = directory;
+    }
+
+    static File getDefaultDirectory() {
+        String directory = System.getenv(DIRECTORY_ENVIRONMENT_VARIABLE);
+        if (!StringUtils.isNullOrEmpty(directory)) {
+            return new File(directory);
+        }
+
+        return new File(new File(System.getProperty("user.home"), ".structurizr"), "themes");
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * Returns the number of themes that were served from the cache.
+     */
+    int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of themes that were fetched over the network.
+     */
+    int getFetched() {
+        return fetched.get();
+    }
+
+    /**
+     * Adds the styles from the themes (referenced by URL) in the given workspace, in the order they are defined;
+     * this is equivalent to ThemeUtils.loadThemes(workspace).
+     */
+    void loadThemes(Workspace workspace) throws Exception {
+        String[] themes = workspace.getViews().getConfiguration().getThemes();
+        if (themes == null || themes.length == 0) {
+            return;
+        }
+
+        List<String> urls = new ArrayList<>();
+        for (String theme : themes) {
+            if (Url.isUrl(theme)) {
+                urls.add(theme);
+            }
+        }
+
+        Map<String,String> json = get(urls);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        for (String url : urls) {
+            JsonNode theme = objectMapper.readTree(json.get(url));
+
+            // icons are relative to the theme definition
+            String baseUrl = url.substring(0, url.lastIndexOf('/') + 1);
+            for (JsonNode elementStyle : theme.path("elements")) {
+                String icon = elementStyle.path("icon").asText(null);
+                if (!StringUtils.isNullOrEmpty(icon) && !icon.startsWith("http") && !icon.startsWith("data:image")) {
+                    ((ObjectNode)elementStyle).put("icon", baseUrl + icon);
+                }
+            }
+
+            // the Theme class isn't public, so it's created and added reflectively
+            ADD_STYLES_FROM_THEME.invoke(workspace.getViews().getConfiguration().getStyles(), objectMapper.treeToValue(theme, THEME_CLASS));
+        }
+    }
+
+    /**
+     * Returns the theme definitions (JSON) for the given URLs, fetching those that aren't cached (or are stale).
+     */
+    Map<String,String> get(Collection<String> urls) throws Exception {
+        Map<String,String> themes = new LinkedHashMap<>();
+        Set<String> urlsToFetch = new LinkedHashSet<>();
+
+        for (String url : urls) {
+            File file = getFile(url);
+            boolean cached = file.exists();
+            if (cached && (offline || System.currentTimeMillis() - file.lastModified() < timeToLive)) {
+                themes.put(url, Files.readString(file.toPath(), StandardCharsets.UTF_8));
+                hits.incrementAndGet();
+            } else if (offline) {
+                throw new StructurizrCliException("The theme at " + url + " is not in the theme cache at " + directory.getAbsolutePath() + " - run \"themes prefetch\" while online first");
+            } else {
+                urlsToFetch.add(url);
+            }
+        }
+
+        if (urlsToFetch.isEmpty()) {
+            return themes;
+        }
+
+        ExecutorService executorService = createExecutorService(urlsToFetch.size());
+        try (CloseableHttpClient httpClient = createHttpClient()) {
+            Map<String,Future<String>> tasks = new LinkedHashMap<>();
+            for (String url : urlsToFetch) {
+                tasks.put(url, executorService.submit(() -> fetch(httpClient, url)));
+            }
+
+            for (String url : tasks.keySet()) {
+                try {
+                    themes.put(url, tasks.get(url).get(timeout * 2L, TimeUnit.MILLISECONDS));
+                    fetched.incrementAndGet();
+                } catch (ExecutionException | TimeoutException e) {
+                    tasks.get(url).cancel(true);
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+
+                    File file = getFile(url);
+                    if (file.exists()) {
+                        log.warn(" - unable to fetch theme from " + url + " (" + cause + "); using the cached copy");
+                        themes.put(url, Files.readString(file.toPath(), StandardCharsets.UTF_8));
+                        hits.incrementAndGet();
+                    } else {
+                        throw new StructurizrCliException("Unable to fetch theme from " + url + ": " + cause);
+                    }
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // preserve the order in which the themes were requested
+        Map<String,String> orderedThemes = new LinkedHashMap<>();
+        for (String url : urls) {
+            orderedThemes.put(url, themes.get(url));
+        }
+
+        return orderedThemes;
+    }
+
+    private String fetch(CloseableHttpClient httpClient, String url) throws Exception {
+        HttpGet httpGet = new HttpGet(url);
+        String json = httpClient.execute(httpGet, response -> {
+            if (response.getCode() != HTTP_OK_STATUS) {
+                throw new StructurizrCliException("HTTP " + response.getCode());
+            }
+
+            return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        });
+
+        // write to a temporary file first, so that concurrent CLI invocations never see a partially written theme
+        directory.mkdirs();
+        File file = getFile(url);
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", directory);
+        Files.writeString(tmpFile.toPath(), json, StandardCharsets.UTF_8);
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return json;
+    }
+
+    File getFile(String url) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        String hash = HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+
+        return new File(directory, hash + ".json");
+    }
+
+    private CloseableHttpClient createHttpClient() {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(timeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(timeout))
+                .build();
+
+        return HttpClients.custom()
+                .useSystemProperties()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setDefaultConnectionConfig(connectionConfig)
+                        .setMaxConnTotal(MAXIMUM_NUMBER_OF_THREADS)
+                        .setMaxConnPerRoute(MAXIMUM_NUMBER_OF_THREADS)
+                        .build())
+                .build();
+    }
+
+    private ExecutorService createExecutorService(int numberOfThemes) {
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(Math.min(numberOfThemes, MAXIMUM_NUMBER_OF_THREADS), r -> {
+            Thread thread = new Thread(r, "structurizr-themes-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.util.Url;
+import org.apache.commons.cli.*;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Manages the local theme cache; "themes prefetch" fetches themes into the cache (e.g. when building a Docker image),
+ * so that subsequent exports can run with -offline.
+ */
+class ThemesCommand extends AbstractCommand {
+
+    private static final Log log = LogFactory.getLog(ThemesCommand.class);
+
+    private static final String PREFETCH_SUBCOMMAND = "prefetch";
+
+    ThemesCommand() {
+    }
+
+    public void run(String... args) throws Exception {
+        Options options = new Options();
+
+        Option option = new Option("w", "workspace", true, "Path or URL to a workspace JSON/DSL file, whose themes should be cached");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("url", "url", true, "URL of a theme to cache (can be specified multiple times)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser commandLineParser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+
+        String workspacePathAsString = null;
+        Set<String> urls = new LinkedHashSet<>();
+
+        try {
+            CommandLine cmd = commandLineParser.parse(options, args);
+
+            if (cmd.getArgList().size() != 1 || !PREFETCH_SUBCOMMAND.equals(cmd.getArgList().get(0))) {
+                throw new ParseException("Usage: themes " + PREFETCH_SUBCOMMAND + " [options]");
+            }
+
+            workspacePathAsString = cmd.getOptionValue("workspace");
+            if (cmd.hasOption("url")) {
+                urls.addAll(Arrays.asList(cmd.getOptionValues("url")));
+            }
+        } catch (ParseException e) {
+            log.error(e.getMessage());
+            formatter.printHelp("themes " + PREFETCH_SUBCOMMAND, options);
+
+            System.exit(1);
+        }
+
+        if (workspacePathAsString != null) {
+            Workspace workspace = loadWorkspace(workspacePathAsString);
+            String[] themes = workspace.getViews().getConfiguration().getThemes();
+            if (themes != null) {
+                for (String theme : themes) {
+                    if (Url.isUrl(theme)) {
+                        urls.add(theme);
+                    }
+                }
+            }
+        }
+
+        if (urls.isEmpty()) {
+            urls.add(ThemeCache.DEFAULT_THEME_URL);
+        }
+
+        ThemeCache themeCache = new ThemeCache(ThemeCache.getDefaultDirectory());
+        themeCache.setTimeToLive(0); // always fetch the latest version
+
+        log.info("Caching " + urls.size() + " theme(s) in " + themeCache.getDirectory().getAbsolutePath());
+        for (String url : urls) {
+            log.info(" - " + url);
+        }
+
+        try (Metrics.Phase phase = getMetrics().phase("themes")) {
+            themeCache.get(urls);
+        } catch (StructurizrCliException e) {
+            log.error(" - " + e.getMessage());
+            System.exit(1);
+        }
+        getMetrics().count("themesFetched", themeCache.getFetched());
+
+        log.info(" - finished");
+    }
+
+}
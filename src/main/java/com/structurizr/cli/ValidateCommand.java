@@ -2,7 +2,6 @@ package com.structurizr.cli;
 
 import com.structurizr.Workspace;
 import com.structurizr.util.WorkspaceUtils;
-import com.structurizr.view.ThemeUtils;
 import org.apache.commons.cli.*;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -21,15 +20,21 @@ class ValidateCommand extends AbstractCommand {
         option.setRequired(true);
         options.addOption(option);
 
+        option = new Option("offline", "offline", false, "Only use themes from the local theme cache");
+        option.setRequired(false);
+        options.addOption(option);
+
         CommandLineParser commandLineParser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
 
         String workspacePathAsString = null;
+        boolean offline = false;
 
         try {
             CommandLine cmd = commandLineParser.parse(options, args);
 
             workspacePathAsString = cmd.getOptionValue("workspace");
+            offline = cmd.hasOption("offline");
         } catch (ParseException e) {
             log.error(e.getMessage());
             formatter.printHelp("validate", options);
@@ -41,8 +46,11 @@ class ValidateCommand extends AbstractCommand {
 
         try {
             Workspace workspace = loadWorkspace(workspacePathAsString);
-            WorkspaceUtils.fromJson(WorkspaceUtils.toJson(workspace, false)); // this will trigger the deserialization validation
-            ThemeUtils.loadThemes(workspace); // this will test the themes are accessible
+            try (Metrics.Phase phase = getMetrics().phase("serialization")) {
+                WorkspaceUtils.fromJson(WorkspaceUtils.toJson(workspace, false)); // this will trigger the deserialization validation
+            }
+
+            loadThemes(workspace, offline); // this will test the themes are accessible
         } catch (Exception e) {
             // print the error and exit
             log.error(e.getMessage());
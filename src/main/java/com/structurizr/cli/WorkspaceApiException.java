@@ -0,0 +1,30 @@
+package com.structurizr.cli;
+
+/**
+ * Thrown when the Structurizr API responds with an unexpected HTTP status code.
+ */
+class WorkspaceApiException extends Exception {
+
+    private static final int HTTP_TOO_MANY_REQUESTS_STATUS = 429;
+    private static final int HTTP_SERVER_ERROR_STATUS = 500;
+
+    private final int status;
+
+    WorkspaceApiException(int status, String message) {
+        super(message + " (HTTP " + status + ")");
+
+        this.status = status;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    /**
+     * Rate limiting and server errors are assumed to be transient.
+     */
+    boolean isRetryable() {
+        return status == HTTP_TOO_MANY_REQUESTS_STATUS || status >= HTTP_SERVER_ERROR_STATUS;
+    }
+
+}
@@ -0,0 +1,359 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A compressed, content-addressed store of previous versions of remote workspaces (as archived before a push).
+ *
+ * Each distinct version of the workspace JSON is stored once, as a gzipped object named by its SHA-256 hash.
+ * A version that is similar to the previous version of the same workspace is stored as a {@link TextDelta} against it,
+ * with a full copy stored every so often to bound the length of the delta chains. An index records which versions
+ * were archived for which workspace, and only the most recent versions (the retention count) are kept.
+ *
+ * <pre>
+ * .structurizr-archive/
+ *   index.json
+ *   objects/&lt;sha-256&gt;.gz
+ * </pre>
+ */
+final class WorkspaceArchive {
+
+    static final String DIRECTORY_NAME = ".structurizr-archive";
+    static final int DEFAULT_RETENTION = 20;
+
+    private static final String INDEX_FILENAME = "index.json";
+    private static final String OBJECTS_DIRECTORY_NAME = "objects";
+    private static final String OBJECT_FILE_EXTENSION = ".gz";
+
+    private static final String FULL_HEADER = "full";
+    private static final String DELTA_HEADER = "delta";
+
+    private static final int MAXIMUM_DELTA_CHAIN_LENGTH = 16;
+    private static final double MAXIMUM_DELTA_RATIO = 0.5;
+
+    private static final Map<File,WorkspaceArchive> archives = new HashMap<>();
+
+    private final File directory;
+    private final File objectsDirectory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private int retention = DEFAULT_RETENTION;
+
+    private WorkspaceArchive(File directory) {
+        this.directory = directory;
+        this.objectsDirectory = new File(directory, OBJECTS_DIRECTORY_NAME);
+    }
+
+    /**
+     * Opens the archive in the given directory; the same instance is returned for the same directory,
+     * so that concurrent pushes (e.g. from a manifest) don't overwrite each other's index updates.
+     */
+    static synchronized WorkspaceArchive open(File directory) throws IOException {
+        return archives.computeIfAbsent(directory.getCanonicalFile(), WorkspaceArchive::new);
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    synchronized void setRetention(int retention) {
+        this.retention = Math.max(1, retention);
+    }
+
+    /**
+     * Adds a version of the workspace JSON to the archive, returning its hash.
+     * Nothing new is written if the archive already contains the same content.
+     */
+    synchronized String add(String key, String json) throws IOException {
+        String hash = sha256(json);
+        List<Version> versions = readIndex();
+
+        Version previous = null;
+        for (Version version : versions) {
+            if (version.key.equals(key)) {
+                previous = version;
+            }
+        }
+
+        if (previous != null && previous.hash.equals(hash)) {
+            // same as the most recently archived version
+            return hash;
+        }
+
+        if (!objectFile(hash).exists()) {
+            writeObject(hash, json, previous != null ? previous.hash : null);
+        }
+
+        versions.add(new Version(key, hash, System.currentTimeMillis()));
+        versions = applyRetention(key, versions);
+        writeIndex(versions);
+
+        return hash;
+    }
+
+    /**
+     * Returns the archived versions of the given workspace, oldest first.
+     */
+    synchronized List<Version> getVersions(String key) throws IOException {
+        List<Version> versions = new ArrayList<>();
+        for (Version version : readIndex()) {
+            if (version.key.equals(key)) {
+                versions.add(version);
+            }
+        }
+
+        return versions;
+    }
+
+    /**
+     * Returns the workspace JSON with the given hash.
+     */
+    synchronized String read(String hash) throws IOException {
+        List<String> chain = new ArrayList<>();
+        String current = hash;
+        while (current != null) {
+            chain.add(current);
+            current = readHeader(current).base;
+        }
+
+        String json = null;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            try (BufferedReader reader = openObject(chain.get(i))) {
+                reader.readLine(); // header
+                if (json == null) {
+                    json = readFully(reader);
+                } else {
+                    json = TextDelta.apply(json, reader);
+                }
+            }
+        }
+
+        return json;
+    }
+
+    private void writeObject(String hash, String json, String baseHash) throws IOException {
+        String delta = null;
+        int depth = 0;
+
+        if (baseHash != null && objectFile(baseHash).exists()) {
+            ObjectHeader baseHeader = readHeader(baseHash);
+            if (baseHeader.depth < MAXIMUM_DELTA_CHAIN_LENGTH) {
+                StringWriter stringWriter = new StringWriter();
+                TextDelta.write(read(baseHash), json, stringWriter);
+                if (stringWriter.getBuffer().length() < json.length() * MAXIMUM_DELTA_RATIO) {
+                    delta = stringWriter.toString();
+                    depth = baseHeader.depth + 1;
+                }
+            }
+        }
+
+        objectsDirectory.mkdirs();
+        File tmp = File.createTempFile(hash, ".tmp", objectsDirectory);
+        try {
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp.toPath())), StandardCharsets.UTF_8)) {
+                if (delta != null) {
+                    writer.write(DELTA_HEADER + " " + baseHash + " " + depth + "\n");
+                    writer.write(delta);
+                } else {
+                    writer.write(FULL_HEADER + "\n");
+                    writer.write(json);
+                }
+            }
+
+            Files.move(tmp.toPath(), objectFile(hash).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Drops all but the most recent versions of the given workspace, and removes objects that are no longer needed.
+     * Any remaining delta whose chain depends on a removed object is rewritten as a full copy first.
+     */
+    private List<Version> applyRetention(String key, List<Version> versions) throws IOException {
+        int count = 0;
+        for (Version version : versions) {
+            if (version.key.equals(key)) {
+                count++;
+            }
+        }
+
+        if (count <= retention) {
+            return versions;
+        }
+
+        List<Version> retained = new ArrayList<>();
+        int toRemove = count - retention;
+        for (Version version : versions) {
+            if (version.key.equals(key) && toRemove > 0) {
+                toRemove--;
+            } else {
+                retained.add(version);
+            }
+        }
+
+        // in order, so that the oldest retained version is the one that gets rebased
+        Set<String> live = new LinkedHashSet<>();
+        for (Version version : retained) {
+            live.add(version.hash);
+        }
+
+        for (String hash : live) {
+            boolean rebase = false;
+            String base = readHeader(hash).base;
+            while (base != null) {
+                if (!live.contains(base)) {
+                    rebase = true;
+                    break;
+                }
+                base = readHeader(base).base;
+            }
+
+            if (rebase) {
+                writeObject(hash, read(hash), null);
+            }
+        }
+
+        File[] objects = objectsDirectory.listFiles((dir, name) -> name.endsWith(OBJECT_FILE_EXTENSION));
+        if (objects != null) {
+            for (File object : objects) {
+                String hash = object.getName().substring(0, object.getName().length() - OBJECT_FILE_EXTENSION.length());
+                if (!live.contains(hash)) {
+                    object.delete();
+                }
+            }
+        }
+
+        return retained;
+    }
+
+    private ObjectHeader readHeader(String hash) throws IOException {
+        try (BufferedReader reader = openObject(hash)) {
+            String[] parts = String.valueOf(reader.readLine()).split(" ");
+            if (DELTA_HEADER.equals(parts[0]) && parts.length == 3) {
+                return new ObjectHeader(parts[1], Integer.parseInt(parts[2]));
+            } else if (FULL_HEADER.equals(parts[0])) {
+                return new ObjectHeader(null, 0);
+            } else {
+                throw new IOException("Archived workspace " + hash + " is corrupt");
+            }
+        }
+    }
+
+    private BufferedReader openObject(String hash) throws IOException {
+        return new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(objectFile(hash).toPath())), StandardCharsets.UTF_8));
+    }
+
+    private File objectFile(String hash) {
+        return new File(objectsDirectory, hash + OBJECT_FILE_EXTENSION);
+    }
+
+    private List<Version> readIndex() throws IOException {
+        List<Version> versions = new ArrayList<>();
+
+        File file = new File(directory, INDEX_FILENAME);
+        if (file.exists()) {
+            JsonNode root = objectMapper.readTree(file);
+            for (JsonNode node : root.path("versions")) {
+                versions.add(new Version(node.path("key").asText(), node.path("hash").asText(), node.path("timestamp").asLong()));
+            }
+        }
+
+        return versions;
+    }
+
+    private void writeIndex(List<Version> versions) throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        ArrayNode versionsNode = root.putArray("versions");
+        for (Version version : versions) {
+            ObjectNode node = versionsNode.addObject();
+            node.put("key", version.key);
+            node.put("hash", version.hash);
+            node.put("timestamp", version.timestamp);
+        }
+
+        File file = new File(directory, INDEX_FILENAME);
+        File tmp = new File(directory, INDEX_FILENAME + ".tmp");
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(tmp, root);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String readFully(BufferedReader reader) throws IOException {
+        StringWriter writer = new StringWriter();
+        reader.transferTo(writer);
+
+        return writer.toString();
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static final class Version {
+
+        private final String key;
+        private final String hash;
+        private final long timestamp;
+
+        Version(String key, String hash, long timestamp) {
+            this.key = key;
+            this.hash = hash;
+            this.timestamp = timestamp;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+
+    }
+
+    private static final class ObjectHeader {
+
+        private final String base;
+        private final int depth;
+
+        ObjectHeader(String base, int depth) {
+            this.base = base;
+            this.depth = depth;
+        }
+
+    }
+
+}
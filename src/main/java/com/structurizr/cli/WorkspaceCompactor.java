@@ -0,0 +1,253 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Element;
+import com.structurizr.model.ModelItem;
+import com.structurizr.model.Perspective;
+import com.structurizr.model.Relationship;
+import com.structurizr.view.ElementStyle;
+import com.structurizr.view.ElementView;
+import com.structurizr.view.ModelView;
+import com.structurizr.view.RelationshipStyle;
+import com.structurizr.view.RelationshipView;
+import com.structurizr.view.View;
+import com.structurizr.view.Vertex;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reduces the heap used by a loaded workspace, by replacing duplicate strings with a single shared instance and
+ * trimming the capacity of collections that were grown one item at a time while parsing.
+ *
+ * Large models repeat the same values thousands of times, but after parsing each occurrence is a separate String:
+ * tags, technologies, property keys and values, URLs, perspectives, groups, relationship descriptions,
+ * the element/relationship IDs referenced by relationships and views, and style tags.
+ * These are all replaced with the first equal instance seen. Many of these fields have no public setter,
+ * so they are accessed via reflection; any that can't be found (e.g. with a different library version) are skipped.
+ */
+final class WorkspaceCompactor {
+
+    /**
+     * Workspaces with at least this many elements and relationships are compacted after loading.
+     */
+    static final int DEFAULT_THRESHOLD = 10000;
+
+    private static final int STRING_OVERHEAD = 24 + 16; // String object plus array header
+
+    private static final Field MODEL_ITEM_ID = field(ModelItem.class, "id");
+    private static final Field MODEL_ITEM_TAGS = field(ModelItem.class, "tags");
+    private static final Field MODEL_ITEM_URL = field(ModelItem.class, "url");
+    private static final Field MODEL_ITEM_PROPERTIES = field(ModelItem.class, "properties");
+    private static final Field PERSPECTIVE_NAME = field(Perspective.class, "name");
+    private static final Field PERSPECTIVE_DESCRIPTION = field(Perspective.class, "description");
+    private static final Field PERSPECTIVE_VALUE = field(Perspective.class, "value");
+    private static final Field RELATIONSHIP_SOURCE_ID = field(Relationship.class, "sourceId");
+    private static final Field RELATIONSHIP_DESTINATION_ID = field(Relationship.class, "destinationId");
+    private static final Field RELATIONSHIP_DESCRIPTION = field(Relationship.class, "description");
+    private static final Field RELATIONSHIP_LINKED_RELATIONSHIP_ID = field(Relationship.class, "linkedRelationshipId");
+    private static final Field ELEMENT_VIEW_ID = field(ElementView.class, "id");
+    private static final Field RELATIONSHIP_VIEW_ID = field(RelationshipView.class, "id");
+    private static final Field RELATIONSHIP_VIEW_ORDER = field(RelationshipView.class, "order");
+    private static final Field RELATIONSHIP_VIEW_VERTICES = field(RelationshipView.class, "vertices");
+
+    // fields that are declared on more than one class (e.g. technology), by class
+    private static final Map<Class<?>,Field> TECHNOLOGY_FIELDS = new HashMap<>();
+    private static final Map<Class<?>,Field> GROUP_FIELDS = new HashMap<>();
+
+    private final Map<String,String> strings = new HashMap<>();
+
+    private long duplicateStrings;
+    private long bytesSaved;
+
+    /**
+     * Compacts the given workspace.
+     */
+    void compact(Workspace workspace) {
+        for (Element element : workspace.getModel().getElements()) {
+            compactModelItem(element);
+            internField(element, declaredField(TECHNOLOGY_FIELDS, element.getClass(), "technology"));
+            internField(element, declaredField(GROUP_FIELDS, element.getClass(), "group"));
+        }
+
+        for (Relationship relationship : workspace.getModel().getRelationships()) {
+            compactModelItem(relationship);
+            internField(relationship, RELATIONSHIP_SOURCE_ID);
+            internField(relationship, RELATIONSHIP_DESTINATION_ID);
+            internField(relationship, RELATIONSHIP_DESCRIPTION);
+            internField(relationship, RELATIONSHIP_LINKED_RELATIONSHIP_ID);
+            internField(relationship, declaredField(TECHNOLOGY_FIELDS, relationship.getClass(), "technology"));
+        }
+
+        for (View view : workspace.getViews().getViews()) {
+            if (view instanceof ModelView) {
+                ModelView modelView = (ModelView)view;
+                for (ElementView elementView : modelView.getElements()) {
+                    internField(elementView, ELEMENT_VIEW_ID);
+                }
+                for (RelationshipView relationshipView : modelView.getRelationships()) {
+                    internField(relationshipView, RELATIONSHIP_VIEW_ID);
+                    internField(relationshipView, RELATIONSHIP_VIEW_ORDER);
+                    trimVertices(relationshipView);
+                }
+            }
+        }
+
+        for (ElementStyle elementStyle : workspace.getViews().getConfiguration().getStyles().getElements()) {
+            internStringFields(elementStyle);
+        }
+        for (RelationshipStyle relationshipStyle : workspace.getViews().getConfiguration().getStyles().getRelationships()) {
+            internStringFields(relationshipStyle);
+        }
+    }
+
+    /**
+     * Returns the number of duplicate strings that were replaced.
+     */
+    long getDuplicateStrings() {
+        return duplicateStrings;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes used by the duplicate strings that were replaced.
+     */
+    long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void compactModelItem(ModelItem modelItem) {
+        internField(modelItem, MODEL_ITEM_ID);
+        internField(modelItem, MODEL_ITEM_URL);
+
+        if (MODEL_ITEM_TAGS != null) {
+            Set<String> tags = (Set<String>)get(modelItem, MODEL_ITEM_TAGS);
+            if (tags != null && !tags.isEmpty()) {
+                Set<String> compactTags = new LinkedHashSet<>(capacity(tags.size()));
+                for (String tag : tags) {
+                    compactTags.add(intern(tag));
+                }
+                set(modelItem, MODEL_ITEM_TAGS, compactTags);
+            }
+        }
+
+        if (MODEL_ITEM_PROPERTIES != null) {
+            Map<String,String> properties = (Map<String,String>)get(modelItem, MODEL_ITEM_PROPERTIES);
+            if (properties != null && !properties.isEmpty()) {
+                Map<String,String> compactProperties = new HashMap<>(capacity(properties.size()));
+                for (Map.Entry<String,String> property : properties.entrySet()) {
+                    compactProperties.put(intern(property.getKey()), intern(property.getValue()));
+                }
+                set(modelItem, MODEL_ITEM_PROPERTIES, compactProperties);
+            }
+        }
+
+        for (Perspective perspective : modelItem.getPerspectives()) {
+            internField(perspective, PERSPECTIVE_NAME);
+            internField(perspective, PERSPECTIVE_DESCRIPTION);
+            internField(perspective, PERSPECTIVE_VALUE);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void trimVertices(RelationshipView relationshipView) {
+        if (RELATIONSHIP_VIEW_VERTICES != null) {
+            List<Vertex> vertices = (List<Vertex>)get(relationshipView, RELATIONSHIP_VIEW_VERTICES);
+            if (vertices instanceof ArrayList) {
+                ((ArrayList<Vertex>)vertices).trimToSize();
+            }
+        }
+    }
+
+    private void internStringFields(Object object) {
+        for (Field field : object.getClass().getDeclaredFields()) {
+            if (field.getType() == String.class && !Modifier.isStatic(field.getModifiers()) && field.trySetAccessible()) {
+                internField(object, field);
+            }
+        }
+    }
+
+    private void internField(Object object, Field field) {
+        if (field != null) {
+            Object value = get(object, field);
+            if (value instanceof String) {
+                String interned = intern((String)value);
+                if (interned != value) {
+                    set(object, field, interned);
+                }
+            }
+        }
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String existing = strings.putIfAbsent(value, value);
+        if (existing == null) {
+            return value;
+        }
+
+        if (existing != value) {
+            duplicateStrings++;
+            bytesSaved += STRING_OVERHEAD + value.length();
+        }
+
+        return existing;
+    }
+
+    private static int capacity(int size) {
+        return (int)(size / 0.75f) + 1;
+    }
+
+    private static Object get(Object object, Field field) {
+        try {
+            return field.get(object);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static void set(Object object, Field field, Object value) {
+        try {
+            field.set(object, value);
+        } catch (IllegalAccessException e) {
+            // leave the existing value in place
+        }
+    }
+
+    private static Field declaredField(Map<Class<?>,Field> cache, Class<?> type, String name) {
+        synchronized (cache) {
+            if (cache.containsKey(type)) {
+                return cache.get(type);
+            }
+
+            Field field = null;
+            Class<?> current = type;
+            while (field == null && current != null && current != Object.class) {
+                field = field(current, name);
+                current = current.getSuperclass();
+            }
+
+            cache.put(type, field);
+            return field;
+        }
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            return field.trySetAccessible() ? field : null;
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+}
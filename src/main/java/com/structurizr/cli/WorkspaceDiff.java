@@ -0,0 +1,381 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.model.Element;
+import com.structurizr.model.ModelItem;
+import com.structurizr.model.Perspective;
+import com.structurizr.model.Relationship;
+import com.structurizr.view.AutomaticLayout;
+import com.structurizr.view.ElementView;
+import com.structurizr.view.ModelView;
+import com.structurizr.view.RelationshipView;
+import com.structurizr.view.Vertex;
+import com.structurizr.view.View;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A structural comparison of two workspaces: the elements, relationships and views that were added, removed or changed.
+ *
+ * Each workspace is first reduced to a {@link Snapshot}, which maps a stable key for every element (canonical name),
+ * relationship (source, destination and description) and view (key) to a hash of its attributes. The two snapshots
+ * are then compared with a single pass over each, so the cost is linear in the size of the workspaces.
+ * IDs are not used, because they are not stable between two parses of the same DSL.
+ */
+final class WorkspaceDiff {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String DSL_IDENTIFIER_PROPERTY = "structurizr.dsl.identifier";
+
+    // optional, type-specific attributes of elements (e.g. Container.getTechnology())
+    private static final String[] ELEMENT_GETTERS = { "getTechnology", "getGroup", "getInstances", "getInstanceId", "getEnvironment" };
+    private static final Map<Class<?>,List<Method>> GETTERS = new ConcurrentHashMap<>();
+
+    private final Changes elements;
+    private final Changes relationships;
+    private final Changes views;
+
+    private WorkspaceDiff(Changes elements, Changes relationships, Changes views) {
+        this.elements = elements;
+        this.relationships = relationships;
+        this.views = views;
+    }
+
+    static WorkspaceDiff compare(Snapshot before, Snapshot after) {
+        return new WorkspaceDiff(
+                compare(before.elements, after.elements),
+                compare(before.relationships, after.relationships),
+                compare(before.views, after.views)
+        );
+    }
+
+    private static Changes compare(Map<String,Item> before, Map<String,Item> after) {
+        Changes changes = new Changes();
+
+        for (Map.Entry<String,Item> entry : after.entrySet()) {
+            Item previous = before.get(entry.getKey());
+            if (previous == null) {
+                changes.added.add(entry.getKey());
+            } else if (!previous.hash.equals(entry.getValue().hash)) {
+                changes.changed.put(entry.getKey(), previous.changedAttributes(entry.getValue()));
+            }
+        }
+
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                changes.removed.add(key);
+            }
+        }
+
+        return changes;
+    }
+
+    Changes getElements() {
+        return elements;
+    }
+
+    Changes getRelationships() {
+        return relationships;
+    }
+
+    Changes getViews() {
+        return views;
+    }
+
+    boolean isEmpty() {
+        return elements.isEmpty() && relationships.isEmpty() && views.isEmpty();
+    }
+
+    void writeText(Consumer<String> output) {
+        writeText("Elements", elements, output);
+        writeText("Relationships", relationships, output);
+        writeText("Views", views, output);
+    }
+
+    private void writeText(String name, Changes changes, Consumer<String> output) {
+        output.accept(String.format("%s: %d added, %d removed, %d changed", name, changes.added.size(), changes.removed.size(), changes.changed.size()));
+        changes.added.forEach(key -> output.accept(" + " + key));
+        changes.removed.forEach(key -> output.accept(" - " + key));
+        changes.changed.forEach((key, attributes) -> output.accept(" ~ " + key + " (" + String.join(", ", attributes) + ")"));
+    }
+
+    ObjectNode toJson(ObjectMapper objectMapper) {
+        ObjectNode json = objectMapper.createObjectNode();
+        json.set("elements", toJson(objectMapper, elements));
+        json.set("relationships", toJson(objectMapper, relationships));
+        json.set("views", toJson(objectMapper, views));
+
+        return json;
+    }
+
+    private ObjectNode toJson(ObjectMapper objectMapper, Changes changes) {
+        ObjectNode json = objectMapper.createObjectNode();
+        ArrayNode added = json.putArray("added");
+        changes.added.forEach(added::add);
+        ArrayNode removed = json.putArray("removed");
+        changes.removed.forEach(removed::add);
+        ArrayNode changed = json.putArray("changed");
+        changes.changed.forEach((key, attributes) -> {
+            ObjectNode item = changed.addObject();
+            item.put("key", key);
+            ArrayNode attributesNode = item.putArray("attributes");
+            attributes.forEach(attributesNode::add);
+        });
+
+        return json;
+    }
+
+    /**
+     * The items that were added, removed or changed, each sorted by key.
+     */
+    static final class Changes {
+
+        private final TreeSet<String> added = new TreeSet<>();
+        private final TreeSet<String> removed = new TreeSet<>();
+        private final TreeMap<String,List<String>> changed = new TreeMap<>();
+
+        TreeSet<String> getAdded() {
+            return added;
+        }
+
+        TreeSet<String> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * Returns the changed items, with the names of the attributes that changed.
+         */
+        TreeMap<String,List<String>> getChanged() {
+            return changed;
+        }
+
+        boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+
+    }
+
+    /**
+     * The fingerprints of every element, relationship and view in a workspace.
+     */
+    static final class Snapshot {
+
+        private final Map<String,Item> elements = new HashMap<>();
+        private final Map<String,Item> relationships = new HashMap<>();
+        private final Map<String,Item> views = new HashMap<>();
+
+        private final MessageDigest digest;
+
+        private Snapshot() throws Exception {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        }
+
+        static Snapshot of(Workspace workspace) throws Exception {
+            Snapshot snapshot = new Snapshot();
+
+            for (Element element : workspace.getModel().getElements()) {
+                Map<String,String> attributes = modelItemAttributes(element);
+                attributes.put("type", element.getClass().getSimpleName());
+                attributes.put("name", element.getName());
+                attributes.put("description", element.getDescription());
+                for (Method getter : getters(element.getClass())) {
+                    Object value = getter.invoke(element);
+                    attributes.put(getter.getName().substring(3).toLowerCase(), value != null ? value.toString() : null);
+                }
+
+                snapshot.elements.put(element.getCanonicalName(), snapshot.item(attributes));
+            }
+
+            Map<String,String> relationshipKeys = relationshipKeys(workspace);
+            for (Relationship relationship : workspace.getModel().getRelationships()) {
+                Map<String,String> attributes = modelItemAttributes(relationship);
+                attributes.put("description", relationship.getDescription());
+                attributes.put("technology", relationship.getTechnology());
+                attributes.put("interactionStyle", Objects.toString(relationship.getInteractionStyle(), null));
+
+                snapshot.relationships.put(relationshipKeys.get(relationship.getId()), snapshot.item(attributes));
+            }
+
+            for (View view : workspace.getViews().getViews()) {
+                Map<String,String> attributes = new TreeMap<>();
+                attributes.put("type", view.getClass().getSimpleName());
+                attributes.put("title", view.getTitle());
+                attributes.put("description", view.getDescription());
+                attributes.put("properties", new TreeMap<>(view.getProperties()).toString());
+
+                if (view instanceof ModelView) {
+                    ModelView modelView = (ModelView)view;
+
+                    TreeSet<String> elements = new TreeSet<>();
+                    TreeSet<String> layout = new TreeSet<>();
+                    for (ElementView elementView : modelView.getElements()) {
+                        elements.add(elementView.getElement().getCanonicalName());
+                        layout.add(elementView.getElement().getCanonicalName() + "@" + elementView.getX() + "," + elementView.getY());
+                    }
+
+                    TreeSet<String> relationships = new TreeSet<>();
+                    for (RelationshipView relationshipView : modelView.getRelationships()) {
+                        String key = relationshipKeys.get(relationshipView.getId());
+                        relationships.add(relationshipView.getOrder() != null ? relationshipView.getOrder() + ": " + key + " " + relationshipView.getDescription() : key);
+
+                        StringBuilder vertices = new StringBuilder();
+                        for (Vertex vertex : relationshipView.getVertices()) {
+                            vertices.append(" ").append(vertex.getX()).append(",").append(vertex.getY());
+                        }
+                        layout.add(key + "@" + relationshipView.getRouting() + "," + relationshipView.getPosition() + vertices);
+                    }
+
+                    AutomaticLayout automaticLayout = modelView.getAutomaticLayout();
+                    attributes.put("elements", snapshot.hash(String.join("\n", elements)));
+                    attributes.put("relationships", snapshot.hash(String.join("\n", relationships)));
+                    attributes.put("layout", automaticLayout != null ?
+                            "auto " + automaticLayout.getRankDirection() + " " + automaticLayout.getRankSeparation() + " " + automaticLayout.getNodeSeparation() + " " + automaticLayout.getEdgeSeparation() :
+                            snapshot.hash(String.join("\n", layout)));
+                }
+
+                snapshot.views.put(view.getKey(), snapshot.item(attributes));
+            }
+
+            return snapshot;
+        }
+
+        Map<String,Item> getElements() {
+            return elements;
+        }
+
+        Map<String,Item> getRelationships() {
+            return relationships;
+        }
+
+        Map<String,Item> getViews() {
+            return views;
+        }
+
+        private Item item(Map<String,String> attributes) {
+            StringBuilder buf = new StringBuilder();
+            attributes.forEach((name, value) -> buf.append(name).append('=').append(value).append('\u0000'));
+
+            return new Item(hash(buf.toString()), attributes);
+        }
+
+        private String hash(String value) {
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        }
+
+    }
+
+    /**
+     * The hash of a model item or view, along with the attributes it was calculated from.
+     */
+    static final class Item {
+
+        private final String hash;
+        private final Map<String,String> attributes;
+
+        private Item(String hash, Map<String,String> attributes) {
+            this.hash = hash;
+            this.attributes = attributes;
+        }
+
+        String getHash() {
+            return hash;
+        }
+
+        private List<String> changedAttributes(Item item) {
+            TreeSet<String> names = new TreeSet<>(attributes.keySet());
+            names.addAll(item.attributes.keySet());
+
+            List<String> changedAttributes = new ArrayList<>();
+            for (String name : names) {
+                if (!Objects.equals(attributes.get(name), item.attributes.get(name))) {
+                    changedAttributes.add(name);
+                }
+            }
+
+            return changedAttributes;
+        }
+
+    }
+
+    /**
+     * Returns a stable key for each relationship (by ID): "source -> destination (description)", made unique where
+     * there is more than one relationship between the same elements with the same description.
+     */
+    static Map<String,String> relationshipKeys(Workspace workspace) {
+        Map<String,List<Relationship>> relationshipsByKey = new HashMap<>();
+        for (Relationship relationship : workspace.getModel().getRelationships()) {
+            String key = relationship.getSource().getCanonicalName() + " -> " + relationship.getDestination().getCanonicalName() + " (" + Optional.ofNullable(relationship.getDescription()).orElse("") + ")";
+            relationshipsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(relationship);
+        }
+
+        Map<String,String> keys = new HashMap<>();
+        for (Map.Entry<String,List<Relationship>> entry : relationshipsByKey.entrySet()) {
+            List<Relationship> relationships = entry.getValue();
+            if (relationships.size() == 1) {
+                keys.put(relationships.get(0).getId(), entry.getKey());
+            } else {
+                // disambiguate by technology, then by the order of the remaining attributes
+                relationships.sort((a, b) -> {
+                    int result = Objects.toString(a.getTechnology(), "").compareTo(Objects.toString(b.getTechnology(), ""));
+                    return result != 0 ? result : modelItemAttributes(a).toString().compareTo(modelItemAttributes(b).toString());
+                });
+                for (int i = 0; i < relationships.size(); i++) {
+                    keys.put(relationships.get(i).getId(), entry.getKey() + " #" + (i + 1));
+                }
+            }
+        }
+
+        return keys;
+    }
+
+    private static Map<String,String> modelItemAttributes(ModelItem modelItem) {
+        Map<String,String> attributes = new TreeMap<>();
+        attributes.put("tags", modelItem.getTags());
+        attributes.put("url", modelItem.getUrl());
+
+        Map<String,String> properties = new TreeMap<>(modelItem.getProperties());
+        properties.remove(DSL_IDENTIFIER_PROPERTY);
+        attributes.put("properties", properties.toString());
+
+        TreeSet<String> perspectives = new TreeSet<>();
+        for (Perspective perspective : modelItem.getPerspectives()) {
+            perspectives.add(perspective.getName() + "=" + perspective.getDescription() + "/" + perspective.getValue());
+        }
+        attributes.put("perspectives", perspectives.toString());
+
+        return attributes;
+    }
+
+    private static List<Method> getters(Class<?> type) {
+        return GETTERS.computeIfAbsent(type, t -> {
+            List<Method> getters = new ArrayList<>();
+            for (String name : ELEMENT_GETTERS) {
+                try {
+                    getters.add(t.getMethod(name));
+                } catch (NoSuchMethodException e) {
+                    // not applicable to this type of element
+                }
+            }
+
+            return Collections.unmodifiableList(getters);
+        });
+    }
+
+}
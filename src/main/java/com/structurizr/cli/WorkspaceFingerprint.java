@@ -0,0 +1,70 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Calculates a canonical hash of a workspace, ignoring metadata that changes every time
+ * a workspace is parsed or pushed (last modified details, workspace ID, generated DSL identifiers, etc).
+ */
+class WorkspaceFingerprint {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final String[] WORKSPACE_METADATA_FIELDS = {
+            "id", "lastModifiedDate", "lastModifiedUser", "lastModifiedAgent", "thumbnail", "revision"
+    };
+
+    private static final String PROPERTIES_FIELD = "properties";
+    private static final String DSL_IDENTIFIER_PROPERTY = "structurizr.dsl.identifier";
+
+    private WorkspaceFingerprint() {
+    }
+
+    static String of(Workspace workspace) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+        JsonNode json = objectMapper.readTree(WorkspaceUtils.toJson(workspace, false));
+        if (json instanceof ObjectNode) {
+            for (String field : WORKSPACE_METADATA_FIELDS) {
+                ((ObjectNode)json).remove(field);
+            }
+        }
+        removeDslIdentifiers(json);
+
+        // round-trip via maps, so that the keys are written in a stable (sorted) order
+        byte[] canonicalJson = objectMapper.writeValueAsBytes(objectMapper.treeToValue(json, Object.class));
+
+        MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        return HexFormat.of().formatHex(digest.digest(canonicalJson));
+    }
+
+    private static void removeDslIdentifiers(JsonNode node) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String,JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String,JsonNode> field = fields.next();
+                if (PROPERTIES_FIELD.equals(field.getKey()) && field.getValue() instanceof ObjectNode) {
+                    ((ObjectNode)field.getValue()).remove(DSL_IDENTIFIER_PROPERTY);
+                } else {
+                    removeDslIdentifiers(field.getValue());
+                }
+            }
+        } else if (node.isArray()) {
+            for (JsonNode child : node) {
+                removeDslIdentifiers(child);
+            }
+        }
+    }
+
+}
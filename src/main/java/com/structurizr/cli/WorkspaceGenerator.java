@@ -0,0 +1,331 @@
+package com.structurizr.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Generates deterministic, synthetic workspaces (as DSL) for testing and benchmarking at scale.
+ *
+ * The same settings and seed always produce the same DSL. Everything is written directly to disk as it is generated,
+ * so very large workspaces can be created without holding them in memory. The model consists of:
+ * <ul>
+ *     <li>people, each using the first container of a software system</li>
+ *     <li>software systems, each with containers (which call each other in a chain) and components (likewise)</li>
+ *     <li>additional relationships between randomly chosen containers and components</li>
+ *     <li>deployment environments, each with a deployment node per software system and an instance of each container</li>
+ * </ul>
+ *
+ * The views are a system landscape view, system context/container/component views for software systems in turn,
+ * a deployment view per deployment environment, and (if there are dynamic steps) a dynamic view for each
+ * software system that has a container view.
+ *
+ * When the include fan-out is greater than zero, the software systems are split across that many files
+ * (model-N.dsl), with their relationships in separate files (relationships-N.dsl) that are included afterwards,
+ * since identifiers must be defined before they are used.
+ */
+final class WorkspaceGenerator {
+
+    private static final String[] TECHNOLOGIES = { "Java", "Kotlin", "Go", "Node.js", "Python", ".NET", "Ruby", "Rust" };
+    private static final String[] DATABASE_TECHNOLOGIES = { "PostgreSQL", "MySQL", "MongoDB", "Redis", "Cassandra" };
+    private static final String[] VERBS = { "Provides", "Manages", "Stores", "Processes", "Tracks", "Reports on", "Schedules", "Validates" };
+    private static final String[] NOUNS = { "orders", "customers", "payments", "invoices", "products", "shipments", "accounts", "events" };
+
+    private static final String MODEL_FILENAME = "model-%d.dsl";
+    private static final String RELATIONSHIPS_FILENAME = "relationships-%d.dsl";
+
+    private long seed = 1;
+    private int people = 10;
+    private int softwareSystems = 10;
+    private int containers = 3;
+    private int components = 3;
+    private int relationships = -1;
+    private int deploymentEnvironments = 1;
+    private int views = 10;
+    private int dynamicSteps = 0;
+    private int includes = 0;
+
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    void setPeople(int people) {
+        this.people = Math.max(0, people);
+    }
+
+    void setSoftwareSystems(int softwareSystems) {
+        this.softwareSystems = Math.max(1, softwareSystems);
+    }
+
+    void setContainers(int containers) {
+        this.containers = Math.max(0, containers);
+    }
+
+    void setComponents(int components) {
+        this.components = Math.max(0, components);
+    }
+
+    /**
+     * Sets the number of additional (random) relationships; by default, one per container.
+     */
+    void setRelationships(int relationships) {
+        this.relationships = relationships;
+    }
+
+    void setDeploymentEnvironments(int deploymentEnvironments) {
+        this.deploymentEnvironments = Math.max(0, deploymentEnvironments);
+    }
+
+    void setViews(int views) {
+        this.views = Math.max(0, views);
+    }
+
+    void setDynamicSteps(int dynamicSteps) {
+        this.dynamicSteps = Math.max(0, dynamicSteps);
+    }
+
+    void setIncludes(int includes) {
+        this.includes = Math.max(0, includes);
+    }
+
+    /**
+     * Returns the number of elements in the generated model.
+     */
+    long getNumberOfElements() {
+        long containersInTotal = (long)softwareSystems * containers;
+        long elements = people + softwareSystems + containersInTotal + (containersInTotal * components);
+
+        // a deployment node per software system, with a nested "Server" node and container instances
+        elements += (long)deploymentEnvironments * softwareSystems * (containers > 0 ? 2 + containers : 1);
+
+        return elements;
+    }
+
+    /**
+     * Writes the workspace to the given DSL file (and any included files to the same directory).
+     */
+    void write(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+
+        Random random = new Random(seed);
+        int randomRelationships = relationships < 0 ? softwareSystems * containers : relationships;
+        int files = Math.min(includes, softwareSystems);
+
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("workspace \"Synthetic workspace\" \"Generated with seed " + seed + "\" {\n\n");
+            writer.write("    model {\n");
+
+            for (int p = 1; p <= people; p++) {
+                writer.write("        p" + p + " = person \"Person " + p + "\" \"" + description(random) + "\"\n");
+            }
+
+            if (files == 0) {
+                writeSoftwareSystems(writer, random, 1, softwareSystems);
+                writePeopleRelationships(writer);
+                writeRelationships(writer, random, 1, softwareSystems, randomRelationships);
+            } else {
+                for (int f = 0; f < files; f++) {
+                    String filename = String.format(MODEL_FILENAME, f + 1);
+                    try (Writer includeWriter = Files.newBufferedWriter(new File(directory, filename).toPath(), StandardCharsets.UTF_8)) {
+                        writeSoftwareSystems(includeWriter, random, first(f, files), last(f, files));
+                    }
+                    writer.write("        !include " + filename + "\n");
+                }
+
+                writePeopleRelationships(writer);
+
+                for (int f = 0; f < files; f++) {
+                    String filename = String.format(RELATIONSHIPS_FILENAME, f + 1);
+                    int count = (int)((long)randomRelationships * last(f, files) / softwareSystems - (long)randomRelationships * (first(f, files) - 1) / softwareSystems);
+                    try (Writer includeWriter = Files.newBufferedWriter(new File(directory, filename).toPath(), StandardCharsets.UTF_8)) {
+                        writeRelationships(includeWriter, random, first(f, files), last(f, files), count);
+                    }
+                    writer.write("        !include " + filename + "\n");
+                }
+            }
+
+            writeDeploymentEnvironments(writer);
+
+            writer.write("    }\n\n");
+
+            writeViews(writer);
+
+            writer.write("}\n");
+        }
+    }
+
+    private void writeSoftwareSystems(Writer writer, Random random, int first, int last) throws IOException {
+        for (int s = first; s <= last; s++) {
+            writer.write("        s" + s + " = softwareSystem \"Software System " + s + "\" \"" + description(random) + "\" {\n");
+
+            for (int c = 1; c <= containers; c++) {
+                String container = "s" + s + "c" + c;
+                boolean database = c == containers && containers > 1;
+                String technology = database ? pick(random, DATABASE_TECHNOLOGIES) : pick(random, TECHNOLOGIES);
+
+                writer.write("            " + container + " = container \"Container " + c + "\" \"" + description(random) + "\" \"" + technology + "\"" + (database ? " \"Database\"" : "") + " {\n");
+                for (int k = 1; k <= components; k++) {
+                    writer.write("                " + container + "k" + k + " = component \"Component " + k + "\" \"" + description(random) + "\" \"" + technology + "\"\n");
+                }
+                writer.write("            }\n");
+            }
+
+            writer.write("        }\n");
+        }
+    }
+
+    private void writePeopleRelationships(Writer writer) throws IOException {
+        for (int p = 1; p <= people; p++) {
+            int s = ((p - 1) % softwareSystems) + 1;
+            writer.write("        p" + p + " -> " + (containers > 0 ? "s" + s + "c1" : "s" + s) + " \"Uses\"\n");
+        }
+    }
+
+    private void writeRelationships(Writer writer, Random random, int first, int last, int count) throws IOException {
+        // structural relationships: containers and components call the next one along
+        for (int s = first; s <= last; s++) {
+            for (int c = 1; c <= containers; c++) {
+                String container = "s" + s + "c" + c;
+                if (c < containers) {
+                    writer.write("        " + container + " -> s" + s + "c" + (c + 1) + " \"Calls\" \"HTTPS\"\n");
+                }
+                for (int k = 1; k < components; k++) {
+                    writer.write("        " + container + "k" + k + " -> " + container + "k" + (k + 1) + " \"Calls\"\n");
+                }
+            }
+        }
+
+        if (containers == 0) {
+            return;
+        }
+
+        // random relationships from the software systems in this range, to any software system
+        for (int r = 0; r < count; r++) {
+            int sourceSystem = first + random.nextInt(last - first + 1);
+            int sourceContainer = 1 + random.nextInt(containers);
+            int destinationSystem = 1 + random.nextInt(softwareSystems);
+            int destinationContainer = 1 + random.nextInt(containers);
+            if (sourceSystem == destinationSystem && sourceContainer == destinationContainer) {
+                destinationContainer = (destinationContainer % containers) + 1;
+                if (sourceContainer == destinationContainer) {
+                    // a single container, so there's nothing else to relate to in this software system
+                    continue;
+                }
+            }
+
+            String source = "s" + sourceSystem + "c" + sourceContainer;
+            String destination = "s" + destinationSystem + "c" + destinationContainer;
+            if (components > 0 && random.nextBoolean()) {
+                source += "k" + (1 + random.nextInt(components));
+                destination += "k" + (1 + random.nextInt(components));
+            }
+
+            // a unique description, since the same pair of elements can be chosen more than once
+            writer.write("        " + source + " -> " + destination + " \"" + pick(random, VERBS) + " " + pick(random, NOUNS) + " (" + (r + 1) + ")\" \"" + pick(random, TECHNOLOGIES) + "\"\n");
+        }
+    }
+
+    private void writeDeploymentEnvironments(Writer writer) throws IOException {
+        for (int e = 1; e <= deploymentEnvironments; e++) {
+            writer.write("        deploymentEnvironment \"Environment " + e + "\" {\n");
+            for (int s = 1; s <= softwareSystems; s++) {
+                writer.write("            deploymentNode \"Software System " + s + "\" {\n");
+                if (containers > 0) {
+                    writer.write("                deploymentNode \"Server\" {\n");
+                    for (int c = 1; c <= containers; c++) {
+                        writer.write("                    containerInstance s" + s + "c" + c + "\n");
+                    }
+                    writer.write("                }\n");
+                }
+                writer.write("            }\n");
+            }
+            writer.write("        }\n");
+        }
+    }
+
+    private void writeViews(Writer writer) throws IOException {
+        writer.write("    views {\n");
+
+        writer.write("        systemLandscape \"landscape\" {\n");
+        writer.write("            include *\n");
+        writer.write("            autoLayout\n");
+        writer.write("        }\n");
+
+        int softwareSystemsWithContainerViews = 0;
+        for (int v = 0; v < views; v++) {
+            int s = ((v / 3) % softwareSystems) + 1;
+            int type = v % 3;
+
+            if (type == 0) {
+                writer.write("        systemContext s" + s + " \"context-" + (v + 1) + "\" {\n");
+            } else if (type == 1 && containers > 0) {
+                writer.write("        container s" + s + " \"containers-" + (v + 1) + "\" {\n");
+                softwareSystemsWithContainerViews = Math.max(softwareSystemsWithContainerViews, s);
+            } else if (type == 2 && containers > 0 && components > 0) {
+                writer.write("        component s" + s + "c1 \"components-" + (v + 1) + "\" {\n");
+            } else {
+                continue;
+            }
+            writer.write("            include *\n");
+            writer.write("            autoLayout\n");
+            writer.write("        }\n");
+        }
+
+        if (dynamicSteps > 0 && containers > 1) {
+            for (int s = 1; s <= softwareSystemsWithContainerViews; s++) {
+                writer.write("        dynamic s" + s + " \"dynamic-" + s + "\" {\n");
+                for (int step = 0; step < dynamicSteps; step++) {
+                    int c = (step % (containers - 1)) + 1;
+                    writer.write("            s" + s + "c" + c + " -> s" + s + "c" + (c + 1) + " \"Step " + (step + 1) + "\"\n");
+                }
+                writer.write("            autoLayout\n");
+                writer.write("        }\n");
+            }
+        }
+
+        for (int e = 1; e <= deploymentEnvironments; e++) {
+            writer.write("        deployment * \"Environment " + e + "\" \"deployment-" + e + "\" {\n");
+            writer.write("            include *\n");
+            writer.write("            autoLayout\n");
+            writer.write("        }\n");
+        }
+
+        writer.write("        styles {\n");
+        writer.write("            element \"Person\" {\n");
+        writer.write("                shape person\n");
+        writer.write("            }\n");
+        writer.write("            element \"Database\" {\n");
+        writer.write("                shape cylinder\n");
+        writer.write("            }\n");
+        writer.write("        }\n");
+
+        writer.write("    }\n\n");
+    }
+
+    /**
+     * Returns the first software system in the given file (1-based, inclusive).
+     */
+    private int first(int file, int files) {
+        return (int)((long)softwareSystems * file / files) + 1;
+    }
+
+    /**
+     * Returns the last software system in the given file (1-based, inclusive).
+     */
+    private int last(int file, int files) {
+        return (int)((long)softwareSystems * (file + 1) / files);
+    }
+
+    private static String description(Random random) {
+        return pick(random, VERBS) + " " + pick(random, NOUNS);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+}
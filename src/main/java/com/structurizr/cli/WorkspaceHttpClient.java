@@ -0,0 +1,546 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.structurizr.Workspace;
+import com.structurizr.encryption.EncryptedWorkspace;
+import com.structurizr.encryption.EncryptionStrategy;
+import com.structurizr.io.json.EncryptedJsonReader;
+import com.structurizr.io.json.JsonReader;
+import com.structurizr.util.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.client5.http.classic.methods.HttpDelete;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.FileEntity;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A minimal client for the Structurizr workspace API, for the cases that WorkspaceApiClient doesn't support
+ * (conditional requests, access to response headers and status codes, etc). Requests are signed using the same
+ * HMAC scheme as WorkspaceApiClient.
+ */
+class WorkspaceHttpClient implements Closeable {
+
+    static final int HTTP_OK_STATUS = 200;
+    static final int HTTP_NOT_MODIFIED_STATUS = 304;
+
+    private static final String USER_AGENT_HEADER = "User-Agent";
+    private static final String AUTHORIZATION_HEADER = "X-Authorization";
+    private static final String NONCE_HEADER = "Nonce";
+    private static final String CONTENT_MD5_HEADER = "Content-MD5";
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String MD5_ALGORITHM = "MD5";
+
+    private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+
+    private static final Log log = LogFactory.getLog(WorkspaceHttpClient.class);
+
+    private static final AtomicLong lastNonce = new AtomicLong();
+
+    private final String url;
+    private final String apiKey;
+    private final String apiSecret;
+    private String branch;
+    private String agent;
+    private EncryptionStrategy encryptionStrategy;
+    private boolean mergeFromRemote = true;
+    private boolean compressPayload = false;
+    private WorkspaceArchive workspaceArchive;
+    private Semaphore requestPermits;
+
+    private final CloseableHttpClient httpClient;
+
+    WorkspaceHttpClient(String url, String apiKey, String apiSecret) {
+        if (StringUtils.isNullOrEmpty(apiKey)) {
+            throw new IllegalArgumentException("The API key must not be null or empty.");
+        }
+
+        if (StringUtils.isNullOrEmpty(apiSecret)) {
+            throw new IllegalArgumentException("The API secret must not be null or empty.");
+        }
+
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+        this.httpClient = HttpClients.createSystem();
+    }
+
+    void setBranch(String branch) {
+        this.branch = branch;
+    }
+
+    void setAgent(String agent) {
+        this.agent = agent;
+    }
+
+    void setEncryptionStrategy(EncryptionStrategy encryptionStrategy) {
+        this.encryptionStrategy = encryptionStrategy;
+    }
+
+    void setMergeFromRemote(boolean mergeFromRemote) {
+        this.mergeFromRemote = mergeFromRemote;
+    }
+
+    /**
+     * Sets whether workspaces should be uploaded with gzip content encoding (the server must support this).
+     */
+    void setCompressPayload(boolean compressPayload) {
+        this.compressPayload = compressPayload;
+    }
+
+    WorkspaceArchive getWorkspaceArchive() {
+        return workspaceArchive;
+    }
+
+    /**
+     * Sets the archive in which the remote workspace is stored when it's fetched (e.g. before a push).
+     */
+    void setWorkspaceArchive(WorkspaceArchive workspaceArchive) {
+        this.workspaceArchive = workspaceArchive;
+    }
+
+    /**
+     * Sets the permits that are acquired for the duration of each request (e.g. to limit the number of concurrent
+     * requests to a host, across clients).
+     */
+    void setRequestPermits(Semaphore requestPermits) {
+        this.requestPermits = requestPermits;
+    }
+
+    String getWorkspaceUrl(long workspaceId) {
+        if (StringUtils.isNullOrEmpty(branch)) {
+            return url + "/workspace/" + workspaceId;
+        } else {
+            return url + "/workspace/" + workspaceId + "/branch/" + branch;
+        }
+    }
+
+    /**
+     * Gets the workspace JSON, sending If-None-Match/If-Modified-Since headers when an ETag/Last-Modified
+     * value is provided. A response with a 304 status code means the workspace has not changed. The JSON of a
+     * successful response is stored in the workspace archive, if one has been set.
+     */
+    Response getWorkspace(long workspaceId, String etag, String lastModified) throws Exception {
+        HttpGet httpGet = createGetWorkspaceRequest(workspaceId, etag, lastModified);
+
+        Response response = send(httpGet, r -> {
+            String body = "";
+            if (r.getEntity() != null) {
+                body = EntityUtils.toString(r.getEntity(), StandardCharsets.UTF_8);
+            }
+
+            return new Response(r.getCode(), body, headerValue(r.getFirstHeader(ETAG_HEADER)), headerValue(r.getFirstHeader(LAST_MODIFIED_HEADER)));
+        });
+
+        if (response.getStatus() == HTTP_OK_STATUS && workspaceArchive != null) {
+            archiveWorkspace(workspaceId, response.getBody());
+        }
+
+        return response;
+    }
+
+    /**
+     * Gets the workspace JSON in the same way as getWorkspace(long, String, String), but a successful response body is
+     * streamed straight to the given file through a fixed size buffer, rather than being read into memory; the body of
+     * the returned response is only populated for unsuccessful responses.
+     */
+    Response getWorkspace(long workspaceId, String etag, String lastModified, Path file) throws Exception {
+        HttpGet httpGet = createGetWorkspaceRequest(workspaceId, etag, lastModified);
+
+        return send(httpGet, response -> {
+            String body = "";
+            if (response.getEntity() != null) {
+                if (response.getCode() == HTTP_OK_STATUS) {
+                    try (ReadableByteChannel in = Channels.newChannel(response.getEntity().getContent());
+                         FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                        ByteBuffer buffer = ByteBuffer.allocate(DOWNLOAD_BUFFER_SIZE);
+                        while (in.read(buffer) != -1) {
+                            buffer.flip();
+                            while (buffer.hasRemaining()) {
+                                out.write(buffer);
+                            }
+                            buffer.clear();
+                        }
+                    }
+                } else {
+                    body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+                }
+            }
+
+            return new Response(response.getCode(), body, headerValue(response.getFirstHeader(ETAG_HEADER)), headerValue(response.getFirstHeader(LAST_MODIFIED_HEADER)));
+        });
+    }
+
+    private HttpGet createGetWorkspaceRequest(long workspaceId, String etag, String lastModified) throws Exception {
+        checkWorkspaceId(workspaceId);
+
+        HttpGet httpGet = new HttpGet(getWorkspaceUrl(workspaceId));
+        addHeaders(httpGet, md5(""), "");
+
+        if (!StringUtils.isNullOrEmpty(etag)) {
+            httpGet.addHeader(IF_NONE_MATCH_HEADER, etag);
+        }
+        if (!StringUtils.isNullOrEmpty(lastModified)) {
+            httpGet.addHeader(IF_MODIFIED_SINCE_HEADER, lastModified);
+        }
+
+        return httpGet;
+    }
+
+    /**
+     * Gets and deserialises the workspace, decrypting it if an encryption strategy has been set.
+     */
+    Workspace getWorkspace(long workspaceId) throws Exception {
+        Response response = getWorkspace(workspaceId, null, null);
+        if (response.getStatus() != HTTP_OK_STATUS) {
+            throw new WorkspaceApiException(response.getStatus(), response.getErrorMessage());
+        }
+
+        return fromJson(response.getBody());
+    }
+
+    Workspace fromJson(String json) throws Exception {
+        boolean encrypted = json.contains("\"encryptionStrategy\"") && json.contains("\"ciphertext\"");
+
+        return fromJson(new StringReader(json), encrypted);
+    }
+
+    /**
+     * Deserialises (and decrypts, if an encryption strategy has been set) the workspace JSON in the given file,
+     * without reading the whole file into memory first.
+     */
+    Workspace fromJson(Path file) throws Exception {
+        boolean encrypted = false;
+        if (encryptionStrategy == null) {
+            // client-side encrypted workspaces have a top-level "ciphertext" field
+            try (JsonParser parser = new ObjectMapper().getFactory().createParser(file.toFile())) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        if ("ciphertext".equals(parser.getCurrentName())) {
+                            encrypted = true;
+                            break;
+                        }
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return fromJson(reader, encrypted);
+        }
+    }
+
+    private Workspace fromJson(Reader reader, boolean encrypted) throws Exception {
+        if (encryptionStrategy == null) {
+            if (encrypted) {
+                // as WorkspaceApiClient does
+                log.warn("The JSON may contain a client-side encrypted workspace, but no passphrase has been specified.");
+            }
+
+            return new JsonReader().read(reader);
+        } else {
+            EncryptedWorkspace encryptedWorkspace = new EncryptedJsonReader().read(reader);
+            if (encryptedWorkspace.getEncryptionStrategy() != null) {
+                encryptedWorkspace.getEncryptionStrategy().setPassphrase(encryptionStrategy.getPassphrase());
+            }
+
+            return encryptedWorkspace.getWorkspace();
+        }
+    }
+
+    /**
+     * Puts the workspace, in the same way as WorkspaceApiClient (merging layout information from the remote
+     * workspace if required, and stamping the last modified details), returning the number of bytes uploaded.
+     * The request body is streamed from a spooled, optionally gzipped, copy of the workspace JSON.
+     */
+    long putWorkspace(long workspaceId, Workspace workspace) throws Exception {
+        if (workspace == null) {
+            throw new IllegalArgumentException("The workspace must not be null.");
+        }
+        checkWorkspaceId(workspaceId);
+
+        Workspace remoteWorkspace = null;
+        if (mergeFromRemote) {
+            remoteWorkspace = getWorkspace(workspaceId);
+        }
+
+        return putWorkspace(workspaceId, workspace, remoteWorkspace);
+    }
+
+    /**
+     * Puts the workspace, merging layout information from the given (previously fetched) remote workspace, if any.
+     */
+    long putWorkspace(long workspaceId, Workspace workspace, Workspace remoteWorkspace) throws Exception {
+        if (workspace == null) {
+            throw new IllegalArgumentException("The workspace must not be null.");
+        }
+        checkWorkspaceId(workspaceId);
+
+        if (remoteWorkspace != null) {
+            workspace.getViews().copyLayoutInformationFrom(remoteWorkspace.getViews());
+            workspace.getViews().getConfiguration().copyConfigurationFrom(remoteWorkspace.getViews().getConfiguration());
+        }
+
+        stampLastModified(workspaceId, workspace);
+
+        try (WorkspacePayload payload = WorkspacePayload.write(workspace, encryptionStrategy, compressPayload)) {
+            HttpPut httpPut = new HttpPut(getWorkspaceUrl(workspaceId));
+            httpPut.setEntity(new FileEntity(payload.getFile(), ContentType.APPLICATION_JSON, payload.isCompressed() ? WorkspacePayload.GZIP_CONTENT_ENCODING : null));
+            addHeaders(httpPut, payload.getContentMd5(), ContentType.APPLICATION_JSON.toString());
+
+            log.debug("Uploading " + payload.getLength() + " bytes (" + payload.getContentLength() + " bytes uncompressed)");
+            execute(httpPut);
+
+            return payload.getLength();
+        }
+    }
+
+    void stampLastModified(long workspaceId, Workspace workspace) {
+        workspace.setId(workspaceId);
+        workspace.setThumbnail(null);
+        workspace.setLastModifiedDate(new Date());
+        workspace.setLastModifiedAgent(agent);
+        workspace.setLastModifiedUser(getUser());
+    }
+
+    /**
+     * Executes a request that is expected to return a 200 status code, throwing a WorkspaceApiException otherwise.
+     */
+    Response execute(HttpUriRequestBase request) throws Exception {
+        Response response = send(request, r -> {
+            String body = "";
+            if (r.getEntity() != null) {
+                body = EntityUtils.toString(r.getEntity(), StandardCharsets.UTF_8);
+            }
+
+            return new Response(r.getCode(), body, null, null);
+        });
+
+        if (response.getStatus() != HTTP_OK_STATUS) {
+            throw new WorkspaceApiException(response.getStatus(), response.getErrorMessage());
+        }
+
+        return response;
+    }
+
+    private <T> T send(ClassicHttpRequest request, HttpClientResponseHandler<T> responseHandler) throws Exception {
+        if (requestPermits == null) {
+            return httpClient.execute(request, responseHandler);
+        }
+
+        requestPermits.acquire();
+        try {
+            return httpClient.execute(request, responseHandler);
+        } finally {
+            requestPermits.release();
+        }
+    }
+
+    /**
+     * Locks the workspace, returning true if the lock was acquired.
+     */
+    boolean lockWorkspace(long workspaceId) throws Exception {
+        checkWorkspaceId(workspaceId);
+
+        HttpPut httpPut = new HttpPut(getLockUrl(workspaceId));
+        addHeaders(httpPut, md5(""), "");
+
+        return execute(httpPut).isSuccess();
+    }
+
+    /**
+     * Unlocks the workspace, returning true if the lock was released.
+     */
+    boolean unlockWorkspace(long workspaceId) throws Exception {
+        checkWorkspaceId(workspaceId);
+
+        HttpDelete httpDelete = new HttpDelete(getLockUrl(workspaceId));
+        addHeaders(httpDelete, md5(""), "");
+
+        return execute(httpDelete).isSuccess();
+    }
+
+    private String getLockUrl(long workspaceId) {
+        return url + "/workspace/" + workspaceId + "/lock?user=" + getUser() + "&agent=" + agent;
+    }
+
+    private void archiveWorkspace(long workspaceId, String json) {
+        try {
+            String hash = workspaceArchive.add(StateFile.workspaceKey(url, workspaceId, branch), json);
+            log.debug("Workspace from server archived as " + hash + " in " + workspaceArchive.getDirectory().getCanonicalPath());
+        } catch (Exception e) {
+            log.warn("Could not archive JSON to " + workspaceArchive.getDirectory().getAbsolutePath());
+        }
+    }
+
+    private String getUser() {
+        String username = System.getProperty("user.name");
+
+        try {
+            return username + "@" + InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return username;
+        }
+    }
+
+    private void checkWorkspaceId(long workspaceId) {
+        if (workspaceId <= 0) {
+            throw new IllegalArgumentException("The workspace ID must be a positive integer.");
+        }
+    }
+
+    private static String headerValue(Header header) {
+        return header != null ? header.getValue() : null;
+    }
+
+    void addHeaders(HttpUriRequestBase request, String contentMd5, String contentType) throws Exception {
+        String nonce = "" + nextNonce();
+        String content = request.getMethod() + "\n" + request.getPath() + "\n" + contentMd5 + "\n" + contentType + "\n" + nonce + "\n";
+
+        if (HttpPut.METHOD_NAME.equals(request.getMethod())) {
+            request.addHeader(CONTENT_MD5_HEADER, Base64.getEncoder().encodeToString(contentMd5.getBytes(StandardCharsets.UTF_8)));
+            request.addHeader(CONTENT_TYPE_HEADER, contentType);
+        }
+
+        if (agent != null) {
+            request.addHeader(USER_AGENT_HEADER, agent);
+        }
+        request.addHeader(AUTHORIZATION_HEADER, apiKey + ":" + Base64.getEncoder().encodeToString(hmac(content).getBytes(StandardCharsets.UTF_8)));
+        request.addHeader(NONCE_HEADER, nonce);
+    }
+
+    /**
+     * Returns the hex-encoded MD5 digest of the given content, as used in the HMAC signature.
+     */
+    static String md5(String content) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance(MD5_ALGORITHM);
+        return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String hmac(String content) throws Exception {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(apiSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+
+        return HexFormat.of().formatHex(mac.doFinal(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * The API rejects nonces that it has already seen, so make sure they are unique even when
+     * several requests are made within the same millisecond.
+     */
+    private static long nextNonce() {
+        return lastNonce.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    static final class Response {
+
+        private final int status;
+        private final String body;
+        private final String etag;
+        private final String lastModified;
+
+        Response(int status, String body, String etag, String lastModified) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        boolean isNotModified() {
+            return status == HTTP_NOT_MODIFIED_STATUS;
+        }
+
+        String getBody() {
+            return body;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Whether the body is an API response with "success": true.
+         */
+        boolean isSuccess() {
+            try {
+                JsonNode json = new ObjectMapper().readTree(body);
+                return json != null && json.path("success").asBoolean(false);
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        /**
+         * Extracts the message from an API error response, falling back to the status code.
+         */
+        String getErrorMessage() {
+            try {
+                JsonNode json = new ObjectMapper().readTree(body);
+                if (json != null && json.hasNonNull("message")) {
+                    return json.get("message").asText();
+                }
+            } catch (Exception e) {
+                // the response body isn't JSON
+            }
+
+            return "Unexpected response from the Structurizr API";
+        }
+
+    }
+
+}
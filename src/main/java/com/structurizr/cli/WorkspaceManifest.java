@@ -0,0 +1,71 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.structurizr.util.StringUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a manifest of workspaces to push/pull; this is a JSON array of objects, each with the following properties:
+ * url (optional), id, key, secret, branch (optional), passphrase (optional) and workspace (push) or output (pull).
+ * Relative paths are resolved against the directory containing the manifest.
+ */
+final class WorkspaceManifest {
+
+    static final String WORKSPACE_PATH_PROPERTY = "workspace";
+    static final String OUTPUT_PATH_PROPERTY = "output";
+
+    private WorkspaceManifest() {
+    }
+
+    static List<RemoteWorkspace> load(File file, String pathProperty) throws Exception {
+        if (!file.exists()) {
+            throw new StructurizrCliException(file.getAbsolutePath() + " does not exist");
+        }
+
+        JsonNode json = new ObjectMapper().readTree(file);
+        if (json == null || !json.isArray()) {
+            throw new StructurizrCliException(file.getAbsolutePath() + " should contain a JSON array of workspaces");
+        }
+
+        File baseDirectory = file.getAbsoluteFile().getParentFile();
+        List<RemoteWorkspace> workspaces = new ArrayList<>();
+        int index = 0;
+        for (JsonNode entry : json) {
+            index++;
+            long workspaceId = entry.path("id").asLong(0);
+            String apiKey = text(entry, "key");
+            String apiSecret = text(entry, "secret");
+
+            if (workspaceId <= 0 || StringUtils.isNullOrEmpty(apiKey) || StringUtils.isNullOrEmpty(apiSecret)) {
+                throw new StructurizrCliException("Entry " + index + " in " + file.getName() + " must specify an id, key and secret");
+            }
+
+            String path = text(entry, pathProperty);
+            if (!StringUtils.isNullOrEmpty(path) && !new File(path).isAbsolute()) {
+                path = new File(baseDirectory, path).getPath();
+            }
+
+            workspaces.add(new RemoteWorkspace(
+                    text(entry, "url"),
+                    workspaceId,
+                    apiKey,
+                    apiSecret,
+                    text(entry, "branch"),
+                    text(entry, "passphrase"),
+                    path
+            ));
+        }
+
+        return workspaces;
+    }
+
+    private static String text(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+}
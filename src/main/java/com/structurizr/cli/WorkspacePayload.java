@@ -0,0 +1,228 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.encryption.AesEncryptionStrategy;
+import com.structurizr.encryption.EncryptedWorkspace;
+import com.structurizr.encryption.EncryptionLocation;
+import com.structurizr.encryption.EncryptionStrategy;
+import com.structurizr.io.json.EncryptedJsonWriter;
+import com.structurizr.io.json.JsonWriter;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The body of a workspace PUT request, spooled to a temporary file.
+ *
+ * The workspace is serialised, encrypted (if required) and gzipped (if required) in a single pass, so that neither
+ * the workspace JSON nor the ciphertext is ever held in memory as a whole. The body has to be spooled rather than
+ * streamed directly to the server, because the HMAC signature includes the MD5 digest of the content.
+ * The digest is calculated over the JSON document (i.e. before any gzip content encoding is applied),
+ * which is what the server sees after decoding the request.
+ */
+final class WorkspacePayload implements Closeable {
+
+    static final String GZIP_CONTENT_ENCODING = "gzip";
+
+    private static final String CIPHERTEXT_PLACEHOLDER = "@@ciphertext@@";
+    private static final String CIPHER_SPECIFICATION = "AES/CBC/PKCS5PADDING";
+    private static final String KEY_DERIVATION_ALGORITHM = "PBKDF2WithHmacSHA1";
+    private static final String MD5_ALGORITHM = "MD5";
+
+    private final File file;
+    private final boolean compressed;
+    private final String contentMd5;
+    private final long contentLength;
+
+    private WorkspacePayload(File file, boolean compressed, String contentMd5, long contentLength) {
+        this.file = file;
+        this.compressed = compressed;
+        this.contentMd5 = contentMd5;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Writes the given workspace as a request body, optionally encrypting it (when an encryption strategy is specified)
+     * and compressing it with gzip.
+     */
+    static WorkspacePayload write(Workspace workspace, EncryptionStrategy encryptionStrategy, boolean compress) throws Exception {
+        File file = File.createTempFile("structurizr-", compress ? ".json.gz" : ".json");
+        file.deleteOnExit();
+
+        MessageDigest digest = MessageDigest.getInstance(MD5_ALGORITHM);
+        CountingOutputStream content;
+
+        try {
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+            if (compress) {
+                out = new GZIPOutputStream(out);
+            }
+
+            content = new CountingOutputStream(new DigestOutputStream(out, digest));
+            try (content) {
+                if (encryptionStrategy == null) {
+                    writeJson(workspace, content);
+                } else if (encryptionStrategy instanceof AesEncryptionStrategy) {
+                    writeEncryptedJson(workspace, (AesEncryptionStrategy)encryptionStrategy, content);
+                } else {
+                    // other encryption strategies only support encrypting a String
+                    Writer writer = new OutputStreamWriter(new NonClosingOutputStream(content), StandardCharsets.UTF_8);
+                    EncryptedWorkspace encryptedWorkspace = new EncryptedWorkspace(workspace, encryptionStrategy);
+                    encryptionStrategy.setLocation(EncryptionLocation.Client);
+                    new EncryptedJsonWriter(false).write(encryptedWorkspace, writer);
+                    writer.flush();
+                }
+            }
+        } catch (Exception e) {
+            file.delete();
+            throw e;
+        }
+
+        return new WorkspacePayload(file, compress, HexFormat.of().formatHex(digest.digest()), content.getCount());
+    }
+
+    private static void writeJson(Workspace workspace, OutputStream out) throws Exception {
+        Writer writer = new OutputStreamWriter(new NonClosingOutputStream(out), StandardCharsets.UTF_8);
+        new JsonWriter(false).write(workspace, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the same JSON as EncryptedJsonWriter, but with the ciphertext streamed from the plaintext
+     * (using the same cipher and key derivation as AesEncryptionStrategy).
+     */
+    private static void writeEncryptedJson(Workspace workspace, AesEncryptionStrategy encryptionStrategy, OutputStream out) throws Exception {
+        // the envelope (workspace metadata and encryption parameters) is small, so let the library serialise it
+        EncryptedWorkspace envelope = new EncryptedWorkspace(workspace, "", encryptionStrategy);
+        envelope.setCiphertext(CIPHERTEXT_PLACEHOLDER);
+        encryptionStrategy.setLocation(EncryptionLocation.Client);
+
+        StringWriter stringWriter = new StringWriter();
+        new EncryptedJsonWriter(false).write(envelope, stringWriter);
+        String json = stringWriter.toString();
+        int placeholder = json.indexOf(CIPHERTEXT_PLACEHOLDER);
+
+        out.write(json.substring(0, placeholder).getBytes(StandardCharsets.UTF_8));
+
+        Cipher cipher = Cipher.getInstance(CIPHER_SPECIFICATION);
+        cipher.init(Cipher.ENCRYPT_MODE, createSecretKey(encryptionStrategy), new IvParameterSpec(HexFormat.of().parseHex(encryptionStrategy.getIv())));
+
+        // Base64 only uses characters that don't need escaping in a JSON string
+        OutputStream ciphertext = new CipherOutputStream(Base64.getEncoder().wrap(new NonClosingOutputStream(out)), cipher);
+        try (ciphertext) {
+            writeJson(workspace, ciphertext);
+        }
+
+        out.write(json.substring(placeholder + CIPHERTEXT_PLACEHOLDER.length()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SecretKeySpec createSecretKey(AesEncryptionStrategy encryptionStrategy) throws Exception {
+        SecretKeyFactory factory = SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM);
+        PBEKeySpec spec = new PBEKeySpec(
+                encryptionStrategy.getPassphrase().toCharArray(),
+                HexFormat.of().parseHex(encryptionStrategy.getSalt()),
+                encryptionStrategy.getIterationCount(),
+                encryptionStrategy.getKeySize());
+
+        return new SecretKeySpec(factory.generateSecret(spec).getEncoded(), "AES");
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * The hex-encoded MD5 digest of the (uncompressed) content.
+     */
+    String getContentMd5() {
+        return contentMd5;
+    }
+
+    /**
+     * The size of the uncompressed content, in bytes.
+     */
+    long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * The size of the request body, in bytes.
+     */
+    long getLength() {
+        return file.length();
+    }
+
+    @Override
+    public void close() {
+        file.delete();
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+    }
+
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,301 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Documentable;
+import com.structurizr.documentation.Documentation;
+import com.structurizr.documentation.Image;
+import com.structurizr.documentation.Section;
+import com.structurizr.model.Element;
+import com.structurizr.model.ModelItem;
+import com.structurizr.model.Perspective;
+import com.structurizr.model.Relationship;
+import com.structurizr.view.DynamicView;
+import com.structurizr.view.ModelView;
+import com.structurizr.view.RelationshipView;
+import com.structurizr.view.View;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Size statistics for a workspace, gathered with a single pass over its elements, relationships and views:
+ * counts by type, the largest views, dynamic view frame counts, documentation size, an estimate of the heap
+ * retained by the loaded workspace, and an estimate of the cost of exporting each view.
+ *
+ * Both estimates are deliberately simple and are only useful for comparing workspaces and views with each other.
+ */
+public final class WorkspaceStatistics {
+
+    // approximate shallow sizes (in bytes) of the objects that make up a loaded workspace
+    private static final long ELEMENT_BYTES = 300;
+    private static final long RELATIONSHIP_BYTES = 250;
+    private static final long PROPERTY_BYTES = 80;
+    private static final long PERSPECTIVE_BYTES = 64;
+    private static final long VIEW_BYTES = 500;
+    private static final long ELEMENT_VIEW_BYTES = 48;
+    private static final long RELATIONSHIP_VIEW_BYTES = 72;
+    private static final long VERTEX_BYTES = 32;
+    private static final long STRING_BYTES = 40;
+
+    private final Map<String,Integer> elementsByType = new TreeMap<>();
+    private final Map<String,Integer> relationshipsByType = new TreeMap<>();
+    private final Map<String,Integer> viewsByType = new TreeMap<>();
+    private final List<ViewStatistics> views = new ArrayList<>();
+    private long documentationBytes;
+    private long estimatedHeapBytes;
+
+    private WorkspaceStatistics() {
+    }
+
+    /**
+     * Gathers the statistics for the given workspace.
+     */
+    public static WorkspaceStatistics of(Workspace workspace) {
+        WorkspaceStatistics statistics = new WorkspaceStatistics();
+        statistics.documentationBytes += documentationBytes(workspace.getDocumentation());
+
+        for (Element element : workspace.getModel().getElements()) {
+            statistics.elementsByType.merge(element.getClass().getSimpleName(), 1, Integer::sum);
+            statistics.estimatedHeapBytes += ELEMENT_BYTES + modelItemBytes(element) + stringBytes(element.getName()) + stringBytes(element.getDescription());
+
+            if (element instanceof Documentable) {
+                statistics.documentationBytes += documentationBytes(((Documentable)element).getDocumentation());
+            }
+        }
+
+        for (Relationship relationship : workspace.getModel().getRelationships()) {
+            statistics.relationshipsByType.merge(relationship.getSource().getClass().getSimpleName() + " -> " + relationship.getDestination().getClass().getSimpleName(), 1, Integer::sum);
+            statistics.estimatedHeapBytes += RELATIONSHIP_BYTES + modelItemBytes(relationship) + stringBytes(relationship.getDescription()) + stringBytes(relationship.getTechnology());
+        }
+
+        for (View view : workspace.getViews().getViews()) {
+            ViewStatistics viewStatistics = ViewStatistics.of(view);
+            statistics.viewsByType.merge(viewStatistics.type, 1, Integer::sum);
+            statistics.views.add(viewStatistics);
+            statistics.estimatedHeapBytes += VIEW_BYTES + stringBytes(view.getKey()) + stringBytes(view.getTitle()) + stringBytes(view.getDescription());
+
+            if (view instanceof ModelView) {
+                statistics.estimatedHeapBytes += viewStatistics.elements * ELEMENT_VIEW_BYTES;
+                for (RelationshipView relationshipView : ((ModelView)view).getRelationships()) {
+                    statistics.estimatedHeapBytes += RELATIONSHIP_VIEW_BYTES + relationshipView.getVertices().size() * VERTEX_BYTES + stringBytes(relationshipView.getDescription()) + stringBytes(relationshipView.getOrder());
+                }
+            }
+        }
+
+        statistics.estimatedHeapBytes += statistics.documentationBytes;
+
+        return statistics;
+    }
+
+    private static long modelItemBytes(ModelItem modelItem) {
+        long bytes = stringBytes(modelItem.getId()) + stringBytes(modelItem.getTags()) + stringBytes(modelItem.getUrl());
+
+        for (Map.Entry<String,String> property : modelItem.getProperties().entrySet()) {
+            bytes += PROPERTY_BYTES + stringBytes(property.getKey()) + stringBytes(property.getValue());
+        }
+
+        for (Perspective perspective : modelItem.getPerspectives()) {
+            bytes += PERSPECTIVE_BYTES + stringBytes(perspective.getName()) + stringBytes(perspective.getDescription()) + stringBytes(perspective.getValue());
+        }
+
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        // strings are stored with one byte per character, unless they contain non-Latin-1 characters
+        return s == null ? 0 : STRING_BYTES + s.length();
+    }
+
+    private static long documentationBytes(Documentation documentation) {
+        long bytes = 0;
+
+        for (Section section : documentation.getSections()) {
+            bytes += length(section.getContent());
+        }
+
+        for (Decision decision : documentation.getDecisions()) {
+            bytes += length(decision.getContent());
+        }
+
+        for (Image image : documentation.getImages()) {
+            bytes += length(image.getContent());
+        }
+
+        return bytes;
+    }
+
+    private static long length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    /**
+     * Estimates the relative cost of exporting the given view, based upon the number of elements and relationships
+     * it includes; relationships count double, because each has a label and a route to be rendered.
+     * Views that aren't based upon the model (e.g. image views) have a nominal cost of 1.
+     */
+    public static long estimateExportCost(View view) {
+        if (view instanceof ModelView) {
+            ModelView modelView = (ModelView)view;
+
+            return 1 + modelView.getElements().size() + 2L * modelView.getRelationships().size();
+        }
+
+        return 1;
+    }
+
+    Map<String,Integer> getElementsByType() {
+        return elementsByType;
+    }
+
+    Map<String,Integer> getRelationshipsByType() {
+        return relationshipsByType;
+    }
+
+    Map<String,Integer> getViewsByType() {
+        return viewsByType;
+    }
+
+    long getDocumentationBytes() {
+        return documentationBytes;
+    }
+
+    long getEstimatedHeapBytes() {
+        return estimatedHeapBytes;
+    }
+
+    /**
+     * Returns the views, most expensive to export first.
+     */
+    List<ViewStatistics> getViews() {
+        List<ViewStatistics> views = new ArrayList<>(this.views);
+        views.sort(Comparator.comparingLong((ViewStatistics v) -> v.exportCost).reversed().thenComparing(v -> v.key));
+
+        return views;
+    }
+
+    /**
+     * Returns the (up to) given number of views with the most elements, or relationships, in descending order.
+     */
+    List<ViewStatistics> getLargestViews(int number, boolean byRelationships) {
+        List<ViewStatistics> views = new ArrayList<>(this.views);
+        views.sort(Comparator.comparingInt((ViewStatistics v) -> byRelationships ? v.relationships : v.elements).reversed().thenComparing(v -> v.key));
+
+        return views.subList(0, Math.max(0, Math.min(number, views.size())));
+    }
+
+    void writeText(int numberOfViews, Consumer<String> output) {
+        writeCounts("Elements", elementsByType, output);
+        writeCounts("Relationships", relationshipsByType, output);
+        writeCounts("Views", viewsByType, output);
+
+        output.accept(String.format("Largest views by elements (top %d)", numberOfViews));
+        getLargestViews(numberOfViews, false).forEach(view -> output.accept(String.format(" - %s: %d", view.key, view.elements)));
+        output.accept(String.format("Largest views by relationships (top %d)", numberOfViews));
+        getLargestViews(numberOfViews, true).forEach(view -> output.accept(String.format(" - %s: %d", view.key, view.relationships)));
+
+        output.accept("Dynamic views");
+        views.stream().filter(view -> view.frames != null).forEach(view -> output.accept(String.format(" - %s: %d frame(s)", view.key, view.frames)));
+
+        output.accept(String.format("Documentation: %d byte(s)", documentationBytes));
+        output.accept(String.format("Estimated heap: %d byte(s)", estimatedHeapBytes));
+
+        output.accept("Estimated export cost");
+        getViews().forEach(view -> output.accept(String.format(" - %s: %d", view.key, view.exportCost)));
+    }
+
+    private static void writeCounts(String name, Map<String,Integer> counts, Consumer<String> output) {
+        output.accept(String.format("%s: %d", name, counts.values().stream().mapToInt(Integer::intValue).sum()));
+        counts.forEach((type, count) -> output.accept(String.format(" - %s: %d", type, count)));
+    }
+
+    ObjectNode toJson(ObjectMapper objectMapper, int numberOfViews) {
+        ObjectNode json = objectMapper.createObjectNode();
+        elementsByType.forEach(json.putObject("elements")::put);
+        relationshipsByType.forEach(json.putObject("relationships")::put);
+        viewsByType.forEach(json.putObject("views")::put);
+
+        ObjectNode largestViews = json.putObject("largestViews");
+        ArrayNode byElements = largestViews.putArray("byElements");
+        getLargestViews(numberOfViews, false).forEach(view -> byElements.addObject().put("key", view.key).put("elements", view.elements));
+        ArrayNode byRelationships = largestViews.putArray("byRelationships");
+        getLargestViews(numberOfViews, true).forEach(view -> byRelationships.addObject().put("key", view.key).put("relationships", view.relationships));
+
+        ObjectNode frames = json.putObject("dynamicViewFrames");
+        views.stream().filter(view -> view.frames != null).forEach(view -> frames.put(view.key, view.frames));
+
+        json.put("documentationBytes", documentationBytes);
+        json.put("estimatedHeapBytes", estimatedHeapBytes);
+
+        ObjectNode exportCost = json.putObject("exportCost");
+        getViews().forEach(view -> exportCost.put(view.key, view.exportCost));
+
+        return json;
+    }
+
+    static final class ViewStatistics {
+
+        private final String key;
+        private final String type;
+        private final int elements;
+        private final int relationships;
+        private final Integer frames;
+        private final long exportCost;
+
+        private ViewStatistics(String key, String type, int elements, int relationships, Integer frames, long exportCost) {
+            this.key = key;
+            this.type = type;
+            this.elements = elements;
+            this.relationships = relationships;
+            this.frames = frames;
+            this.exportCost = exportCost;
+        }
+
+        private static ViewStatistics of(View view) {
+            int elements = 0;
+            int relationships = 0;
+            Integer frames = null;
+
+            if (view instanceof ModelView) {
+                elements = ((ModelView)view).getElements().size();
+                relationships = ((ModelView)view).getRelationships().size();
+
+                if (view instanceof DynamicView) {
+                    // each interaction in a dynamic view is a frame when the view is animated
+                    frames = relationships;
+                }
+            }
+
+            return new ViewStatistics(view.getKey(), view.getClass().getSimpleName(), elements, relationships, frames, estimateExportCost(view));
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        int getElements() {
+            return elements;
+        }
+
+        int getRelationships() {
+            return relationships;
+        }
+
+        Integer getFrames() {
+            return frames;
+        }
+
+        long getExportCost() {
+            return exportCost;
+        }
+
+    }
+
+}
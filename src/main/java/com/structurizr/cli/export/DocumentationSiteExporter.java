@@ -0,0 +1,475 @@
+package com.structurizr.cli.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Decision;
+import com.structurizr.documentation.Documentable;
+import com.structurizr.documentation.Documentation;
+import com.structurizr.documentation.Format;
+import com.structurizr.documentation.Image;
+import com.structurizr.documentation.Section;
+import com.structurizr.model.Element;
+import com.structurizr.util.StringUtils;
+import org.commonmark.Extension;
+import org.commonmark.ext.gfm.tables.TablesExtension;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders the workspace and element documentation (sections and decisions) to a static HTML site.
+ *
+ * Pages are rendered in parallel. A manifest of content hashes is kept in the output directory, so that on subsequent
+ * exports only pages whose content has changed are rendered and written again. Images embedded in the documentation
+ * are written out as files (rather than being inlined as base64) alongside the pages that reference them, so that the
+ * relative links in the content work as-is. Files from a previous export that are no longer part of the site (e.g. for a
+ * deleted section) are removed. Markdown is rendered to HTML; AsciiDoc content is included as preformatted text.
+ *
+ * <pre>
+ * index.html
+ * &lt;scope&gt;/index.html
+ * &lt;scope&gt;/section-&lt;n&gt;.html
+ * &lt;scope&gt;/decision-&lt;id&gt;.html
+ * &lt;scope&gt;/&lt;image&gt;
+ * </pre>
+ */
+class DocumentationSiteExporter {
+
+    static final String MANIFEST_FILENAME = ".structurizr-site.json";
+
+    // change this when the page template changes, so that all pages are rendered again
+    private static final String TEMPLATE_VERSION = "2";
+
+    private static final String WORKSPACE_SCOPE = "workspace";
+
+    private static final List<Extension> MARKDOWN_EXTENSIONS = List.of(TablesExtension.create());
+    private static final Parser MARKDOWN_PARSER = Parser.builder().extensions(MARKDOWN_EXTENSIONS).build();
+    private static final HtmlRenderer MARKDOWN_RENDERER = HtmlRenderer.builder().extensions(MARKDOWN_EXTENSIONS).build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicInteger filesWritten = new AtomicInteger();
+    private final AtomicInteger filesUnchanged = new AtomicInteger();
+    private final AtomicInteger filesDeleted = new AtomicInteger();
+    private final AtomicInteger images = new AtomicInteger();
+
+    int getFilesWritten() {
+        return filesWritten.get();
+    }
+
+    int getFilesUnchanged() {
+        return filesUnchanged.get();
+    }
+
+    int getFilesDeleted() {
+        return filesDeleted.get();
+    }
+
+    int getImages() {
+        return images.get();
+    }
+
+    /**
+     * Renders the documentation in the given workspace to the given directory.
+     */
+    void export(Workspace workspace, File outputDirectory) throws Exception {
+        outputDirectory.mkdirs();
+
+        Map<String,String> previousHashes = readManifest(outputDirectory);
+        Map<String,String> hashes = new ConcurrentHashMap<>();
+
+        List<Scope> scopes = new ArrayList<>();
+        if (!workspace.getDocumentation().isEmpty()) {
+            scopes.add(new Scope(WORKSPACE_SCOPE, workspace.getName(), workspace.getDocumentation()));
+        }
+
+        Set<String> directoryNames = new HashSet<>();
+        directoryNames.add(WORKSPACE_SCOPE);
+        List<Element> elements = new ArrayList<>(workspace.getModel().getElements());
+        elements.sort(Comparator.comparing(Element::getCanonicalName));
+        for (Element element : elements) {
+            if (element instanceof Documentable && !((Documentable)element).getDocumentation().isEmpty()) {
+                // e.g. "Container://Software System.Web Application" -> "software-system-web-application"
+                String canonicalName = element.getCanonicalName();
+                String directoryName = slug(canonicalName.substring(canonicalName.indexOf("://") + 3));
+                String uniqueDirectoryName = directoryName;
+                int suffix = 2;
+                while (!directoryNames.add(uniqueDirectoryName)) {
+                    uniqueDirectoryName = directoryName + "-" + suffix++;
+                }
+                directoryName = uniqueDirectoryName;
+                scopes.add(new Scope(directoryName, element.getName(), ((Documentable)element).getDocumentation()));
+            }
+        }
+
+        ExecutorService executorService = createExecutorService();
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (Scope scope : scopes) {
+                for (Section section : sections(scope.documentation)) {
+                    tasks.add(executorService.submit(() -> {
+                        writeSectionPage(outputDirectory, scope, section, previousHashes, hashes);
+                        return null;
+                    }));
+                }
+                for (Decision decision : scope.documentation.getDecisions()) {
+                    tasks.add(executorService.submit(() -> {
+                        writeDecisionPage(outputDirectory, scope, decision, previousHashes, hashes);
+                        return null;
+                    }));
+                }
+                for (Image image : scope.documentation.getImages()) {
+                    tasks.add(executorService.submit(() -> {
+                        writeImage(outputDirectory, scope, image, previousHashes, hashes);
+                        return null;
+                    }));
+                }
+                tasks.add(executorService.submit(() -> {
+                    writeScopeIndex(outputDirectory, scope, previousHashes, hashes);
+                    return null;
+                }));
+            }
+
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception)e.getCause();
+                    }
+
+                    throw e;
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        writeSiteIndex(outputDirectory, workspace, scopes, previousHashes, hashes);
+        deleteStaleFiles(outputDirectory, previousHashes, hashes);
+        writeManifest(outputDirectory, hashes);
+    }
+
+    private void writeSiteIndex(File outputDirectory, Workspace workspace, List<Scope> scopes, Map<String,String> previousHashes, Map<String,String> hashes) throws IOException {
+        StringBuilder body = new StringBuilder();
+        body.append("<h1>").append(escape(workspace.getName())).append("</h1>\n");
+        if (!StringUtils.isNullOrEmpty(workspace.getDescription())) {
+            body.append("<p>").append(escape(workspace.getDescription())).append("</p>\n");
+        }
+
+        if (scopes.isEmpty()) {
+            body.append("<p>This workspace has no documentation or decisions.</p>\n");
+        } else {
+            body.append("<ul>\n");
+            for (Scope scope : scopes) {
+                body.append("<li><a href=\"").append(scope.directoryName).append("/index.html\">").append(escape(scope.title)).append("</a></li>\n");
+            }
+            body.append("</ul>\n");
+        }
+
+        writePage(outputDirectory, "index.html", workspace.getName(), body.toString(), "", previousHashes, hashes);
+    }
+
+    private void writeScopeIndex(File outputDirectory, Scope scope, Map<String,String> previousHashes, Map<String,String> hashes) throws IOException {
+        StringBuilder body = new StringBuilder();
+        body.append("<p><a href=\"../index.html\">Home</a></p>\n");
+        body.append("<h1>").append(escape(scope.title)).append("</h1>\n");
+
+        List<Section> sections = sections(scope.documentation);
+        if (!sections.isEmpty()) {
+            body.append("<h2>Documentation</h2>\n<ul>\n");
+            for (Section section : sections) {
+                body.append("<li><a href=\"").append(sectionPath(section)).append("\">").append(escape(sectionTitle(section))).append("</a></li>\n");
+            }
+            body.append("</ul>\n");
+        }
+
+        if (!scope.documentation.getDecisions().isEmpty()) {
+            body.append("<h2>Decisions</h2>\n<table>\n<tr><th>ID</th><th>Title</th><th>Status</th><th>Date</th></tr>\n");
+            for (Decision decision : scope.documentation.getDecisions()) {
+                body.append("<tr><td>").append(escape(decision.getId())).append("</td>");
+                body.append("<td><a href=\"").append(decisionPath(decision)).append("\">").append(escape(decision.getTitle())).append("</a></td>");
+                body.append("<td>").append(escape(decision.getStatus())).append("</td>");
+                body.append("<td>").append(formatDate(decision)).append("</td></tr>\n");
+            }
+            body.append("</table>\n");
+        }
+
+        writePage(outputDirectory, scope.directoryName + "/index.html", scope.title, body.toString(), "../", previousHashes, hashes);
+    }
+
+    private void writeSectionPage(File outputDirectory, Scope scope, Section section, Map<String,String> previousHashes, Map<String,String> hashes) throws IOException {
+        String path = scope.directoryName + "/" + sectionPath(section);
+        String hash = hash(TEMPLATE_VERSION, scope.title, sectionTitle(section), String.valueOf(section.getFormat()), section.getContent());
+        if (isUnchanged(outputDirectory, path, hash, previousHashes, hashes)) {
+            return;
+        }
+
+        String body = "<p><a href=\"index.html\">" + escape(scope.title) + "</a></p>\n" + render(section.getFormat(), section.getContent());
+        writeFile(outputDirectory, path, page(sectionTitle(section), body, "../"));
+    }
+
+    private void writeDecisionPage(File outputDirectory, Scope scope, Decision decision, Map<String,String> previousHashes, Map<String,String> hashes) throws IOException {
+        StringBuilder links = new StringBuilder();
+        for (Decision.Link link : decision.getLinks()) {
+            links.append(link.getId()).append('\u0000').append(link.getDescription()).append('\u0000');
+        }
+
+        String path = scope.directoryName + "/" + decisionPath(decision);
+        String hash = hash(TEMPLATE_VERSION, scope.title, decision.getId(), decision.getTitle(), decision.getStatus(), formatDate(decision), links.toString(), String.valueOf(decision.getFormat()), decision.getContent());
+        if (isUnchanged(outputDirectory, path, hash, previousHashes, hashes)) {
+            return;
+        }
+
+        StringBuilder body = new StringBuilder();
+        body.append("<p><a href=\"index.html\">").append(escape(scope.title)).append("</a></p>\n");
+        body.append("<p class=\"decision\">Decision ").append(escape(decision.getId()))
+                .append(" &middot; ").append(escape(decision.getStatus()))
+                .append(" &middot; ").append(formatDate(decision)).append("</p>\n");
+
+        if (!decision.getLinks().isEmpty()) {
+            body.append("<ul class=\"links\">\n");
+            for (Decision.Link link : decision.getLinks()) {
+                body.append("<li>").append(escape(link.getDescription())).append(" <a href=\"").append(decisionPath(link.getId())).append("\">").append(escape(link.getId())).append("</a></li>\n");
+            }
+            body.append("</ul>\n");
+        }
+
+        body.append(render(decision.getFormat(), decision.getContent()));
+        writeFile(outputDirectory, path, page(decision.getTitle(), body.toString(), "../"));
+    }
+
+    private void writeImage(File outputDirectory, Scope scope, Image image, Map<String,String> previousHashes, Map<String,String> hashes) throws IOException {
+        String path = scope.directoryName + "/" + image.getName();
+        File file = new File(outputDirectory, path);
+        if (!file.getCanonicalPath().startsWith(outputDirectory.getCanonicalPath() + File.separator)) {
+            // don't write outside of the output directory
+            return;
+        }
+
+        images.incrementAndGet();
+        String hash = hash(image.getType(), image.getContent());
+        if (isUnchanged(outputDirectory, path, hash, previousHashes, hashes)) {
+            return;
+        }
+
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), Base64.getMimeDecoder().decode(image.getContent()));
+        filesWritten.incrementAndGet();
+    }
+
+    private void writePage(File outputDirectory, String path, String title, String body, String root, Map<String,String> previousHashes, Map<String,String> hashes) throws IOException {
+        String html = page(title, body, root);
+        if (!isUnchanged(outputDirectory, path, hash(html), previousHashes, hashes)) {
+            writeFile(outputDirectory, path, html);
+        }
+    }
+
+    /**
+     * Records the hash of the given file, returning true if the file already exists with the same hash.
+     */
+    private boolean isUnchanged(File outputDirectory, String path, String hash, Map<String,String> previousHashes, Map<String,String> hashes) {
+        hashes.put(path, hash);
+        if (hash.equals(previousHashes.get(path)) && new File(outputDirectory, path).exists()) {
+            filesUnchanged.incrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    private void writeFile(File outputDirectory, String path, String content) throws IOException {
+        File file = new File(outputDirectory, path);
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        filesWritten.incrementAndGet();
+    }
+
+    private String page(String title, String body, String root) {
+        return "<!DOCTYPE html>\n" +
+                "<html>\n" +
+                "<head>\n" +
+                "<meta charset=\"utf-8\">\n" +
+                "<title>" + escape(title) + "</title>\n" +
+                "<style>\n" +
+                "body { font-family: sans-serif; max-width: 960px; margin: 2em auto; padding: 0 1em; line-height: 1.5; color: #222; }\n" +
+                "table { border-collapse: collapse; } th, td { border: 1px solid #ccc; padding: 0.25em 0.5em; text-align: left; }\n" +
+                "pre { background: #f6f6f6; padding: 1em; overflow-x: auto; } img { max-width: 100%; }\n" +
+                ".decision { color: #666; }\n" +
+                "</style>\n" +
+                "</head>\n" +
+                "<body>\n" +
+                body +
+                "</body>\n" +
+                "</html>\n";
+    }
+
+    private String render(Format format, String content) {
+        if (content == null) {
+            return "";
+        }
+
+        if (format == Format.AsciiDoc) {
+            return "<pre class=\"asciidoc\">" + escape(content) + "</pre>\n";
+        } else {
+            return MARKDOWN_RENDERER.render(MARKDOWN_PARSER.parse(content));
+        }
+    }
+
+    private static List<Section> sections(Documentation documentation) {
+        List<Section> sections = new ArrayList<>(documentation.getSections());
+        sections.sort(Comparator.comparingInt(Section::getOrder));
+
+        return sections;
+    }
+
+    private static String sectionPath(Section section) {
+        return "section-" + section.getOrder() + ".html";
+    }
+
+    private static String sectionTitle(Section section) {
+        return StringUtils.isNullOrEmpty(section.getTitle()) ? "Section " + section.getOrder() : section.getTitle();
+    }
+
+    private static String decisionPath(Decision decision) {
+        return decisionPath(decision.getId());
+    }
+
+    private static String decisionPath(String id) {
+        return "decision-" + slug(id) + ".html";
+    }
+
+    private static String formatDate(Decision decision) {
+        return decision.getDate() != null ? new SimpleDateFormat("yyyy-MM-dd").format(decision.getDate()) : "";
+    }
+
+    static String slug(String value) {
+        String slug = value.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("(^-+|-+$)", "");
+
+        return slug.isEmpty() ? "-" : slug;
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String hash(String... values) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String value : values) {
+                if (value != null) {
+                    digest.update(value.getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte)0);
+            }
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String,String> readManifest(File outputDirectory) throws IOException {
+        Map<String,String> hashes = new TreeMap<>();
+
+        File file = new File(outputDirectory, MANIFEST_FILENAME);
+        if (file.exists()) {
+            JsonNode pages = objectMapper.readTree(file).path("pages");
+            pages.fields().forEachRemaining(entry -> hashes.put(entry.getKey(), entry.getValue().asText()));
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Deletes the files written by a previous export that are no longer part of the site, along with any directories
+     * that are left empty.
+     */
+    private void deleteStaleFiles(File outputDirectory, Map<String,String> previousHashes, Map<String,String> hashes) throws IOException {
+        String outputPath = outputDirectory.getCanonicalPath() + File.separator;
+        for (String path : previousHashes.keySet()) {
+            if (hashes.containsKey(path)) {
+                continue;
+            }
+
+            File file = new File(outputDirectory, path);
+            if (!file.getCanonicalPath().startsWith(outputPath)) {
+                // don't delete outside of the output directory
+                continue;
+            }
+
+            if (file.isFile() && file.delete()) {
+                filesDeleted.incrementAndGet();
+
+                File directory = file.getParentFile();
+                while (directory.getCanonicalPath().startsWith(outputPath) && directory.delete()) {
+                    directory = directory.getParentFile();
+                }
+            }
+        }
+    }
+
+    private void writeManifest(File outputDirectory, Map<String,String> hashes) throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode pages = root.putObject("pages");
+        for (Map.Entry<String,String> entry : new TreeMap<>(hashes).entrySet()) {
+            pages.put(entry.getKey(), entry.getValue());
+        }
+
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(new File(outputDirectory, MANIFEST_FILENAME), root);
+    }
+
+    private ExecutorService createExecutorService() {
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "structurizr-site-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class Scope {
+
+        private final String directoryName;
+        private final String title;
+        private final Documentation documentation;
+
+        Scope(String directoryName, String title, Documentation documentation) {
+            this.directoryName = directoryName;
+            this.title = title;
+            this.documentation = documentation;
+        }
+
+    }
+
+}
@@ -2,6 +2,9 @@ package com.structurizr.cli.export;
 
 import com.structurizr.Workspace;
 import com.structurizr.cli.AbstractCommand;
+import com.structurizr.cli.ExportFingerprints;
+import com.structurizr.cli.Metrics;
+import com.structurizr.cli.WorkspaceStatistics;
 import com.structurizr.dsl.StructurizrDslParser;
 import com.structurizr.export.*;
 import com.structurizr.export.dot.DOTExporter;
@@ -10,8 +13,9 @@ import com.structurizr.export.mermaid.MermaidDiagramExporter;
 import com.structurizr.export.plantuml.C4PlantUMLExporter;
 import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
 import com.structurizr.export.websequencediagrams.WebSequenceDiagramsExporter;
+import com.structurizr.io.json.JsonWriter;
 import com.structurizr.util.WorkspaceUtils;
-import com.structurizr.view.ThemeUtils;
+import com.structurizr.view.*;
 import io.github.goto1134.structurizr.export.d2.D2Exporter;
 import org.apache.commons.cli.*;
 import org.apache.commons.logging.Log;
@@ -19,13 +23,24 @@ import org.apache.commons.logging.LogFactory;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
 
 public class ExportCommand extends AbstractCommand {
 
@@ -41,13 +56,20 @@ public class ExportCommand extends AbstractCommand {
     private static final String DOT_FORMAT = "dot";
     private static final String ILOGRAPH_FORMAT = "ilograph";
     private static final String D2_FORMAT = "d2";
+    private static final String CSV_FORMAT = TabularWorkspaceExporter.CSV_FORMAT;
+    private static final String TSV_FORMAT = TabularWorkspaceExporter.TSV_FORMAT;
+    private static final String SITE_FORMAT = "site";
     private static final String CUSTOM_FORMAT = "fqcn";
 
+    private static final int DEFAULT_NUMBER_OF_SLOWEST_VIEWS = 5;
+
     private static final Map<String,Exporter> EXPORTERS = new HashMap<>();
 
     static {
         EXPORTERS.put(JSON_FORMAT, new JsonWorkspaceExporter());
         EXPORTERS.put(THEME_FORMAT, new JsonWorkspaceThemeExporter());
+        EXPORTERS.put(CSV_FORMAT, new TabularWorkspaceExporter(CSV_FORMAT));
+        EXPORTERS.put(TSV_FORMAT, new TabularWorkspaceExporter(TSV_FORMAT));
         EXPORTERS.put(PLANTUML_FORMAT, new StructurizrPlantUMLExporter());
         EXPORTERS.put(PLANTUML_FORMAT + "/" + PLANTUML_STRUCTURIZR_SUBFORMAT, new StructurizrPlantUMLExporter());
         EXPORTERS.put(PLANTUML_FORMAT + "/" + PLANTUML_C4PLANTUML_SUBFORMAT, new C4PlantUMLExporter());
@@ -68,7 +90,7 @@ public class ExportCommand extends AbstractCommand {
         option.setRequired(true);
         options.addOption(option);
 
-        option = new Option("f", "format", true, String.format("Export format: %s[/%s|%s]|%s|%s|%s|%s|%s|%s|%s", PLANTUML_FORMAT, PLANTUML_STRUCTURIZR_SUBFORMAT, PLANTUML_C4PLANTUML_SUBFORMAT, WEBSEQUENCEDIAGRAMS_FORMAT, MERMAID_FORMAT, DOT_FORMAT, ILOGRAPH_FORMAT, JSON_FORMAT, THEME_FORMAT, CUSTOM_FORMAT));
+        option = new Option("f", "format", true, String.format("Export format: %s[/%s|%s]|%s|%s|%s|%s|%s|%s|%s|%s|%s|%s", PLANTUML_FORMAT, PLANTUML_STRUCTURIZR_SUBFORMAT, PLANTUML_C4PLANTUML_SUBFORMAT, WEBSEQUENCEDIAGRAMS_FORMAT, MERMAID_FORMAT, DOT_FORMAT, ILOGRAPH_FORMAT, JSON_FORMAT, THEME_FORMAT, CSV_FORMAT, TSV_FORMAT, SITE_FORMAT, CUSTOM_FORMAT));
         option.setRequired(true);
         options.addOption(option);
 
@@ -76,6 +98,34 @@ public class ExportCommand extends AbstractCommand {
         option.setRequired(false);
         options.addOption(option);
 
+        option = new Option("lowMemory", "lowMemory", false, "Writes JSON exports straight to the file, rather than building them in memory first (diagrams are always exported and written one view at a time)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("gzip", "gzip", false, String.format("Compresses the files written by streaming exporters (e.g. %s and %s) with gzip", CSV_FORMAT, TSV_FORMAT));
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("offline", "offline", false, "Only use themes from the local theme cache");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("incremental", "incremental", false, "Only exports the views affected by changes since the previous incremental export to the same output directory");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("viewTimeout", "viewTimeout", true, "Abandons (and fails) the export of any view that takes longer than this number of seconds");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("shard", "shard", true, "Only exports this shard of the views, as i/n (e.g. 2/4); views are split between the shards by their estimated export cost");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("slowest", "slowest", true, String.format("Number of slowest views to report at the end of a diagram export (default: %s)", DEFAULT_NUMBER_OF_SLOWEST_VIEWS));
+        option.setRequired(false);
+        options.addOption(option);
+
         CommandLineParser commandLineParser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
 
@@ -84,6 +134,14 @@ public class ExportCommand extends AbstractCommand {
         long workspaceId = 1;
         String format = "";
         String outputPath = null;
+        boolean lowMemory = false;
+        boolean offline = false;
+        boolean gzip = false;
+        boolean incremental = false;
+        long viewTimeout = 0;
+        int slowest = DEFAULT_NUMBER_OF_SLOWEST_VIEWS;
+        int shard = 1;
+        int shards = 1;
 
         try {
             CommandLine cmd = commandLineParser.parse(options, args);
@@ -91,6 +149,31 @@ public class ExportCommand extends AbstractCommand {
             workspacePathAsString = cmd.getOptionValue("workspace");
             format = cmd.getOptionValue("format");
             outputPath = cmd.getOptionValue("output");
+            lowMemory = cmd.hasOption("lowMemory");
+            offline = cmd.hasOption("offline");
+            gzip = cmd.hasOption("gzip");
+            incremental = cmd.hasOption("incremental");
+
+            try {
+                viewTimeout = Math.round(Double.parseDouble(cmd.getOptionValue("viewTimeout", "0")) * 1000);
+                slowest = Integer.parseInt(cmd.getOptionValue("slowest", String.valueOf(DEFAULT_NUMBER_OF_SLOWEST_VIEWS)));
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid number: " + e.getMessage());
+            }
+
+            if (cmd.hasOption("shard")) {
+                String[] parts = cmd.getOptionValue("shard").split("/");
+                try {
+                    shard = Integer.parseInt(parts[0].trim());
+                    shards = Integer.parseInt(parts[1].trim());
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    shards = 0;
+                }
+
+                if (parts.length != 2 || shards < 1 || shard < 1 || shard > shards) {
+                    throw new ParseException("Invalid shard (expected i/n, where 1 <= i <= n): " + cmd.getOptionValue("shard"));
+                }
+            }
 
         } catch (ParseException e) {
             log.error(e.getMessage());
@@ -112,9 +195,25 @@ public class ExportCommand extends AbstractCommand {
 
         workspaceId = workspace.getId();
 
-        if (!JSON_FORMAT.equalsIgnoreCase(format)) {
+        if (SITE_FORMAT.equalsIgnoreCase(format)) {
+            if (shard > 1) {
+                log.info(" - the " + SITE_FORMAT + " format can't be sharded; it is written by shard 1 of " + shards);
+                log.info(" - finished");
+                return;
+            }
+
+            if (outputPath == null) {
+                outputPath = new File(new File(workspacePath.getCanonicalPath()).getParent(), SITE_FORMAT).getPath();
+            }
+
+            exportSite(workspace, new File(outputPath));
+            log.info(" - finished");
+            return;
+        }
+
+        if (!JSON_FORMAT.equalsIgnoreCase(format) && !CSV_FORMAT.equalsIgnoreCase(format) && !TSV_FORMAT.equalsIgnoreCase(format)) {
             // only inline the theme amd create default views if the user wants a diagram export
-            ThemeUtils.loadThemes(workspace);
+            loadThemes(workspace, offline);
             addDefaultViewsAndStyles(workspace);
         }
 
@@ -131,37 +230,77 @@ public class ExportCommand extends AbstractCommand {
         } else {
             log.info(" - exporting with " + exporter.getClass().getSimpleName());
 
-            if (exporter instanceof DiagramExporter) {
+            boolean sharded = shards > 1 && exporter instanceof AbstractDiagramExporter;
+            if (shards > 1 && !sharded && shard > 1) {
+                // the whole export is written by the first shard, so that the shards never write the same files
+                log.info(" - " + exporter.getClass().getSimpleName() + " does not support sharding; the export is written by shard 1 of " + shards);
+                log.info(" - finished");
+                return;
+            }
+
+            if (exporter instanceof StreamingExporter) {
+                StreamingExporter streamingExporter = (StreamingExporter) exporter;
+                ExportOutput output = createExportOutput(outputPath, workspaceId, gzip);
+                try (Metrics.Phase phase = getMetrics().phase("export")) {
+                    streamingExporter.export(workspace, output);
+                }
+            } else if (exporter instanceof DiagramExporter) {
                 DiagramExporter diagramExporter = (DiagramExporter) exporter;
 
                 if (workspace.getViews().isEmpty()) {
                     log.info(" - the workspace contains no views");
-                } else {
-                    Collection<Diagram> diagrams = diagramExporter.export(workspace);
-
-                    for (Diagram diagram : diagrams) {
-                        File file = new File(outputPath, String.format("%s-%s.%s", prefix(workspaceId), diagram.getKey(), diagram.getFileExtension()));
-                        writeToFile(file, diagram.getDefinition());
+                } else if (diagramExporter instanceof AbstractDiagramExporter) {
+                    Predicate<View> filter = view -> true;
+                    if (sharded) {
+                        Set<String> viewsInShard = findViewsInShard(workspace.getViews().getViews(), shard, shards);
+                        log.info(" - exporting shard " + shard + " of " + shards + " (" + viewsInShard.size() + " of " + workspace.getViews().getViews().size() + " view(s))");
+                        filter = view -> viewsInShard.contains(view.getKey());
+                    }
 
-                        if (diagram.getLegend() != null) {
-                            file = new File(outputPath, String.format("%s-%s-key.%s", prefix(workspaceId), diagram.getKey(), diagram.getFileExtension()));
-                            writeToFile(file, diagram.getLegend().getDefinition());
+                    List<String> failedViews;
+                    try (ViewExportWatchdog watchdog = new ViewExportWatchdog((AbstractDiagramExporter) diagramExporter, viewTimeout, getMetrics())) {
+                        if (incremental) {
+                            exportIncrementally(watchdog, workspace, format, outputPath, workspaceId, filter, sharded ? String.format("-%d-of-%d", shard, shards) : "");
+                        } else {
+                            exportViewByView(watchdog, workspace, outputPath, workspaceId, filter);
                         }
 
-                        if (!diagram.getFrames().isEmpty()) {
-                            int index = 1;
-                            for (Diagram frame : diagram.getFrames()) {
-                                file = new File(outputPath, String.format("%s-%s-%s.%s", prefix(workspaceId), diagram.getKey(), index, diagram.getFileExtension()));
-                                writeToFile(file, frame.getDefinition());
-                                index++;
+                        if (slowest > 0) {
+                            log.info(" - slowest views:");
+                            for (Map.Entry<String,Long> timing : watchdog.getSlowestViews(slowest)) {
+                                log.info("   - " + timing.getKey() + ": " + timing.getValue() + "ms");
                             }
                         }
+
+                        failedViews = watchdog.getFailedViews();
+                    }
+
+                    if (!failedViews.isEmpty()) {
+                        getMetrics().count("failedViews", failedViews.size());
+                        log.error(" - " + failedViews.size() + " view(s) timed out: " + String.join(", ", failedViews));
+                        System.exit(1);
+                    }
+                } else {
+                    if (lowMemory) {
+                        log.info(" - " + exporter.getClass().getSimpleName() + " does not support exporting one view at a time");
+                    }
+                    if (incremental) {
+                        log.info(" - " + exporter.getClass().getSimpleName() + " does not support incremental exports; exporting all views");
+                    }
+                    if (viewTimeout > 0) {
+                        log.info(" - " + exporter.getClass().getSimpleName() + " does not support per-view timeouts");
+                    }
+
+                    Collection<Diagram> diagrams;
+                    try (Metrics.Phase phase = getMetrics().phase("export")) {
+                        diagrams = diagramExporter.export(workspace);
+                    }
+
+                    for (Diagram diagram : diagrams) {
+                        writeDiagram(diagram, outputPath, workspaceId);
                     }
                 }
             } else if (exporter instanceof WorkspaceExporter) {
-                WorkspaceExporter workspaceExporter = (WorkspaceExporter) exporter;
-                WorkspaceExport export = workspaceExporter.export(workspace);
-
                 String filename;
 
                 if (THEME_FORMAT.equalsIgnoreCase(format)) {
@@ -170,14 +309,195 @@ public class ExportCommand extends AbstractCommand {
                     filename = workspacePath.getName().substring(0, workspacePath.getName().lastIndexOf('.'));
                 }
 
-                File file = new File(outputPath, String.format("%s.%s", filename, export.getFileExtension()));
-                writeToFile(file, export.getDefinition());
+                if (lowMemory && exporter instanceof JsonWorkspaceExporter) {
+                    // write the JSON straight to the file, rather than building it as a String first
+                    File file = new File(outputPath, String.format("%s.%s", filename, JSON_FORMAT));
+                    log.info(" - writing " + file.getCanonicalPath());
+                    try (Metrics.Phase phase = getMetrics().phase("export"); Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                        new JsonWriter(true).write(workspace, writer);
+                    }
+                    getMetrics().count("files", 1);
+                } else {
+                    WorkspaceExporter workspaceExporter = (WorkspaceExporter) exporter;
+                    WorkspaceExport export;
+                    try (Metrics.Phase phase = getMetrics().phase("export")) {
+                        export = workspaceExporter.export(workspace);
+                    }
+
+                    File file = new File(outputPath, String.format("%s.%s", filename, export.getFileExtension()));
+                    writeToFile(file, export.getDefinition());
+                }
             }
         }
 
         log.info(" - finished");
     }
 
+    /**
+     * Exports only the views affected by changes to the workspace since the previous incremental export, based upon
+     * the fingerprints stored in the output directory; unaffected views don't go through the exporter at all.
+     * Only the views matching the filter (e.g. those in this shard) are considered, and each shard keeps its own
+     * fingerprints, so that a view moving between shards is exported by the shard it moves to.
+     */
+    private void exportIncrementally(ViewExportWatchdog watchdog, Workspace workspace, String format, String outputPath, long workspaceId, Predicate<View> filter, String suffix) throws Exception {
+        File fingerprintsFile = new File(outputPath, String.format(".%s-%s-fingerprints%s.json", prefix(workspaceId), format.toLowerCase().replaceAll("[^a-z0-9]+", "-"), suffix));
+
+        ExportFingerprints fingerprints;
+        Set<String> affectedViews;
+        try (Metrics.Phase phase = getMetrics().phase("impact")) {
+            fingerprints = ExportFingerprints.of(workspace, format, filter);
+            affectedViews = fingerprints.getAffectedViews(workspace, ExportFingerprints.read(fingerprintsFile));
+        }
+        Set<String> views = new HashSet<>();
+        workspace.getViews().getViews().stream().filter(filter).forEach(view -> views.add(view.getKey()));
+        affectedViews.retainAll(views);
+
+        int numberOfViews = views.size();
+        log.info(" - " + affectedViews.size() + " of " + numberOfViews + " view(s) affected by changes");
+        getMetrics().count("unchangedViews", numberOfViews - affectedViews.size());
+
+        exportViewByView(watchdog, workspace, outputPath, workspaceId, view -> affectedViews.contains(view.getKey()));
+
+        if (watchdog.getFailedViews().isEmpty()) {
+            fingerprints.write(fingerprintsFile);
+        }
+    }
+
+    /**
+     * Assigns the given views to the given number of shards, and returns the keys of the views in the given shard
+     * (numbered from 1). Views are assigned, most expensive first, to the shard with the lowest total estimated
+     * export cost so far, so the shards are balanced by cost rather than by number of views; the assignment only
+     * depends upon the views, so every shard of the same workspace computes the same assignment.
+     */
+    static Set<String> findViewsInShard(Collection<View> views, int shard, int shards) {
+        List<View> sortedViews = new ArrayList<>(views);
+        Map<String,Long> costs = new HashMap<>();
+        sortedViews.forEach(view -> costs.put(view.getKey(), WorkspaceStatistics.estimateExportCost(view)));
+        sortedViews.sort(Comparator.comparingLong((View view) -> costs.get(view.getKey())).reversed().thenComparing(View::getKey));
+
+        long[] totals = new long[shards];
+        Set<String> viewsInShard = new TreeSet<>();
+        for (View view : sortedViews) {
+            int leastLoaded = 0;
+            for (int i = 1; i < shards; i++) {
+                if (totals[i] < totals[leastLoaded]) {
+                    leastLoaded = i;
+                }
+            }
+
+            totals[leastLoaded] += costs.get(view.getKey());
+            if (leastLoaded == shard - 1) {
+                viewsInShard.add(view.getKey());
+            }
+        }
+
+        return viewsInShard;
+    }
+
+    /**
+     * Exports and writes each view in turn (in the same order as AbstractDiagramExporter.export(Workspace)),
+     * so that only one view's diagram definitions are held in memory at any time, and each view can be timed.
+     */
+    private void exportViewByView(ViewExportWatchdog watchdog, Workspace workspace, String outputPath, long workspaceId, Predicate<View> filter) throws Exception {
+        List<View> views = new ArrayList<>();
+        views.addAll(workspace.getViews().getCustomViews());
+        views.addAll(workspace.getViews().getSystemLandscapeViews());
+        views.addAll(workspace.getViews().getSystemContextViews());
+        views.addAll(workspace.getViews().getContainerViews());
+        views.addAll(workspace.getViews().getComponentViews());
+        views.addAll(workspace.getViews().getDynamicViews());
+        views.addAll(workspace.getViews().getDeploymentViews());
+
+        for (View view : views) {
+            if (!filter.test(view)) {
+                continue;
+            }
+
+            Diagram diagram = watchdog.export(view);
+            if (diagram != null) {
+                writeDiagram(diagram, outputPath, workspaceId);
+            }
+        }
+    }
+
+    /**
+     * Exports a single view, with the per-view method of the given exporter.
+     */
+    static Diagram exportView(AbstractDiagramExporter exporter, View view) {
+        if (view instanceof CustomView) {
+            return exporter.export((CustomView) view);
+        } else if (view instanceof SystemLandscapeView) {
+            return exporter.export((SystemLandscapeView) view);
+        } else if (view instanceof SystemContextView) {
+            return exporter.export((SystemContextView) view);
+        } else if (view instanceof ContainerView) {
+            return exporter.export((ContainerView) view);
+        } else if (view instanceof ComponentView) {
+            return exporter.export((ComponentView) view);
+        } else if (view instanceof DynamicView) {
+            return exporter.export((DynamicView) view);
+        } else if (view instanceof DeploymentView) {
+            return exporter.export((DeploymentView) view);
+        }
+
+        return null;
+    }
+
+    private void exportSite(Workspace workspace, File outputDir) throws Exception {
+        log.info(" - exporting documentation and decisions to " + outputDir.getCanonicalPath());
+
+        DocumentationSiteExporter exporter = new DocumentationSiteExporter();
+        try (Metrics.Phase phase = getMetrics().phase("export")) {
+            exporter.export(workspace, outputDir);
+        }
+
+        log.info(" - wrote " + exporter.getFilesWritten() + " file(s), " + exporter.getFilesUnchanged() + " unchanged, " + exporter.getFilesDeleted() + " deleted");
+        getMetrics().count("files", exporter.getFilesWritten());
+        getMetrics().count("unchangedFiles", exporter.getFilesUnchanged());
+        getMetrics().count("deletedFiles", exporter.getFilesDeleted());
+        getMetrics().count("images", exporter.getImages());
+    }
+
+    private void writeDiagram(Diagram diagram, String outputPath, long workspaceId) throws Exception {
+        File file = new File(outputPath, String.format("%s-%s.%s", prefix(workspaceId), diagram.getKey(), diagram.getFileExtension()));
+        writeToFile(file, diagram.getDefinition());
+
+        if (diagram.getLegend() != null) {
+            file = new File(outputPath, String.format("%s-%s-key.%s", prefix(workspaceId), diagram.getKey(), diagram.getFileExtension()));
+            writeToFile(file, diagram.getLegend().getDefinition());
+        }
+
+        if (!diagram.getFrames().isEmpty()) {
+            int index = 1;
+            for (Diagram frame : diagram.getFrames()) {
+                file = new File(outputPath, String.format("%s-%s-%s.%s", prefix(workspaceId), diagram.getKey(), index, diagram.getFileExtension()));
+                writeToFile(file, frame.getDefinition());
+                index++;
+            }
+        }
+    }
+
+    private ExportOutput createExportOutput(String outputPath, long workspaceId, boolean gzip) {
+        return (name, fileExtension) -> {
+            File file = new File(outputPath, String.format("%s-%s.%s%s", prefix(workspaceId), name, fileExtension, gzip ? ".gz" : ""));
+            log.info(" - writing " + file.getCanonicalPath());
+            getMetrics().count("files", 1);
+
+            if (gzip) {
+                return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file.toPath())), StandardCharsets.UTF_8));
+            }
+
+            return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        };
+    }
+
+    /**
+     * Returns the built-in exporters, keyed by format.
+     */
+    static Map<String,Exporter> getBuiltInExporters() {
+        return Collections.unmodifiableMap(EXPORTERS);
+    }
+
     private Exporter findExporter(String format, File workspacePath) {
         if (EXPORTERS.containsKey(format.toLowerCase())) {
             return EXPORTERS.get(format.toLowerCase());
@@ -208,10 +528,13 @@ public class ExportCommand extends AbstractCommand {
     private void writeToFile(File file, String content) throws Exception {
         log.info(" - writing " + file.getCanonicalPath());
 
-        BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
-        writer.write(content);
-        writer.flush();
-        writer.close();
+        try (Metrics.Phase phase = getMetrics().phase("write")) {
+            BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            writer.write(content);
+            writer.flush();
+            writer.close();
+        }
+        getMetrics().count("files", 1);
     }
 
 }
@@ -0,0 +1,17 @@
+package com.structurizr.cli.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Where a {@link StreamingExporter} writes its output files.
+ */
+public interface ExportOutput {
+
+    /**
+     * Opens a writer for an output file; the name is typically a view key (e.g. "SystemContext" or "SystemContext-key"),
+     * and is used in the same way as the diagram key when naming the file. The caller is responsible for closing the writer.
+     */
+    Writer open(String name, String fileExtension) throws IOException;
+
+}
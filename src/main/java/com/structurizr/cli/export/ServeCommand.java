@@ -0,0 +1,492 @@
+package com.structurizr.cli.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.Workspace;
+import com.structurizr.cli.AbstractCommand;
+import com.structurizr.dsl.StructurizrDslParser;
+import com.structurizr.export.AbstractDiagramExporter;
+import com.structurizr.export.Diagram;
+import com.structurizr.export.DiagramExporter;
+import com.structurizr.export.Exporter;
+import com.structurizr.util.WorkspaceUtils;
+import com.structurizr.view.View;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.cli.*;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a local HTTP service that renders workspaces (DSL or JSON) to any of the diagram export formats, so that
+ * tools that need diagrams on demand don't pay the cost of starting the CLI for every request.
+ *
+ * <pre>
+ * POST /export?format=plantuml[&amp;view=key]  (request body: DSL or JSON)
+ * GET  /metrics                               (Prometheus text format)
+ * GET  /health
+ * </pre>
+ *
+ * Parsed workspaces and rendered diagrams are kept in LRU caches, keyed by a hash of the request body.
+ * Request bodies larger than the maximum body size are rejected (413) without being read in full.
+ * Requests are handled by a fixed number of threads with a bounded queue; when the queue is full, a request is handled
+ * on the thread accepting connections, so no more are accepted until it completes.
+ */
+public class ServeCommand extends AbstractCommand {
+
+    private static final Log log = LogFactory.getLog(ServeCommand.class);
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_BAD_REQUEST = 400;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_METHOD_NOT_ALLOWED = 405;
+    private static final int HTTP_PAYLOAD_TOO_LARGE = 413;
+    private static final int HTTP_INTERNAL_SERVER_ERROR = 500;
+
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String METRICS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final int STOP_TIMEOUT_IN_SECONDS = 5;
+    private static final int DEFAULT_MAX_BODY_SIZE = 10 * 1024 * 1024;
+
+    private static final double[] LATENCY_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LruCache<String,Workspace> workspaces;
+    private LruCache<String,Response> diagrams;
+    private int maxBodySize;
+    private boolean offline;
+
+    private final Map<Integer,LongAdder> requestsByStatus = new ConcurrentHashMap<>();
+    private final LongAdder[] latencyBuckets = new LongAdder[LATENCY_BUCKETS.length];
+    private final LongAdder latencyCount = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+
+    public ServeCommand() {
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    public void run(String... args) throws Exception {
+        Options options = new Options();
+
+        Option option = new Option("host", "host", true, "Address to listen on (default: 127.0.0.1)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("port", "port", true, "Port to listen on (default: 7070)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("threads", "threads", true, "Number of request threads (default: number of processors)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("queue", "queue", true, "Maximum number of requests waiting for a thread (default: 100)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("workspaceCache", "workspaceCache", true, "Maximum number of parsed workspaces to cache (default: 50)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("diagramCache", "diagramCache", true, "Maximum number of rendered responses to cache (default: 1000)");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("maxBodySize", "maxBodySize", true, "Maximum size of a request body, in bytes (default: " + DEFAULT_MAX_BODY_SIZE + ")");
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option("offline", "offline", false, "Only use themes from the local theme cache");
+        option.setRequired(false);
+        options.addOption(option);
+
+        CommandLineParser commandLineParser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+
+        String host = null;
+        int port = 0;
+        int threads = 0;
+        int queue = 0;
+        int workspaceCacheSize = 0;
+        int diagramCacheSize = 0;
+        int maxBodySize = 0;
+
+        try {
+            CommandLine cmd = commandLineParser.parse(options, args);
+
+            host = cmd.getOptionValue("host", "127.0.0.1");
+            port = Integer.parseInt(cmd.getOptionValue("port", "7070"));
+            threads = Integer.parseInt(cmd.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            queue = Integer.parseInt(cmd.getOptionValue("queue", "100"));
+            workspaceCacheSize = Integer.parseInt(cmd.getOptionValue("workspaceCache", "50"));
+            diagramCacheSize = Integer.parseInt(cmd.getOptionValue("diagramCache", "1000"));
+            maxBodySize = Integer.parseInt(cmd.getOptionValue("maxBodySize", String.valueOf(DEFAULT_MAX_BODY_SIZE)));
+            if (maxBodySize < 1) {
+                throw new ParseException("The maximum body size must be at least 1 byte: " + maxBodySize);
+            }
+            offline = cmd.hasOption("offline");
+        } catch (ParseException | NumberFormatException e) {
+            log.error(e.getMessage());
+            formatter.setWidth(150);
+            formatter.printHelp("serve", options);
+
+            System.exit(1);
+        }
+
+        Server server = start(new InetSocketAddress(host, port), threads, queue, workspaceCacheSize, diagramCacheSize, maxBodySize);
+        log.info("Listening on http://" + host + ":" + server.getPort());
+
+        // serve requests until the process is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        Thread.currentThread().join();
+    }
+
+    Server start(InetSocketAddress address, int threads, int queue, int workspaceCacheSize, int diagramCacheSize, int maxBodySize) throws IOException {
+        this.maxBodySize = maxBodySize;
+        workspaces = new LruCache<>(workspaceCacheSize);
+        diagrams = new LruCache<>(diagramCacheSize);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue), r -> new Thread(r, "structurizr-serve-" + threadCounter.incrementAndGet()), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/export", exchange -> handle(exchange, this::export));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+        server.createContext("/health", exchange -> handle(exchange, e -> new Response(HTTP_OK, TEXT_CONTENT_TYPE, "OK")));
+        server.setExecutor(executor);
+        server.start();
+
+        return new Server(server, executor);
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        long start = System.nanoTime();
+
+        Response response;
+        try {
+            response = handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            response = new Response(HTTP_BAD_REQUEST, TEXT_CONTENT_TYPE, e.getMessage());
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            response = new Response(HTTP_INTERNAL_SERVER_ERROR, TEXT_CONTENT_TYPE, String.valueOf(e.getMessage()));
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, response.body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response.body);
+        }
+
+        recordRequest(response.status, System.nanoTime() - start);
+    }
+
+    private Response export(HttpExchange exchange) throws Exception {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            return new Response(HTTP_METHOD_NOT_ALLOWED, TEXT_CONTENT_TYPE, "Use POST, with a DSL or JSON workspace as the request body");
+        }
+
+        Map<String,String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+        String format = parameters.get("format");
+        String viewKey = parameters.get("view");
+        if (format == null) {
+            throw new IllegalArgumentException("A format must be specified");
+        }
+
+        Exporter exporter = ExportCommand.getBuiltInExporters().get(format.toLowerCase());
+        if (!(exporter instanceof DiagramExporter)) {
+            throw new IllegalArgumentException("Unknown or unsupported format: " + format);
+        }
+
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null && contentLength.matches("\\d{1,18}") && Long.parseLong(contentLength) > maxBodySize) {
+            return bodyTooLarge();
+        }
+
+        // at most one byte more than the maximum, in case the request has no (or an incorrect) Content-Length
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes((int)Math.min((long)maxBodySize + 1, Integer.MAX_VALUE));
+        }
+        if (body.length > maxBodySize) {
+            return bodyTooLarge();
+        }
+
+        String workspaceHash = hash(body);
+        String diagramKey = workspaceHash + "\u0000" + format.toLowerCase() + "\u0000" + (viewKey != null ? viewKey : "");
+        Response response = diagrams.get(diagramKey);
+        if (response != null) {
+            return response;
+        }
+
+        Workspace workspace = workspaces.get(workspaceHash);
+        if (workspace == null) {
+            workspace = parse(new String(body, StandardCharsets.UTF_8));
+            workspaces.put(workspaceHash, workspace);
+        }
+
+        // exporters are stateful, so each request uses a new instance
+        DiagramExporter diagramExporter = (DiagramExporter)exporter.getClass().getDeclaredConstructor().newInstance();
+
+        // the same (cached) workspace may be requested concurrently
+        synchronized (workspace) {
+            if (viewKey != null) {
+                View view = workspace.getViews().getViewWithKey(viewKey);
+                if (view == null) {
+                    return new Response(HTTP_NOT_FOUND, TEXT_CONTENT_TYPE, "A view with the key " + viewKey + " does not exist");
+                }
+
+                Diagram diagram = null;
+                if (diagramExporter instanceof AbstractDiagramExporter) {
+                    diagram = ExportCommand.exportView((AbstractDiagramExporter)diagramExporter, view);
+                } else {
+                    for (Diagram d : diagramExporter.export(workspace)) {
+                        if (viewKey.equals(d.getKey())) {
+                            diagram = d;
+                        }
+                    }
+                }
+
+                if (diagram == null) {
+                    return new Response(HTTP_NOT_FOUND, TEXT_CONTENT_TYPE, "The view with the key " + viewKey + " can't be exported as " + format);
+                }
+
+                response = new Response(HTTP_OK, TEXT_CONTENT_TYPE, diagram.getDefinition());
+            } else {
+                response = new Response(HTTP_OK, JSON_CONTENT_TYPE, objectMapper.writeValueAsString(toJson(diagramExporter.export(workspace))));
+            }
+        }
+
+        diagrams.put(diagramKey, response);
+        return response;
+    }
+
+    private Response bodyTooLarge() {
+        return new Response(HTTP_PAYLOAD_TOO_LARGE, TEXT_CONTENT_TYPE, "The request body must not be larger than " + maxBodySize + " bytes");
+    }
+
+    private Workspace parse(String content) throws Exception {
+        Workspace workspace;
+
+        if (content.trim().startsWith("{")) {
+            try {
+                workspace = WorkspaceUtils.fromJson(content);
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+        } else {
+            // restricted, so that requests can't include local files, run scripts, etc
+            StructurizrDslParser parser = new StructurizrDslParser();
+            parser.setRestricted(true);
+            try {
+                parser.parse(content);
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            workspace = parser.getWorkspace();
+        }
+
+        loadThemes(workspace, offline);
+        addDefaultViewsAndStyles(workspace);
+
+        return workspace;
+    }
+
+    /**
+     * Returns the diagrams as a JSON object, with the same names as the files written by the export command.
+     */
+    private ObjectNode toJson(Collection<Diagram> diagrams) {
+        ObjectNode json = objectMapper.createObjectNode();
+        for (Diagram diagram : diagrams) {
+            json.put(diagram.getKey(), diagram.getDefinition());
+
+            if (diagram.getLegend() != null) {
+                json.put(diagram.getKey() + "-key", diagram.getLegend().getDefinition());
+            }
+
+            int index = 1;
+            for (Diagram frame : diagram.getFrames()) {
+                json.put(diagram.getKey() + "-" + index, frame.getDefinition());
+                index++;
+            }
+        }
+
+        return json;
+    }
+
+    private Response metrics(HttpExchange exchange) {
+        StringBuilder buf = new StringBuilder();
+
+        buf.append("# TYPE structurizr_requests_total counter\n");
+        new TreeMap<>(requestsByStatus).forEach((status, count) ->
+                buf.append("structurizr_requests_total{status=\"").append(status).append("\"} ").append(count.sum()).append('\n'));
+
+        buf.append("# TYPE structurizr_request_duration_seconds histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            cumulative += latencyBuckets[i].sum();
+            buf.append("structurizr_request_duration_seconds_bucket{le=\"").append(LATENCY_BUCKETS[i]).append("\"} ").append(cumulative).append('\n');
+        }
+        buf.append("structurizr_request_duration_seconds_bucket{le=\"+Inf\"} ").append(latencyCount.sum()).append('\n');
+        buf.append("structurizr_request_duration_seconds_sum ").append(latencyNanos.sum() / 1e9).append('\n');
+        buf.append("structurizr_request_duration_seconds_count ").append(latencyCount.sum()).append('\n');
+
+        appendCacheMetrics(buf, "workspace", workspaces);
+        appendCacheMetrics(buf, "diagram", diagrams);
+
+        return new Response(HTTP_OK, METRICS_CONTENT_TYPE, buf.toString());
+    }
+
+    private void appendCacheMetrics(StringBuilder buf, String name, LruCache<?,?> cache) {
+        buf.append("# TYPE structurizr_").append(name).append("_cache_hits_total counter\n");
+        buf.append("structurizr_").append(name).append("_cache_hits_total ").append(cache.hits.sum()).append('\n');
+        buf.append("# TYPE structurizr_").append(name).append("_cache_misses_total counter\n");
+        buf.append("structurizr_").append(name).append("_cache_misses_total ").append(cache.misses.sum()).append('\n');
+        buf.append("# TYPE structurizr_").append(name).append("_cache_size gauge\n");
+        buf.append("structurizr_").append(name).append("_cache_size ").append(cache.size()).append('\n');
+    }
+
+    private void recordRequest(int status, long nanos) {
+        requestsByStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+        latencyCount.increment();
+        latencyNanos.add(nanos);
+
+        double seconds = nanos / 1e9;
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            if (seconds <= LATENCY_BUCKETS[i]) {
+                latencyBuckets[i].increment();
+                break;
+            }
+        }
+    }
+
+    private static Map<String,String> parameters(String query) {
+        Map<String,String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int index = parameter.indexOf('=');
+                if (index > 0) {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, index), StandardCharsets.UTF_8), URLDecoder.decode(parameter.substring(index + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        return parameters;
+    }
+
+    private static String hash(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private interface Handler {
+
+        Response handle(HttpExchange exchange) throws Exception;
+
+    }
+
+    /**
+     * A running server; stopping it also stops the request threads.
+     */
+    static final class Server {
+
+        private final HttpServer httpServer;
+        private final ExecutorService executor;
+
+        private Server(HttpServer httpServer, ExecutorService executor) {
+            this.httpServer = httpServer;
+            this.executor = executor;
+        }
+
+        int getPort() {
+            return httpServer.getAddress().getPort();
+        }
+
+        void stop() {
+            httpServer.stop(0);
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(STOP_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+    private static final class Response {
+
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+
+        Response(int status, String contentType, String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+
+    }
+
+    private static final class LruCache<K,V> {
+
+        private final Map<K,V> entries;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        LruCache(int maximumSize) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        synchronized V get(K key) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+
+            return value;
+        }
+
+        synchronized void put(K key, V value) {
+            entries.put(key, value);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+    }
+
+}
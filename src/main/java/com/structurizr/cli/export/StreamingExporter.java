@@ -0,0 +1,18 @@
+package com.structurizr.cli.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.export.Exporter;
+
+/**
+ * An exporter that writes its output as it goes (e.g. one view at a time), rather than building it all in memory
+ * as Strings first. Custom exporters (-format fqcn) can implement this to export very large workspaces
+ * with a small heap.
+ */
+public interface StreamingExporter extends Exporter {
+
+    /**
+     * Exports the workspace, writing each output file via the given output.
+     */
+    void export(Workspace workspace, ExportOutput output) throws Exception;
+
+}
@@ -0,0 +1,196 @@
+package com.structurizr.cli.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Component;
+import com.structurizr.model.Container;
+import com.structurizr.model.DeploymentNode;
+import com.structurizr.model.Element;
+import com.structurizr.model.GroupableElement;
+import com.structurizr.model.InfrastructureNode;
+import com.structurizr.model.ModelItem;
+import com.structurizr.model.Relationship;
+import com.structurizr.model.StaticStructureElementInstance;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Exports the model as delimited text (CSV or TSV) tables, one row per item: elements, relationships,
+ * deployment instances, tags and properties. The columns are fixed, so the tables can be loaded into a spreadsheet
+ * or database. Rows are written as they are produced, rather than building the text of each table in memory first,
+ * although the elements and relationships are copied into (sorted) lists, so memory use is still proportional
+ * to the size of the model.
+ *
+ * CSV values are quoted, and lines terminated, as per RFC 4180; in TSV, backslashes, tabs and line breaks within values
+ * are escaped (\\, \t, \n and \r), so that every row is a single line.
+ */
+public class TabularWorkspaceExporter implements StreamingExporter {
+
+    public static final String CSV_FORMAT = "csv";
+    public static final String TSV_FORMAT = "tsv";
+
+    private static final String[] ELEMENT_COLUMNS = { "id", "type", "name", "description", "technology", "parentId", "group", "url", "tags" };
+    private static final String[] RELATIONSHIP_COLUMNS = { "id", "sourceId", "destinationId", "description", "technology", "interactionStyle", "linkedRelationshipId", "url", "tags" };
+    private static final String[] DEPLOYMENT_INSTANCE_COLUMNS = { "id", "type", "deploymentNodeId", "environment", "elementId", "instanceId", "deploymentGroups" };
+    private static final String[] TAG_COLUMNS = { "itemId", "tag" };
+    private static final String[] PROPERTY_COLUMNS = { "itemId", "name", "value" };
+
+    // numeric IDs (the default) are sorted numerically, so that the output order is stable
+    private static final Comparator<ModelItem> ID_ORDER = Comparator.comparingInt((ModelItem item) -> item.getId().length()).thenComparing(ModelItem::getId);
+
+    private final String format;
+
+    /**
+     * Creates a CSV exporter.
+     */
+    public TabularWorkspaceExporter() {
+        this(CSV_FORMAT);
+    }
+
+    /**
+     * Creates an exporter for the given format (csv or tsv).
+     */
+    public TabularWorkspaceExporter(String format) {
+        if (!CSV_FORMAT.equalsIgnoreCase(format) && !TSV_FORMAT.equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("The format must be " + CSV_FORMAT + " or " + TSV_FORMAT);
+        }
+
+        this.format = format.toLowerCase();
+    }
+
+    @Override
+    public void export(Workspace workspace, ExportOutput output) throws Exception {
+        List<Element> elements = new ArrayList<>(workspace.getModel().getElements());
+        elements.sort(ID_ORDER);
+        List<Relationship> relationships = new ArrayList<>(workspace.getModel().getRelationships());
+        relationships.sort(ID_ORDER);
+
+        try (Writer writer = output.open("elements", format)) {
+            writeRow(writer, ELEMENT_COLUMNS);
+            for (Element element : elements) {
+                writeRow(writer,
+                        element.getId(),
+                        element.getClass().getSimpleName(),
+                        element.getName(),
+                        element.getDescription(),
+                        technology(element),
+                        element.getParent() != null ? element.getParent().getId() : null,
+                        element instanceof GroupableElement ? ((GroupableElement)element).getGroup() : null,
+                        element.getUrl(),
+                        element.getTags());
+            }
+        }
+
+        try (Writer writer = output.open("relationships", format)) {
+            writeRow(writer, RELATIONSHIP_COLUMNS);
+            for (Relationship relationship : relationships) {
+                writeRow(writer,
+                        relationship.getId(),
+                        relationship.getSourceId(),
+                        relationship.getDestinationId(),
+                        relationship.getDescription(),
+                        relationship.getTechnology(),
+                        relationship.getInteractionStyle() != null ? relationship.getInteractionStyle().toString() : null,
+                        relationship.getLinkedRelationshipId(),
+                        relationship.getUrl(),
+                        relationship.getTags());
+            }
+        }
+
+        try (Writer writer = output.open("deployment-instances", format)) {
+            writeRow(writer, DEPLOYMENT_INSTANCE_COLUMNS);
+            for (Element element : elements) {
+                if (element instanceof StaticStructureElementInstance) {
+                    StaticStructureElementInstance instance = (StaticStructureElementInstance)element;
+                    writeRow(writer,
+                            instance.getId(),
+                            instance.getClass().getSimpleName(),
+                            instance.getParent() != null ? instance.getParent().getId() : null,
+                            instance.getEnvironment(),
+                            instance.getElement() != null ? instance.getElement().getId() : null,
+                            String.valueOf(instance.getInstanceId()),
+                            String.join(",", new TreeSet<>(instance.getDeploymentGroups())));
+                }
+            }
+        }
+
+        try (Writer writer = output.open("tags", format)) {
+            writeRow(writer, TAG_COLUMNS);
+            writeTags(writer, elements);
+            writeTags(writer, relationships);
+        }
+
+        try (Writer writer = output.open("properties", format)) {
+            writeRow(writer, PROPERTY_COLUMNS);
+            writeProperties(writer, elements);
+            writeProperties(writer, relationships);
+        }
+    }
+
+    private static String technology(Element element) {
+        if (element instanceof Container) {
+            return ((Container)element).getTechnology();
+        } else if (element instanceof Component) {
+            return ((Component)element).getTechnology();
+        } else if (element instanceof DeploymentNode) {
+            return ((DeploymentNode)element).getTechnology();
+        } else if (element instanceof InfrastructureNode) {
+            return ((InfrastructureNode)element).getTechnology();
+        }
+
+        return null;
+    }
+
+    private void writeTags(Writer writer, Collection<? extends ModelItem> items) throws IOException {
+        for (ModelItem item : items) {
+            // in the order they were added
+            for (String tag : item.getTags().split(",")) {
+                if (!tag.isBlank()) {
+                    writeRow(writer, item.getId(), tag.trim());
+                }
+            }
+        }
+    }
+
+    private void writeProperties(Writer writer, Collection<? extends ModelItem> items) throws IOException {
+        for (ModelItem item : items) {
+            for (Map.Entry<String,String> property : new TreeMap<>(item.getProperties()).entrySet()) {
+                writeRow(writer, item.getId(), property.getKey(), property.getValue());
+            }
+        }
+    }
+
+    private void writeRow(Writer writer, String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(TSV_FORMAT.equals(format) ? '\t' : ',');
+            }
+
+            if (values[i] != null) {
+                writer.write(TSV_FORMAT.equals(format) ? escapeTsv(values[i]) : escapeCsv(values[i]));
+            }
+        }
+
+        writer.write(TSV_FORMAT.equals(format) ? "\n" : "\r\n");
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') > -1 || value.indexOf('"') > -1 || value.indexOf('\n') > -1 || value.indexOf('\r') > -1) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        return value;
+    }
+
+    private static String escapeTsv(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.structurizr.cli.export;
+
+import com.structurizr.cli.Metrics;
+import com.structurizr.export.AbstractDiagramExporter;
+import com.structurizr.export.Diagram;
+import com.structurizr.view.View;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports views one at a time, recording how long each takes and, if a timeout is set, abandoning any view that
+ * takes longer than that so that the remaining views can still be exported.
+ *
+ * With a timeout, each view is exported on a separate worker thread. A thread that times out can't be stopped
+ * (it's interrupted, but exporters don't check for this), so it's left to finish in the background and a new
+ * worker thread and exporter instance are used for the remaining views. If the exporter can't be instantiated again
+ * (i.e. it has no public no-arg constructor), the remaining views are failed rather than being exported with an
+ * instance that may still be in use.
+ */
+final class ViewExportWatchdog implements AutoCloseable {
+
+    private static final Log log = LogFactory.getLog(ViewExportWatchdog.class);
+
+    private final long timeout;
+    private final Metrics metrics;
+
+    private AbstractDiagramExporter exporter;
+    private ExecutorService executorService;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final Map<String,Long> timings = new LinkedHashMap<>();
+    private final List<String> failedViews = new ArrayList<>();
+
+    /**
+     * @param exporter  the exporter to use
+     * @param timeout   the maximum time to allow for each view, in milliseconds (0 for no timeout)
+     * @param metrics   metrics to record the export phase in
+     */
+    ViewExportWatchdog(AbstractDiagramExporter exporter, long timeout, Metrics metrics) {
+        this.exporter = exporter;
+        this.timeout = timeout;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Exports the given view, returning null if the view can't be exported with this exporter or timed out.
+     */
+    Diagram export(View view) throws Exception {
+        long start = System.nanoTime();
+        try {
+            if (exporter == null) {
+                log.error(" - skipped view " + view.getKey() + " after an earlier view was abandoned");
+                failedViews.add(view.getKey());
+
+                return null;
+            }
+
+            if (timeout <= 0) {
+                return exportView(exporter, view);
+            }
+
+            if (executorService == null) {
+                executorService = createExecutorService();
+            }
+
+            AbstractDiagramExporter exporter = this.exporter;
+            Future<Diagram> future = executorService.submit(() -> exportView(exporter, view));
+            try {
+                return future.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.error(" - abandoned view " + view.getKey() + " after " + timeout + "ms");
+                failedViews.add(view.getKey());
+
+                // the worker thread (and exporter) may still be busy with the abandoned view
+                executorService.shutdownNow();
+                executorService = null;
+                this.exporter = newInstance(exporter);
+
+                return null;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception)e.getCause();
+                }
+
+                throw e;
+            }
+        } finally {
+            timings.put(view.getKey(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private Diagram exportView(AbstractDiagramExporter exporter, View view) {
+        try (Metrics.Phase phase = metrics.phase("export")) {
+            return ExportCommand.exportView(exporter, view);
+        }
+    }
+
+    /**
+     * Returns the keys of the views that timed out, or were skipped because the exporter could not be replaced.
+     */
+    List<String> getFailedViews() {
+        return failedViews;
+    }
+
+    /**
+     * Returns the slowest views (key and time in milliseconds), slowest first.
+     */
+    List<Map.Entry<String,Long>> getSlowestViews(int number) {
+        List<Map.Entry<String,Long>> views = new ArrayList<>(timings.entrySet());
+        views.sort(Map.Entry.<String,Long>comparingByValue(Comparator.reverseOrder()));
+
+        return views.subList(0, Math.min(number, views.size()));
+    }
+
+    @Override
+    public void close() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static AbstractDiagramExporter newInstance(AbstractDiagramExporter exporter) {
+        try {
+            return exporter.getClass().getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            log.error(" - could not create a new instance of " + exporter.getClass().getName() + " (" + e + "), so the remaining views will not be exported");
+            return null;
+        }
+    }
+
+    private ExecutorService createExecutorService() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "structurizr-export-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
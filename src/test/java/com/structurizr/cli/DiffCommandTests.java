@@ -0,0 +1,40 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiffCommandTests {
+
+    @Test
+    public void run_WritesTheDifferencesAsJson() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setSoftwareSystems(10);
+        File before = new File(tmpDir, "before.dsl");
+        generator.write(before);
+        generator.setSoftwareSystems(11);
+        File after = new File(tmpDir, "after.dsl");
+        generator.write(after);
+
+        File output = new File(tmpDir, "diff.json");
+        DiffCommand command = new DiffCommand();
+        Metrics metrics = new Metrics("diff");
+        command.setMetrics(metrics);
+        command.run("-before", before.getAbsolutePath(), "-after", after.getAbsolutePath(), "-format", "json", "-output", output.getAbsolutePath());
+
+        JsonNode json = new ObjectMapper().readTree(output);
+        assertTrue(json.path("elements").path("added").size() > 0);
+        assertTrue(json.path("elements").path("removed").isEmpty());
+
+        // the size of each input is recorded separately
+        assertTrue(metrics.getCount("afterElements") > metrics.getCount("beforeElements"));
+        assertEquals(0, metrics.getCount("elements"));
+    }
+
+}
@@ -1,12 +1,26 @@
 package com.structurizr.cli;
 
+import com.structurizr.Workspace;
 import com.structurizr.cli.export.ExportCommand;
+import com.structurizr.cli.export.ExportOutput;
+import com.structurizr.cli.export.StreamingExporter;
+import com.structurizr.view.View;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ExportCommandTests {
 
@@ -25,4 +39,220 @@ public class ExportCommandTests {
         assertTrue(new File(tmpDir, "structurizr-SystemLandscape.puml").exists());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void run_WritesDocumentationAndDecisionsToAStaticSite() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+
+        String[] args = {
+                "-workspace", "src/test/dsl/workspace.dsl",
+                "-output", tmpDir.getCanonicalPath(),
+                "-format", "site"
+        };
+        new ExportCommand().run(args);
+
+        assertTrue(new File(tmpDir, "index.html").exists());
+        File section = new File(tmpDir, "software-system/section-1.html");
+        File decision = new File(tmpDir, "software-system/decision-1.html");
+        assertTrue(Files.readString(section.toPath()).contains("<h2>Context</h2>"));
+        assertTrue(Files.readString(decision.toPath()).contains("Record architecture decisions"));
+
+        // unchanged pages are not written again
+        section.setLastModified(0);
+        new ExportCommand().run(args);
+        assertEquals(0, section.lastModified());
+    }
+
+    @Test
+    public void run_WritesImagesAlongsideThePagesThatReferenceThem_AndDeletesStaleFiles() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        File docsDir = new File(tmpDir, "docs");
+        docsDir.mkdirs();
+        Files.writeString(new File(docsDir, "01-context.md").toPath(), "## Context\n\n![](diagram.svg)");
+        Files.writeString(new File(docsDir, "02-other.md").toPath(), "## Other");
+        Files.writeString(new File(docsDir, "diagram.svg").toPath(), "<svg xmlns=\"http://www.w3.org/2000/svg\"/>");
+        File workspaceFile = new File(tmpDir, "workspace.dsl");
+        Files.writeString(workspaceFile.toPath(), "workspace {\n    !docs docs\n}");
+        File outputDir = new File(tmpDir, "output");
+        String[] args = { "-workspace", workspaceFile.getCanonicalPath(), "-output", outputDir.getCanonicalPath(), "-format", "site" };
+
+        new ExportCommand().run(args);
+
+        File section = new File(outputDir, "workspace/section-1.html");
+        Matcher matcher = Pattern.compile("<img src=\"([^\"]+)\"").matcher(Files.readString(section.toPath()));
+        assertTrue(matcher.find());
+        File image = new File(section.getParentFile(), matcher.group(1));
+        assertTrue(image.isFile());
+        assertEquals("<svg xmlns=\"http://www.w3.org/2000/svg\"/>", Files.readString(image.toPath()));
+
+        // files for deleted sections and images are removed
+        File otherSection = new File(outputDir, "workspace/section-2.html");
+        assertTrue(otherSection.exists());
+        Files.delete(new File(docsDir, "02-other.md").toPath());
+        Files.delete(new File(docsDir, "diagram.svg").toPath());
+        new ExportCommand().run(args);
+
+        assertTrue(section.exists());
+        assertFalse(otherSection.exists());
+        assertFalse(image.exists());
+        assertFalse(Files.readString(new File(outputDir, ".structurizr-site.json").toPath()).contains("section-2.html"));
+    }
+
+    @Test
+    public void run_ExportsOnlyTheAffectedViews_WhenIncremental() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        File workspaceFile = new File(tmpDir, "workspace.dsl");
+        File outputDir = new File(tmpDir, "output");
+        String dsl = "workspace {\n" +
+                "    model {\n" +
+                "        u = person \"User\"\n" +
+                "        a = softwareSystem \"A\" {\n" +
+                "            web = container \"Web\" \"%s\"\n" +
+                "        }\n" +
+                "        b = softwareSystem \"B\"\n" +
+                "        u -> web \"Uses\"\n" +
+                "        u -> b \"Uses\"\n" +
+                "    }\n" +
+                "    views {\n" +
+                "        systemContext a \"A\" {\n" +
+                "            include *\n" +
+                "        }\n" +
+                "        systemContext b \"B\" {\n" +
+                "            include *\n" +
+                "        }\n" +
+                "        container a \"Containers\" {\n" +
+                "            include *\n" +
+                "        }\n" +
+                "    }\n" +
+                "}";
+        String[] args = { "-workspace", workspaceFile.getCanonicalPath(), "-output", outputDir.getCanonicalPath(), "-format", "plantuml", "-incremental" };
+
+        Files.writeString(workspaceFile.toPath(), String.format(dsl, "Version 1"));
+        new ExportCommand().run(args);
+        File a = new File(outputDir, "structurizr-A.puml");
+        File b = new File(outputDir, "structurizr-B.puml");
+        File containers = new File(outputDir, "structurizr-Containers.puml");
+        assertTrue(a.exists() && b.exists() && containers.exists());
+
+        // only the container view includes the container
+        Files.writeString(workspaceFile.toPath(), String.format(dsl, "Version 2"));
+        for (File file : List.of(a, b, containers)) {
+            file.setLastModified(0);
+        }
+        new ExportCommand().run(args);
+
+        assertEquals(0, a.lastModified());
+        assertEquals(0, b.lastModified());
+        assertNotEquals(0, containers.lastModified());
+        assertTrue(Files.readString(containers.toPath()).contains("Version 2"));
+    }
+
+    @Test
+    public void run_WritesTheSameFiles_InLowMemoryMode() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setDynamicSteps(3);
+        File workspaceFile = new File(tmpDir, "workspace.dsl");
+        generator.write(workspaceFile);
+
+        File outputDir = new File(tmpDir, "output");
+        new ExportCommand().run("-workspace", workspaceFile.getCanonicalPath(), "-output", outputDir.getCanonicalPath(), "-format", "plantuml");
+        File lowMemoryOutputDir = new File(tmpDir, "low-memory-output");
+        new ExportCommand().run("-workspace", workspaceFile.getCanonicalPath(), "-output", lowMemoryOutputDir.getCanonicalPath(), "-format", "plantuml", "-lowMemory");
+
+        String[] filenames = outputDir.list();
+        Arrays.sort(filenames);
+        String[] lowMemoryFilenames = lowMemoryOutputDir.list();
+        Arrays.sort(lowMemoryFilenames);
+        assertArrayEquals(filenames, lowMemoryFilenames);
+        assertTrue(filenames.length > 0);
+
+        // the workspace is parsed twice, and the order of relationships in deployment views can differ between parses
+        for (String filename : filenames) {
+            assertEquals(sortedLines(new File(outputDir, filename)), sortedLines(new File(lowMemoryOutputDir, filename)));
+        }
+    }
+
+    @Test
+    public void run_WritesEachViewInExactlyOneShard() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setDynamicSteps(3);
+        File workspaceFile = new File(tmpDir, "workspace.dsl");
+        generator.write(workspaceFile);
+
+        File outputDir = new File(tmpDir, "output");
+        new ExportCommand().run("-workspace", workspaceFile.getCanonicalPath(), "-output", outputDir.getCanonicalPath(), "-format", "plantuml");
+        String[] filenames = outputDir.list();
+        Arrays.sort(filenames);
+
+        File shard1OutputDir = new File(tmpDir, "shard-1");
+        new ExportCommand().run("-workspace", workspaceFile.getCanonicalPath(), "-output", shard1OutputDir.getCanonicalPath(), "-format", "plantuml", "-shard", "1/2");
+        File shard2OutputDir = new File(tmpDir, "shard-2");
+        new ExportCommand().run("-workspace", workspaceFile.getCanonicalPath(), "-output", shard2OutputDir.getCanonicalPath(), "-format", "plantuml", "-shard", "2/2");
+
+        List<String> shard1Filenames = Arrays.asList(shard1OutputDir.list());
+        List<String> shard2Filenames = Arrays.asList(shard2OutputDir.list());
+        assertFalse(shard1Filenames.isEmpty());
+        assertFalse(shard2Filenames.isEmpty());
+        assertTrue(Collections.disjoint(shard1Filenames, shard2Filenames));
+
+        List<String> shardFilenames = new ArrayList<>(shard1Filenames);
+        shardFilenames.addAll(shard2Filenames);
+        Collections.sort(shardFilenames);
+        assertEquals(Arrays.asList(filenames), shardFilenames);
+    }
+
+    @Test
+    public void run_WritesOutputFromAStreamingExporter() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+
+        String[] args = {
+                "-workspace", "src/test/merge/workspace.dsl",
+                "-output", tmpDir.getCanonicalPath(),
+                "-format", KeysExporter.class.getName()
+        };
+        new ExportCommand().run(args);
+
+        assertEquals("key", Files.readString(new File(tmpDir, "structurizr-key.txt").toPath()));
+    }
+
+    @Test
+    public void run_WritesGzippedTables_WhenTheFormatIsCsv() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+
+        String[] args = {
+                "-workspace", "src/test/merge/workspace.dsl",
+                "-output", tmpDir.getCanonicalPath(),
+                "-format", "csv",
+                "-gzip"
+        };
+        new ExportCommand().run(args);
+
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(new File(tmpDir, "structurizr-elements.csv.gz")))) {
+            String csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(csv.startsWith("id,type,name,description,technology,parentId,group,url,tags\r\n"));
+            assertTrue(csv.contains(",Person,User,"));
+        }
+    }
+
+    private List<String> sortedLines(File file) throws Exception {
+        List<String> lines = Files.readAllLines(file.toPath());
+        Collections.sort(lines);
+
+        return lines;
+    }
+
+    public static class KeysExporter implements StreamingExporter {
+
+        @Override
+        public void export(Workspace workspace, ExportOutput output) throws Exception {
+            for (View view : workspace.getViews().getViews()) {
+                try (Writer writer = output.open(view.getKey(), "txt")) {
+                    writer.write(view.getKey());
+                }
+            }
+        }
+
+    }
+
+}
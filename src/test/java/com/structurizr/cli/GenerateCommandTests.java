@@ -0,0 +1,26 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GenerateCommandTests {
+
+    @Test
+    public void run_GeneratesJson() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        File file = new File(tmpDir, "workspace.json");
+
+        new GenerateCommand().run("-output", file.getAbsolutePath(), "-softwareSystems", "3", "-people", "2");
+
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(file);
+        assertEquals(3, workspace.getModel().getSoftwareSystems().size());
+        assertEquals(2, workspace.getModel().getPeople().size());
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.dsl.StructurizrDslParser;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncludeCacheTests {
+
+    @Test
+    public void prefetch_FetchesRemoteIncludes_AndRevalidatesThemWithConditionalRequests() throws Exception {
+        Map<String,Integer> responses = new ConcurrentHashMap<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        Map<String,String> files = Map.of(
+                "/model.dsl", "u = person \"User\"\n!include " + baseUrl + "/systems.dsl",
+                "/systems.dsl", "s = softwareSystem \"Software System\"\nu -> s \"Uses\""
+        );
+        server.createContext("/", exchange -> {
+            String etag = "\"" + exchange.getRequestURI().getPath() + "\"";
+            int status = etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")) ? 304 : 200;
+            responses.merge(exchange.getRequestURI().getPath() + " " + status, 1, Integer::sum);
+
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (status == 304) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] bytes = files.get(exchange.getRequestURI().getPath()).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        });
+        server.start();
+
+        File directory = Files.createTempDirectory("structurizr").toFile();
+        File workspaceFile = new File(directory, "workspace.dsl");
+        String dsl = "workspace {\n    model {\n        !include " + baseUrl + "/model.dsl\n    }\n}";
+        assertTrue(IncludeCache.hasRemoteIncludes(dsl));
+
+        try {
+            IncludeCache includeCache = new IncludeCache(new File(directory, "cache"), StandardCharsets.UTF_8);
+            String rewrittenDsl = includeCache.prefetch(dsl, directory);
+            assertFalse(rewrittenDsl.contains(baseUrl));
+            assertEquals(2, includeCache.getFetched());
+
+            StructurizrDslParser parser = new StructurizrDslParser();
+            parser.parse(rewrittenDsl, workspaceFile);
+            Workspace workspace = parser.getWorkspace();
+            assertNotNull(workspace.getModel().getPersonWithName("User"));
+            assertEquals(1, workspace.getModel().getRelationships().size());
+
+            includeCache = new IncludeCache(new File(directory, "cache"), StandardCharsets.UTF_8);
+            assertEquals(rewrittenDsl, includeCache.prefetch(dsl, directory));
+            assertEquals(0, includeCache.getFetched());
+            assertEquals(2, includeCache.getRevalidated());
+            assertEquals(1, responses.get("/model.dsl 304"));
+            assertEquals(1, responses.get("/systems.dsl 304"));
+        } finally {
+            server.stop(0);
+        }
+
+        // the cached copies are used when the server is unavailable
+        IncludeCache includeCache = new IncludeCache(new File(directory, "cache"), StandardCharsets.UTF_8);
+        includeCache.setTimeout(1000);
+        StructurizrDslParser parser = new StructurizrDslParser();
+        parser.parse(includeCache.prefetch(dsl, directory), workspaceFile);
+        assertNotNull(parser.getWorkspace().getModel().getSoftwareSystemWithName("Software System"));
+        assertEquals(2, includeCache.getStale());
+    }
+
+}
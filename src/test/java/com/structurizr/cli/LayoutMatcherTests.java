@@ -0,0 +1,56 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Person;
+import com.structurizr.model.Relationship;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.SystemLandscapeView;
+import com.structurizr.view.Vertex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayoutMatcherTests {
+
+    @Test
+    public void copyLayoutInformation_MatchesElementsAndRelationships_WhenIdsDiffer() {
+        Workspace workspaceWithLayout = new Workspace("Name", "Description");
+        Person user1 = workspaceWithLayout.getModel().addPerson("User");
+        SoftwareSystem softwareSystem1 = workspaceWithLayout.getModel().addSoftwareSystem("Software System");
+        Relationship relationship1 = user1.uses(softwareSystem1, "Uses");
+        SystemLandscapeView viewWithLayout = workspaceWithLayout.getViews().createSystemLandscapeView("landscape", "Description");
+        viewWithLayout.addAllElements();
+        viewWithLayout.getElementView(user1).setX(100);
+        viewWithLayout.getElementView(user1).setY(200);
+        viewWithLayout.getElementView(softwareSystem1).setX(300);
+        viewWithLayout.getElementView(softwareSystem1).setY(400);
+        viewWithLayout.getRelationshipView(relationship1).setVertices(List.of(new Vertex(10, 20)));
+
+        // elements are created in a different order, so the IDs differ
+        Workspace workspaceWithoutLayout = new Workspace("Name", "Description");
+        SoftwareSystem other = workspaceWithoutLayout.getModel().addSoftwareSystem("Other");
+        SoftwareSystem softwareSystem2 = workspaceWithoutLayout.getModel().addSoftwareSystem("Software System");
+        Person user2 = workspaceWithoutLayout.getModel().addPerson("User");
+        Relationship relationship2 = user2.uses(softwareSystem2, "Uses");
+        SystemLandscapeView viewWithoutLayout = workspaceWithoutLayout.getViews().createSystemLandscapeView("landscape", "Description");
+        viewWithoutLayout.addAllElements();
+
+        LayoutMatcher.Result result = LayoutMatcher.copyLayoutInformation(viewWithLayout, viewWithoutLayout);
+
+        assertEquals(2, result.getMatchedElements().size());
+        assertFalse(result.getMatchedElements().contains(other));
+        assertEquals(1, result.getMatchedRelationships().size());
+
+        assertEquals(100, viewWithoutLayout.getElementView(user2).getX());
+        assertEquals(200, viewWithoutLayout.getElementView(user2).getY());
+        assertEquals(300, viewWithoutLayout.getElementView(softwareSystem2).getX());
+        assertEquals(400, viewWithoutLayout.getElementView(softwareSystem2).getY());
+
+        Vertex vertex = viewWithoutLayout.getRelationshipView(relationship2).getVertices().iterator().next();
+        assertEquals(10, vertex.getX());
+        assertEquals(20, vertex.getY());
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.structurizr.cli;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManifestRunnerTests {
+
+    @Test
+    public void run_RetriesServerErrors_ButNotClientErrors() throws Exception {
+        List<RemoteWorkspace> workspaces = new ArrayList<>();
+        workspaces.add(new RemoteWorkspace("http://localhost", 1, "key", "secret", null, null, null));
+        workspaces.add(new RemoteWorkspace("http://localhost", 2, "key", "secret", null, null, null));
+
+        AtomicInteger attemptsForWorkspace1 = new AtomicInteger();
+        AtomicInteger attemptsForWorkspace2 = new AtomicInteger();
+
+        ManifestRunner runner = new ManifestRunner(2, 1, 3, 1);
+        ManifestRunner.Summary summary = runner.run("push", workspaces, w -> {
+            if (w.getWorkspaceId() == 1) {
+                if (attemptsForWorkspace1.incrementAndGet() < 3) {
+                    throw new WorkspaceApiException(503, "Service unavailable");
+                }
+                return "pushed";
+            } else {
+                attemptsForWorkspace2.incrementAndGet();
+                throw new WorkspaceApiException(403, "Forbidden");
+            }
+        });
+
+        assertEquals(3, attemptsForWorkspace1.get());
+        assertEquals(1, attemptsForWorkspace2.get());
+        assertTrue(summary.hasFailures());
+        assertEquals(Map.of("pushed", 1, "failed", 1), summary.getOutcomes());
+    }
+
+    @Test
+    public void run_LimitsConcurrentRequestsPerHost_ButNotTheRestOfTheTask() throws Exception {
+        List<RemoteWorkspace> workspaces = new ArrayList<>();
+        workspaces.add(new RemoteWorkspace("http://localhost", 1, "key", "secret", null, null, null));
+        workspaces.add(new RemoteWorkspace("http://localhost", 2, "key", "secret", null, null, null));
+
+        // both tasks must be running at the same time to get past the barrier, even with a host concurrency of 1
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ManifestRunner runner = new ManifestRunner(2, 1, 0, 1);
+        ManifestRunner.Summary summary = runner.run("pull", workspaces, w -> {
+            barrier.await(10, TimeUnit.SECONDS);
+            return "pulled";
+        });
+
+        assertFalse(summary.hasFailures());
+    }
+
+    @Test
+    public void fromCommandLine_ThrowsAParseException_WhenAnOptionIsNotANumber() throws Exception {
+        Options options = new Options();
+        ManifestRunner.addOptions(options, "Manifest");
+        CommandLine cmd = new DefaultParser().parse(options, new String[] { "-hostConcurrency", "four" });
+
+        ParseException e = assertThrows(ParseException.class, () -> ManifestRunner.fromCommandLine(cmd));
+        assertEquals("Invalid value for -hostConcurrency: four", e.getMessage());
+    }
+
+    @Test
+    public void run_PushesEachWorkspaceInTheManifest() throws Exception {
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            Path dir = Files.createTempDirectory("structurizr");
+            Files.copy(Path.of("src/test/merge/workspace.dsl"), dir.resolve("workspace.dsl"));
+            Path manifest = dir.resolve("manifest.json");
+            Files.writeString(manifest, "[" +
+                    "{ \"url\": \"" + api.getUrl() + "\", \"id\": 1, \"key\": \"key\", \"secret\": \"secret\", \"workspace\": \"workspace.dsl\" }," +
+                    "{ \"url\": \"" + api.getUrl() + "\", \"id\": 2, \"key\": \"key\", \"secret\": \"secret\", \"workspace\": \"workspace.dsl\" }" +
+                    "]");
+
+            new PushCommand().run("-manifest", manifest.toString(), "-merge", "false", "-archive", "false");
+
+            assertNotNull(api.getWorkspace("/workspace/1"));
+            assertNotNull(api.getWorkspace("/workspace/2"));
+            assertTrue(api.getRequests().contains("PUT /workspace/1 200"));
+            assertTrue(api.getRequests().contains("PUT /workspace/2 200"));
+        }
+    }
+
+}
@@ -36,4 +36,49 @@ public class MergeCommandTests {
         assertEquals(456, elementView.getY());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void run_MergesLayoutFromMultipleSources_InPriorityOrder() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+
+        Workspace layout = WorkspaceUtils.loadWorkspaceFromJson(new File("src/test/merge/workspace.json"));
+        ElementView elementView = layout.getViews().getSystemLandscapeViews().iterator().next().getElementView(layout.getModel().getPersonWithName("User"));
+        elementView.setX(999);
+        elementView.setY(888);
+        File otherLayout = new File(tmpDir, "other.json");
+        WorkspaceUtils.saveWorkspaceToJson(layout, otherLayout);
+
+        String[] args = {
+                "-workspace", "src/test/merge/workspace.dsl",
+                "-layout", otherLayout.getCanonicalPath(),
+                "-layout", "src/test/merge/workspace.json",
+                "-output", new File(tmpDir, "merged.json").getCanonicalPath()
+        };
+        new MergeCommand().run(args);
+
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File(tmpDir, "merged.json"));
+        Person user = workspace.getModel().getPersonWithName("User");
+        SystemLandscapeView view = workspace.getViews().getSystemLandscapeViews().iterator().next();
+        assertEquals(999, view.getElementView(user).getX());
+        assertEquals(888, view.getElementView(user).getY());
+    }
+
+    @Test
+    public void run_MergesLayoutForASingleView() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+
+        String[] args = {
+                "-workspace", "src/test/merge/workspace.dsl",
+                "-layout", "src/test/merge/workspace.json",
+                "-view", "key",
+                "-output", new File(tmpDir, "merged.json").getCanonicalPath()
+        };
+        new MergeCommand().run(args);
+
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File(tmpDir, "merged.json"));
+        Person user = workspace.getModel().getPersonWithName("User");
+        SystemLandscapeView view = workspace.getViews().getSystemLandscapeViews().iterator().next();
+        assertEquals(123, view.getElementView(user).getX());
+        assertEquals(456, view.getElementView(user).getY());
+    }
+
+}
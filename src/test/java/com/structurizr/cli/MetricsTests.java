@@ -0,0 +1,68 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTests {
+
+    @Test
+    public void write_IncludesPhasesAndCounts() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        File metricsFile = new File(tmpDir, "metrics.json");
+
+        Metrics metrics = new Metrics("merge");
+        MergeCommand command = new MergeCommand();
+        command.setMetrics(metrics);
+
+        String[] args = {
+                "-workspace", "src/test/merge/workspace.dsl",
+                "-layout", "src/test/merge/workspace.json",
+                "-output", new File(tmpDir, "merged.json").getCanonicalPath()
+        };
+        command.run(args);
+        metrics.write(metricsFile);
+
+        JsonNode json = new ObjectMapper().readTree(metricsFile);
+        assertEquals("merge", json.get("command").asText());
+
+        JsonNode phases = json.get("phases");
+        assertEquals("parse", phases.get(0).get("name").asText());
+        assertEquals(2, phases.get(0).get("invocations").asInt());
+        assertEquals("validate", phases.get(1).get("name").asText());
+        assertEquals("merge", phases.get(2).get("name").asText());
+        assertEquals("write", phases.get(3).get("name").asText());
+        assertTrue(phases.get(0).get("allocatedBytes").asLong() > 0);
+
+        // the size of the workspace being merged into, not including the layout source
+        assertEquals(1, json.get("counts").get("elements").asInt());
+        assertEquals(1, json.get("counts").get("files").asInt());
+        assertTrue(json.get("gc").isArray());
+    }
+
+    @Test
+    public void write_CountsOnlyTheWorkspaceBeingMergedInto_WhenMergingASingleViewFromJson() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+
+        Metrics metrics = new Metrics("merge");
+        MergeCommand command = new MergeCommand();
+        command.setMetrics(metrics);
+
+        String[] args = {
+                "-workspace", "src/test/merge/workspace.dsl",
+                "-layout", "src/test/merge/workspace.json",
+                "-view", "key",
+                "-output", new File(tmpDir, "merged.json").getCanonicalPath()
+        };
+        command.run(args);
+
+        assertEquals(1, metrics.getCount("elements"));
+        assertEquals(1, metrics.getCount("views"));
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Container;
+import com.structurizr.model.ContainerInstance;
+import com.structurizr.model.DeploymentNode;
+import com.structurizr.model.Person;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.util.WorkspaceUtils;
+import com.structurizr.view.ContainerView;
+import com.structurizr.view.DeploymentView;
+import com.structurizr.view.ModelView;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartialWorkspaceReaderTests {
+
+    private Workspace createWorkspace() {
+        Workspace workspace = new Workspace("Name", "Description");
+        Person user = workspace.getModel().addPerson("User");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        Container webApplication = softwareSystem.addContainer("Web Application");
+        Container database = softwareSystem.addContainer("Database");
+        user.uses(webApplication, "Uses");
+        webApplication.uses(database, "Reads from");
+        softwareSystem.addContainer("Worker").addComponent("Component");
+        workspace.getModel().addSoftwareSystem("Other");
+
+        DeploymentNode server = workspace.getModel().addDeploymentNode("Live", "Server", "", "");
+        server.addDeploymentNode("Tomcat").add(webApplication);
+
+        ContainerView containerView = workspace.getViews().createContainerView(softwareSystem, "containers", "Description");
+        containerView.add(user);
+        containerView.add(webApplication);
+        containerView.add(database);
+        containerView.getElementView(webApplication).setX(123);
+
+        DeploymentView deploymentView = workspace.getViews().createDeploymentView(softwareSystem, "deployment", "Description");
+        deploymentView.setEnvironment("Live");
+        deploymentView.addAllDeploymentNodes();
+
+        workspace.getViews().createSystemLandscapeView("landscape", "Description").addAllElements();
+
+        return workspace;
+    }
+
+    @Test
+    public void read_ReadsOnlyTheViewAndTheModelItemsItNeeds() throws Exception {
+        File file = File.createTempFile("workspace", ".json");
+        file.deleteOnExit();
+        WorkspaceUtils.saveWorkspaceToJson(createWorkspace(), file);
+
+        Workspace workspace = new PartialWorkspaceReader().read(file, "containers");
+
+        assertEquals(1, workspace.getViews().getViews().size());
+        ModelView view = (ModelView)workspace.getViews().getViewWithKey("containers");
+        assertEquals(3, view.getElements().size());
+        assertEquals(2, view.getRelationships().size());
+
+        // user, software system (the scope and parent), web application and database
+        assertEquals(4, workspace.getModel().getElements().size());
+        assertNull(workspace.getModel().getSoftwareSystemWithName("Other"));
+        assertEquals(2, workspace.getModel().getRelationships().size());
+
+        Container webApplication = workspace.getModel().getSoftwareSystemWithName("Software System").getContainerWithName("Web Application");
+        assertEquals("Container://Software System.Web Application", webApplication.getCanonicalName());
+        assertEquals(123, view.getElementView(webApplication).getX());
+    }
+
+    @Test
+    public void read_IncludesReferencedElements_WhenReadingADeploymentView() throws Exception {
+        File file = File.createTempFile("workspace", ".json");
+        file.deleteOnExit();
+        WorkspaceUtils.saveWorkspaceToJson(createWorkspace(), file);
+
+        Workspace workspace = new PartialWorkspaceReader().read(file, "deployment");
+
+        ContainerInstance containerInstance = (ContainerInstance)workspace.getModel().getElements().stream()
+                .filter(e -> e instanceof ContainerInstance)
+                .findFirst().orElseThrow();
+        assertEquals("Web Application", containerInstance.getContainer().getName());
+        assertEquals("ContainerInstance://Live/Server/Tomcat/Software System.Web Application[1]", containerInstance.getCanonicalName());
+    }
+
+    @Test
+    public void read_ReadsTheViewWithTheGivenKey_WhenThereAreSeveralViewsOfTheSameType() throws Exception {
+        Workspace workspace = createWorkspace();
+        SoftwareSystem softwareSystem = workspace.getModel().getSoftwareSystemWithName("Software System");
+        ContainerView containerView = workspace.getViews().createContainerView(softwareSystem, "worker", "Description");
+        containerView.add(softwareSystem.getContainerWithName("Worker"));
+
+        File file = File.createTempFile("workspace", ".json");
+        file.deleteOnExit();
+        WorkspaceUtils.saveWorkspaceToJson(workspace, file);
+
+        workspace = new PartialWorkspaceReader().read(file, "worker");
+
+        assertEquals(1, workspace.getViews().getContainerViews().size());
+        assertEquals("worker", workspace.getViews().getContainerViews().iterator().next().getKey());
+        assertNotNull(workspace.getModel().getSoftwareSystemWithName("Software System").getContainerWithName("Worker"));
+        assertNull(workspace.getModel().getSoftwareSystemWithName("Software System").getContainerWithName("Web Application"));
+    }
+
+    @Test
+    public void read_ReturnsNull_WhenTheViewDoesNotExist() throws Exception {
+        File file = File.createTempFile("workspace", ".json");
+        file.deleteOnExit();
+        WorkspaceUtils.saveWorkspaceToJson(createWorkspace(), file);
+
+        assertNull(new PartialWorkspaceReader().read(file, "missing"));
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublishCommandTests {
+
+    @Test
+    public void run_LocksPushesAndUnlocksTheWorkspace() throws Exception {
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            api.putWorkspace("/workspace/1234", WorkspaceUtils.toJson(new Workspace("Name", "Description"), false), null);
+            Path dir = Files.createTempDirectory("structurizr");
+            Files.copy(Path.of("src/test/merge/workspace.dsl"), dir.resolve("workspace.dsl"));
+
+            new PublishCommand().run("-url", api.getUrl(), "-id", "1234", "-key", "key", "-secret", "secret", "-w", dir.resolve("workspace.dsl").toString());
+
+            List<String> requests = api.getRequests();
+            assertEquals(4, requests.size());
+            assertEquals("PUT /workspace/1234/lock 200", requests.get(0));
+            assertEquals("GET /workspace/1234 200", requests.get(1));
+            assertEquals("PUT /workspace/1234 200", requests.get(2));
+            assertEquals("DELETE /workspace/1234/lock 200", requests.get(3));
+            assertFalse(api.isLocked("/workspace/1234"));
+        }
+    }
+
+    @Test
+    public void run_UnlocksTheWorkspace_WhenTheWorkspaceCannotBeParsed() throws Exception {
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            api.putWorkspace("/workspace/1234", WorkspaceUtils.toJson(new Workspace("Name", "Description"), false), null);
+            Path dir = Files.createTempDirectory("structurizr");
+            Files.writeString(dir.resolve("workspace.dsl"), "workspace {\n    model {\n        user = person\n");
+
+            assertThrows(Exception.class, () -> new PublishCommand().run("-url", api.getUrl(), "-id", "1234", "-key", "key", "-secret", "secret", "-w", dir.resolve("workspace.dsl").toString()));
+
+            assertFalse(api.getRequests().contains("PUT /workspace/1234 200"));
+            assertTrue(api.getRequests().contains("DELETE /workspace/1234/lock 200"));
+            assertFalse(api.isLocked("/workspace/1234"));
+        }
+    }
+
+}
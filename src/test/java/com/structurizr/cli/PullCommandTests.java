@@ -0,0 +1,124 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.encryption.AesEncryptionStrategy;
+import com.structurizr.encryption.EncryptedWorkspace;
+import com.structurizr.io.json.EncryptedJsonWriter;
+import com.structurizr.util.WorkspaceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PullCommandTests {
+
+    @Test
+    public void run_SkipsTheDownloadAndWrite_WhenTheWorkspaceHasNotChanged() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        String json = Files.readString(new File("src/test/merge/workspace.json").toPath());
+
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            api.putWorkspace("/workspace/1234", json, "\"v1\"");
+
+            String[] args = {
+                    "-url", api.getUrl(),
+                    "-id", "1234",
+                    "-key", "key",
+                    "-secret", "secret",
+                    "-output", tmpDir.getCanonicalPath()
+            };
+
+            new PullCommand().run(args);
+            File file = new File(tmpDir, "structurizr-1234-workspace.json");
+            assertTrue(file.exists());
+            Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(file);
+            assertNotNull(workspace.getModel().getPersonWithName("User"));
+
+            assertTrue(file.setLastModified(0));
+            new PullCommand().run(args);
+            assertEquals(0, file.lastModified());
+
+            assertEquals("GET /workspace/1234 200", api.getRequests().get(0));
+            assertEquals("GET /workspace/1234 304", api.getRequests().get(1));
+
+            // and a changed workspace is downloaded again
+            api.putWorkspace("/workspace/1234", json.replace("\"User\"", "\"Customer\""), "\"v2\"");
+            new PullCommand().run(args);
+            assertEquals("GET /workspace/1234 200", api.getRequests().get(2));
+            workspace = WorkspaceUtils.loadWorkspaceFromJson(file);
+            assertNotNull(workspace.getModel().getPersonWithName("Customer"));
+        }
+    }
+
+    @Test
+    public void run_ArchivesEachVersionThatIsDownloaded() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        String json = Files.readString(new File("src/test/merge/workspace.json").toPath());
+
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            String[] args = { "-url", api.getUrl(), "-id", "1234", "-key", "key", "-secret", "secret", "-output", tmpDir.getCanonicalPath() };
+
+            api.putWorkspace("/workspace/1234", json, "\"v1\"");
+            new PullCommand().run(args);
+            api.putWorkspace("/workspace/1234", json.replace("\"User\"", "\"Customer\""), "\"v2\"");
+            new PullCommand().run(args);
+
+            WorkspaceArchive workspaceArchive = WorkspaceArchive.open(new File(tmpDir, WorkspaceArchive.DIRECTORY_NAME));
+            List<WorkspaceArchive.Version> versions = workspaceArchive.getVersions(StateFile.workspaceKey(api.getUrl(), 1234, null));
+            assertEquals(2, versions.size());
+        }
+    }
+
+    @Test
+    public void run_WritesTheJsonAsReceived_WhenRaw() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        String json = Files.readString(new File("src/test/merge/workspace.json").toPath());
+
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            api.putWorkspace("/workspace/1234", json, "\"v1\"");
+
+            String[] args = {
+                    "-url", api.getUrl(),
+                    "-id", "1234",
+                    "-key", "key",
+                    "-secret", "secret",
+                    "-output", tmpDir.getCanonicalPath(),
+                    "-raw",
+                    "-validate"
+            };
+
+            new PullCommand().run(args);
+            File file = new File(tmpDir, "structurizr-1234-workspace.json");
+            assertEquals(json, Files.readString(file.toPath()));
+
+            // invalid JSON fails validation, and doesn't replace the previous file
+            api.putWorkspace("/workspace/1234", "{ \"id\": ", "\"v2\"");
+            assertThrows(Exception.class, () -> new PullCommand().run(args));
+            assertEquals(json, Files.readString(file.toPath()));
+            assertEquals(0, tmpDir.list((dir, name) -> name.endsWith(".tmp")).length);
+        }
+    }
+
+    @Test
+    public void run_WritesTheDecryptedWorkspace_WhenRawAndAPassphraseIsSpecified() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(new File("src/test/merge/workspace.json"));
+        StringWriter encryptedJson = new StringWriter();
+        new EncryptedJsonWriter(false).write(new EncryptedWorkspace(workspace, new AesEncryptionStrategy("password")), encryptedJson);
+
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            api.putWorkspace("/workspace/1234", encryptedJson.toString(), "\"v1\"");
+
+            new PullCommand().run("-url", api.getUrl(), "-id", "1234", "-key", "key", "-secret", "secret", "-output", tmpDir.getCanonicalPath(), "-raw", "-passphrase", "password");
+
+            File file = new File(tmpDir, "structurizr-1234-workspace.json");
+            assertFalse(Files.readString(file.toPath()).contains("ciphertext"));
+            assertNotNull(WorkspaceUtils.loadWorkspaceFromJson(file).getModel().getPersonWithName("User"));
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.encryption.EncryptedWorkspace;
+import com.structurizr.io.json.EncryptedJsonReader;
+import com.structurizr.io.json.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PushCommandTests {
+
+    @Test
+    public void run_UploadsACompressedWorkspace_WhenGzipIsSpecified() throws Exception {
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            Path dir = Files.createTempDirectory("structurizr");
+            Files.copy(Path.of("src/test/merge/workspace.dsl"), dir.resolve("workspace.dsl"));
+
+            new PushCommand().run("-url", api.getUrl(), "-id", "1234", "-key", "key", "-secret", "secret", "-w", dir.resolve("workspace.dsl").toString(), "-merge", "false", "-archive", "false", "-gzip");
+
+            assertTrue(api.getRequests().contains("PUT /workspace/1234 200"));
+            Workspace workspace = new JsonReader().read(new StringReader(api.getWorkspace("/workspace/1234")));
+            assertEquals(1234, workspace.getId());
+            assertNotNull(workspace.getModel().getPersonWithName("User"));
+        }
+    }
+
+    @Test
+    public void run_UploadsAnEncryptedWorkspace_ThatCanBeDecrypted() throws Exception {
+        try (StubStructurizrApi api = new StubStructurizrApi()) {
+            Path dir = Files.createTempDirectory("structurizr");
+            Files.copy(Path.of("src/test/merge/workspace.dsl"), dir.resolve("workspace.dsl"));
+
+            new PushCommand().run("-url", api.getUrl(), "-id", "1234", "-key", "key", "-secret", "secret", "-w", dir.resolve("workspace.dsl").toString(), "-merge", "false", "-archive", "false", "-gzip", "-passphrase", "password");
+
+            assertTrue(api.getRequests().contains("PUT /workspace/1234 200"));
+            EncryptedWorkspace encryptedWorkspace = new EncryptedJsonReader().read(new StringReader(api.getWorkspace("/workspace/1234")));
+            encryptedWorkspace.getEncryptionStrategy().setPassphrase("password");
+            Workspace workspace = encryptedWorkspace.getWorkspace();
+            assertNotNull(workspace.getModel().getPersonWithName("User"));
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.structurizr.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A local stand-in for the Structurizr workspace API, for use in tests.
+ */
+class StubStructurizrApi implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String,String> workspaces = new HashMap<>();
+    private final Map<String,String> etags = new HashMap<>();
+    private final Set<String> locks = new HashSet<>();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    StubStructurizrApi() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/workspace/", this::handle);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    synchronized void putWorkspace(String path, String json, String etag) {
+        workspaces.put(path, json);
+        etags.put(path, etag);
+    }
+
+    synchronized String getWorkspace(String path) {
+        return workspaces.get(path);
+    }
+
+    synchronized boolean isLocked(String path) {
+        return locks.contains(path);
+    }
+
+    /**
+     * Returns the requests received so far, as "METHOD path status".
+     */
+    List<String> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        int status;
+        String body = "";
+
+        if (exchange.getRequestHeaders().getFirst("X-Authorization") == null || exchange.getRequestHeaders().getFirst("Nonce") == null) {
+            status = 403;
+            body = "{\"success\":false,\"message\":\"Authorization header must be provided\"}";
+        } else if (path.endsWith("/lock")) {
+            String workspacePath = path.substring(0, path.length() - "/lock".length());
+            boolean success;
+            synchronized (this) {
+                success = "PUT".equals(method) ? locks.add(workspacePath) : locks.remove(workspacePath);
+            }
+            status = 200;
+            body = "{\"success\":" + success + ",\"message\":\"OK\"}";
+        } else if ("GET".equals(method)) {
+            synchronized (this) {
+                String etag = etags.get(path);
+                if (!workspaces.containsKey(path)) {
+                    status = 404;
+                    body = "{\"success\":false,\"message\":\"Workspace not found\"}";
+                } else if (etag != null && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    status = 304;
+                } else {
+                    status = 200;
+                    body = workspaces.get(path);
+                    if (etag != null) {
+                        exchange.getResponseHeaders().add("ETag", etag);
+                    }
+                }
+            }
+        } else if ("PUT".equals(method)) {
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                in = new GZIPInputStream(in);
+            }
+            String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+            if (!contentMd5(json).equals(exchange.getRequestHeaders().getFirst("Content-MD5"))) {
+                status = 400;
+                body = "{\"success\":false,\"message\":\"MD5 hash doesn't match content\"}";
+            } else {
+                synchronized (this) {
+                    workspaces.put(path, json);
+                    etags.remove(path);
+                }
+                status = 200;
+                body = "{\"success\":true,\"message\":\"OK\"}";
+            }
+        } else {
+            status = 405;
+        }
+
+        requests.add(method + " " + path + " " + status);
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private static String contentMd5(String content) {
+        try {
+            String md5 = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8)));
+            return Base64.getEncoder().encodeToString(md5.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+}
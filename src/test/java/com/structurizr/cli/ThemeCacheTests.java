@@ -0,0 +1,107 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Person;
+import com.structurizr.view.ElementStyle;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThemeCacheTests {
+
+    private static final String THEME = "{ \"name\": \"Theme\", \"elements\": [ { \"tag\": \"Person\", \"background\": \"#08427b\", \"icon\": \"person.png\" } ] }";
+
+    @Test
+    public void loadThemes_FetchesThemesOnce_AndThenUsesTheCache() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(requests);
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/themes/a/theme.json";
+            File directory = Files.createTempDirectory("structurizr").toFile();
+
+            Workspace workspace = new Workspace("Name", "Description");
+            Person user = workspace.getModel().addPerson("User");
+            workspace.getViews().getConfiguration().setThemes(url);
+            ThemeCache themeCache = new ThemeCache(directory);
+            themeCache.loadThemes(workspace);
+
+            ElementStyle style = workspace.getViews().getConfiguration().getStyles().findElementStyle(user);
+            assertEquals("#08427b", style.getBackground());
+            assertEquals("http://127.0.0.1:" + server.getAddress().getPort() + "/themes/a/person.png", style.getIcon());
+            assertEquals(1, themeCache.getFetched());
+
+            workspace = new Workspace("Name", "Description");
+            user = workspace.getModel().addPerson("User");
+            workspace.getViews().getConfiguration().setThemes(url);
+            themeCache = new ThemeCache(directory);
+            themeCache.loadThemes(workspace);
+
+            assertEquals(1, requests.get());
+            assertEquals(1, themeCache.getHits());
+            assertEquals("#08427b", workspace.getViews().getConfiguration().getStyles().findElementStyle(user).getBackground());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void get_FetchesThemesInParallel_AndUsesStaleCopiesWhenTheServerIsUnavailable() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(requests);
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        List<String> urls = List.of(baseUrl + "/themes/a/theme.json", baseUrl + "/themes/b/theme.json", baseUrl + "/themes/c/theme.json");
+        File directory = Files.createTempDirectory("structurizr").toFile();
+
+        ThemeCache themeCache = new ThemeCache(directory);
+        try {
+            assertEquals(urls, List.copyOf(themeCache.get(urls).keySet()));
+            assertEquals(3, requests.get());
+        } finally {
+            server.stop(0);
+        }
+
+        themeCache = new ThemeCache(directory);
+        themeCache.setTimeToLive(0);
+        themeCache.setTimeout(1000);
+        assertEquals(THEME, themeCache.get(urls).get(urls.get(0)));
+        assertEquals(3, themeCache.getHits());
+    }
+
+    @Test
+    public void get_ThrowsAnException_WhenOfflineAndTheThemeIsNotCached() throws Exception {
+        ThemeCache themeCache = new ThemeCache(Files.createTempDirectory("structurizr").toFile());
+        themeCache.setOffline(true);
+
+        try {
+            themeCache.get(List.of("https://example.com/theme.json"));
+            fail();
+        } catch (StructurizrCliException e) {
+            assertTrue(e.getMessage().startsWith("The theme at https://example.com/theme.json is not in the theme cache"));
+        }
+    }
+
+    private HttpServer startServer(AtomicInteger requests) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/themes/", exchange -> {
+            requests.incrementAndGet();
+            byte[] bytes = THEME.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+
+        return server;
+    }
+
+}
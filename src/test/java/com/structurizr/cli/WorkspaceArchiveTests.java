@@ -0,0 +1,53 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceArchiveTests {
+
+    @Test
+    public void add_StoresDeduplicatedVersions_AndAppliesTheRetentionCount() throws Exception {
+        File directory = Files.createTempDirectory("structurizr").toFile();
+        WorkspaceArchive archive = WorkspaceArchive.open(directory);
+        archive.setRetention(3);
+
+        Workspace workspace = new ValidateCommand().loadWorkspace("src/test/merge/workspace.dsl");
+        List<String> versions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            workspace.getModel().getPersonWithName("User").setDescription("Version " + i);
+            versions.add(WorkspaceUtils.toJson(workspace, false));
+        }
+
+        for (String json : versions) {
+            archive.add("workspace/1", json);
+            archive.add("workspace/1", json); // the same content again is ignored
+        }
+
+        List<WorkspaceArchive.Version> archived = archive.getVersions("workspace/1");
+        assertEquals(3, archived.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(versions.get(i + 2), archive.read(archived.get(i).getHash()));
+        }
+
+        File[] objects = new File(directory, "objects").listFiles();
+        assertEquals(3, objects.length);
+
+        // the oldest retained version has been rebased as a full copy, and the others are small deltas against it
+        long largest = 0;
+        long smallest = Long.MAX_VALUE;
+        for (File object : objects) {
+            largest = Math.max(largest, object.length());
+            smallest = Math.min(smallest, object.length());
+        }
+        assertTrue(smallest * 2 < largest);
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.dsl.StructurizrDslParser;
+import com.structurizr.model.Container;
+import com.structurizr.model.Relationship;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.util.WorkspaceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceCompactorTests {
+
+    @Test
+    public void compact_ReplacesDuplicateStringsWithASharedInstance() throws Exception {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        Container a = softwareSystem.addContainer("A", "Description", new String("Java"));
+        Container b = softwareSystem.addContainer("B", "Description", new String("Java"));
+        a.addProperty(new String("team"), new String("Payments"));
+        b.addProperty(new String("team"), new String("Payments"));
+        a.uses(b, "Uses");
+
+        // a round trip through JSON, so that every string is a separate instance
+        workspace = WorkspaceUtils.fromJson(WorkspaceUtils.toJson(workspace, false));
+        a = workspace.getModel().getSoftwareSystemWithName("Software System").getContainerWithName("A");
+        b = workspace.getModel().getSoftwareSystemWithName("Software System").getContainerWithName("B");
+        assertNotSame(a.getTechnology(), b.getTechnology());
+
+        WorkspaceCompactor compactor = new WorkspaceCompactor();
+        compactor.compact(workspace);
+
+        assertSame(a.getTechnology(), b.getTechnology());
+        assertSame(a.getProperties().get("team"), b.getProperties().get("team"));
+        assertSame(a.getTagsAsSet().iterator().next(), b.getTagsAsSet().iterator().next());
+
+        Relationship relationship = a.getRelationships().iterator().next();
+        assertSame(a.getId(), relationship.getSourceId());
+        assertSame(b.getId(), relationship.getDestinationId());
+
+        assertEquals("Element,Container", a.getTags());
+        assertEquals("Payments", a.getProperties().get("team"));
+        assertTrue(compactor.getDuplicateStrings() > 0);
+    }
+
+    @Test
+    public void compact_SharesDuplicateStrings_AcrossAGeneratedWorkspace() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setSoftwareSystems(50);
+        generator.setPeople(10);
+        generator.setViews(10);
+        File dslFile = new File(tmpDir, "workspace.dsl");
+        generator.write(dslFile);
+
+        StructurizrDslParser parser = new StructurizrDslParser();
+        parser.parse(dslFile);
+        File jsonFile = new File(tmpDir, "workspace.json");
+        WorkspaceUtils.saveWorkspaceToJson(parser.getWorkspace(), jsonFile);
+
+        Workspace workspace = WorkspaceUtils.loadWorkspaceFromJson(jsonFile);
+        List<Container> containers = workspace.getModel().getElements().stream().filter(e -> e instanceof Container).map(e -> (Container)e).collect(Collectors.toList());
+        Container first = containers.get(0);
+        Container last = containers.stream().filter(c -> c != first && c.getTechnology().equals(first.getTechnology())).reduce((c1, c2) -> c2).orElseThrow();
+        assertNotSame(first.getTechnology(), last.getTechnology());
+
+        WorkspaceCompactor compactor = new WorkspaceCompactor();
+        compactor.compact(workspace);
+
+        // at least the technology of every container but the first with each technology
+        assertTrue(compactor.getDuplicateStrings() >= containers.size() - containers.stream().map(Container::getTechnology).distinct().count());
+        assertTrue(compactor.getBytesSaved() > 0);
+        assertSame(first.getTechnology(), last.getTechnology());
+
+        // the workspace is unchanged
+        assertEquals(WorkspaceUtils.toJson(WorkspaceUtils.loadWorkspaceFromJson(jsonFile), false), WorkspaceUtils.toJson(workspace, false));
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.dsl.StructurizrDslParser;
+import com.structurizr.model.Container;
+import com.structurizr.model.Person;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.ContainerView;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceDiffTests {
+
+    @Test
+    public void compare_ReportsAddedRemovedAndChangedItems() throws Exception {
+        Workspace before = createWorkspace("Java");
+        Person user = before.getModel().getPersonWithName("User");
+        user.uses(before.getModel().getSoftwareSystemWithName("Software System").getContainerWithName("Web Application"), "Uses");
+
+        Workspace after = createWorkspace("Kotlin");
+        after.getModel().getSoftwareSystemWithName("Software System").addContainer("Database");
+        after.getViews().getContainerViews().iterator().next().addAllContainers();
+
+        WorkspaceDiff diff = WorkspaceDiff.compare(WorkspaceDiff.Snapshot.of(before), WorkspaceDiff.Snapshot.of(after));
+
+        assertEquals(Set.of("Container://Software System.Database"), diff.getElements().getAdded());
+        assertTrue(diff.getElements().getRemoved().isEmpty());
+        assertEquals(List.of("technology"), diff.getElements().getChanged().get("Container://Software System.Web Application"));
+
+        assertTrue(diff.getRelationships().getAdded().isEmpty());
+        assertEquals(Set.of("Person://User -> Container://Software System.Web Application (Uses)"), diff.getRelationships().getRemoved());
+
+        assertEquals(List.of("elements", "layout"), diff.getViews().getChanged().get("Containers"));
+    }
+
+    @Test
+    public void compare_ReportsNoChanges_WhenTheSameDslIsParsedTwice() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setDynamicSteps(3);
+        generator.setDeploymentEnvironments(2);
+        File file = new File(tmpDir, "workspace.dsl");
+        generator.write(file);
+
+        WorkspaceDiff diff = WorkspaceDiff.compare(WorkspaceDiff.Snapshot.of(parse(file)), WorkspaceDiff.Snapshot.of(parse(file)));
+
+        assertTrue(diff.isEmpty());
+    }
+
+    private Workspace createWorkspace(String technology) {
+        Workspace workspace = new Workspace("Name", "Description");
+        workspace.getModel().addPerson("User");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        Container container = softwareSystem.addContainer("Web Application", "Description", technology);
+
+        ContainerView view = workspace.getViews().createContainerView(softwareSystem, "Containers", "Description");
+        view.add(container);
+        view.addAllPeople();
+
+        return workspace;
+    }
+
+    private Workspace parse(File file) throws Exception {
+        StructurizrDslParser parser = new StructurizrDslParser();
+        parser.parse(file);
+
+        return parser.getWorkspace();
+    }
+
+}
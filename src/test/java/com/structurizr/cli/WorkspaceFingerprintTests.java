@@ -0,0 +1,42 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceFingerprintTests {
+
+    @Test
+    public void of_ReturnsTheSameFingerprint_WhenTheSameDslIsParsedTwice() throws Exception {
+        Workspace workspace1 = new ValidateCommand().loadWorkspace("src/test/merge/workspace.dsl");
+        Workspace workspace2 = new ValidateCommand().loadWorkspace("src/test/merge/workspace.dsl");
+
+        assertEquals(WorkspaceFingerprint.of(workspace1), WorkspaceFingerprint.of(workspace2));
+    }
+
+    @Test
+    public void of_IgnoresWorkspaceMetadata() throws Exception {
+        Workspace workspace = new ValidateCommand().loadWorkspace("src/test/merge/workspace.dsl");
+        String fingerprint = WorkspaceFingerprint.of(workspace);
+
+        workspace.setId(1234);
+        workspace.setLastModifiedDate(new Date());
+        workspace.setLastModifiedAgent("structurizr-cli");
+
+        assertEquals(fingerprint, WorkspaceFingerprint.of(workspace));
+    }
+
+    @Test
+    public void of_ReturnsADifferentFingerprint_WhenTheModelChanges() throws Exception {
+        Workspace workspace = new ValidateCommand().loadWorkspace("src/test/merge/workspace.dsl");
+        String fingerprint = WorkspaceFingerprint.of(workspace);
+
+        workspace.getModel().getPersonWithName("User").setDescription("Description");
+
+        assertNotEquals(fingerprint, WorkspaceFingerprint.of(workspace));
+    }
+
+}
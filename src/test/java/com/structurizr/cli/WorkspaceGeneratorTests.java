@@ -0,0 +1,63 @@
+package com.structurizr.cli;
+
+import com.structurizr.Workspace;
+import com.structurizr.dsl.StructurizrDslParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceGeneratorTests {
+
+    @Test
+    public void write_GeneratesTheSameWorkspace_ForTheSameSeed() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setSeed(123);
+        generator.write(new File(tmpDir, "a.dsl"));
+        generator.write(new File(tmpDir, "b.dsl"));
+        generator.setSeed(456);
+        generator.write(new File(tmpDir, "c.dsl"));
+
+        String a = Files.readString(new File(tmpDir, "a.dsl").toPath());
+        assertEquals(a, Files.readString(new File(tmpDir, "b.dsl").toPath()));
+        assertNotEquals(a, Files.readString(new File(tmpDir, "c.dsl").toPath()));
+    }
+
+    @Test
+    public void write_GeneratesAWorkspaceThatCanBeParsed_WhenTheModelIsSplitAcrossIncludes() throws Exception {
+        File tmpDir = Files.createTempDirectory("structurizr").toFile();
+
+        WorkspaceGenerator generator = new WorkspaceGenerator();
+        generator.setPeople(5);
+        generator.setSoftwareSystems(7);
+        generator.setContainers(4);
+        generator.setComponents(2);
+        generator.setRelationships(50);
+        generator.setDeploymentEnvironments(2);
+        generator.setViews(6);
+        generator.setDynamicSteps(5);
+        generator.setIncludes(3);
+        File file = new File(tmpDir, "workspace.dsl");
+        generator.write(file);
+
+        assertTrue(new File(tmpDir, "model-3.dsl").exists());
+        assertTrue(new File(tmpDir, "relationships-3.dsl").exists());
+
+        StructurizrDslParser parser = new StructurizrDslParser();
+        parser.parse(file);
+        Workspace workspace = parser.getWorkspace();
+
+        assertEquals(generator.getNumberOfElements(), workspace.getModel().getElements().size());
+        assertEquals(5, workspace.getModel().getPeople().size());
+        assertEquals(7, workspace.getModel().getSoftwareSystems().size());
+
+        // landscape + 6 context/container/component views + 2 dynamic views + 2 deployment views
+        assertEquals(11, workspace.getViews().getViews().size());
+        assertEquals(5, workspace.getViews().getDynamicViews().iterator().next().getRelationships().size());
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.structurizr.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.structurizr.Workspace;
+import com.structurizr.documentation.Format;
+import com.structurizr.documentation.Section;
+import com.structurizr.model.Container;
+import com.structurizr.model.Person;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.ContainerView;
+import com.structurizr.view.DynamicView;
+import com.structurizr.view.SystemContextView;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceStatisticsTests {
+
+    @Test
+    public void of_CountsTheItemsInTheWorkspace() throws Exception {
+        Workspace workspace = new Workspace("Name", "Description");
+        Person user = workspace.getModel().addPerson("User");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        Container webApplication = softwareSystem.addContainer("Web Application");
+        Container database = softwareSystem.addContainer("Database");
+        user.uses(webApplication, "Uses");
+        webApplication.uses(database, "Reads from");
+        workspace.getDocumentation().addSection(new Section(Format.Markdown, "## Context\n"));
+
+        SystemContextView contextView = workspace.getViews().createSystemContextView(softwareSystem, "Context", "");
+        contextView.addDefaultElements();
+        ContainerView containerView = workspace.getViews().createContainerView(softwareSystem, "Containers", "");
+        containerView.addDefaultElements();
+        DynamicView dynamicView = workspace.getViews().createDynamicView(softwareSystem, "Dynamic", "");
+        dynamicView.add(user, webApplication);
+        dynamicView.add(webApplication, database);
+
+        WorkspaceStatistics statistics = WorkspaceStatistics.of(workspace);
+
+        assertEquals(1, statistics.getElementsByType().get("Person"));
+        assertEquals(1, statistics.getElementsByType().get("SoftwareSystem"));
+        assertEquals(2, statistics.getElementsByType().get("Container"));
+        assertEquals(1, statistics.getRelationshipsByType().get("Person -> Container"));
+        assertEquals(1, statistics.getRelationshipsByType().get("Container -> Container"));
+        assertEquals(1, statistics.getViewsByType().get("DynamicView"));
+        assertEquals("## Context\n".length(), statistics.getDocumentationBytes());
+        assertTrue(statistics.getEstimatedHeapBytes() > 0);
+
+        WorkspaceStatistics.ViewStatistics largest = statistics.getLargestViews(1, false).get(0);
+        assertEquals("Containers", largest.getKey());
+        assertEquals(3, largest.getElements());
+
+        List<String> keys = new ArrayList<>();
+        statistics.getViews().forEach(view -> keys.add(view.getKey()));
+        assertEquals("Containers", keys.get(0));
+
+        JsonNode json = statistics.toJson(new ObjectMapper(), 10);
+        assertEquals(2, json.path("dynamicViewFrames").path("Dynamic").asInt());
+        assertEquals(WorkspaceStatistics.estimateExportCost(containerView), json.path("exportCost").path("Containers").asLong());
+    }
+
+}
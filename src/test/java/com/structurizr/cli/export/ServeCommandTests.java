@@ -0,0 +1,88 @@
+package com.structurizr.cli.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServeCommandTests {
+
+    private static final String DSL = "workspace {\n" +
+            "    model {\n" +
+            "        u = person \"User\"\n" +
+            "        s = softwareSystem \"Software System\"\n" +
+            "        u -> s \"Uses\"\n" +
+            "    }\n" +
+            "    views {\n" +
+            "        systemContext s \"Context\" {\n" +
+            "            include *\n" +
+            "        }\n" +
+            "    }\n" +
+            "}";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    public void export_RendersViews_AndCachesTheResult() throws Exception {
+        ServeCommand.Server server = new ServeCommand().start(new InetSocketAddress("127.0.0.1", 0), 2, 10, 10, 10, 10000);
+        String url = "http://127.0.0.1:" + server.getPort();
+        try {
+            HttpResponse<String> response = post(url + "/export?format=plantuml&view=Context", DSL);
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().startsWith("@startuml"));
+            assertTrue(response.body().contains("Software System"));
+
+            // the same request is served from the cache
+            assertEquals(response.body(), post(url + "/export?format=plantuml&view=Context", DSL).body());
+
+            response = post(url + "/export?format=mermaid", DSL);
+            JsonNode json = new ObjectMapper().readTree(response.body());
+            assertTrue(json.has("Context"));
+
+            assertEquals(404, post(url + "/export?format=plantuml&view=Missing", DSL).statusCode());
+            assertEquals(400, post(url + "/export?format=unknown", DSL).statusCode());
+
+            String metrics = httpClient.send(HttpRequest.newBuilder(URI.create(url + "/metrics")).build(), HttpResponse.BodyHandlers.ofString()).body();
+            assertTrue(metrics.contains("structurizr_diagram_cache_hits_total 1\n"));
+            assertTrue(metrics.contains("structurizr_workspace_cache_hits_total 2\n"));
+            assertTrue(metrics.contains("structurizr_requests_total{status=\"200\"} 3\n"));
+        } finally {
+            server.stop();
+        }
+
+        // the request threads are stopped with the server
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(t -> t.getName().startsWith("structurizr-serve-") && t.isAlive()));
+    }
+
+    @Test
+    public void export_RejectsMalformedJson_AndBodiesThatAreTooLarge() throws Exception {
+        ServeCommand.Server server = new ServeCommand().start(new InetSocketAddress("127.0.0.1", 0), 2, 10, 10, 10, DSL.length());
+        String url = "http://127.0.0.1:" + server.getPort();
+        try {
+            HttpResponse<String> response = post(url + "/export?format=plantuml", "{ \"name\": ");
+            assertEquals(400, response.statusCode());
+
+            assertEquals(200, post(url + "/export?format=plantuml&view=Context", DSL).statusCode());
+
+            response = post(url + "/export?format=plantuml&view=Context", DSL + "\n");
+            assertEquals(413, response.statusCode());
+            assertEquals("The request body must not be larger than " + DSL.length() + " bytes", response.body());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private HttpResponse<String> post(String url, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.structurizr.cli.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.model.Container;
+import com.structurizr.model.ContainerInstance;
+import com.structurizr.model.DeploymentNode;
+import com.structurizr.model.Person;
+import com.structurizr.model.SoftwareSystem;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TabularWorkspaceExporterTests {
+
+    @Test
+    public void export_WritesOneRowPerItem() throws Exception {
+        Workspace workspace = new Workspace("Name", "Description");
+        Person user = workspace.getModel().addPerson("User", "A user, of the \"system\"");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        Container container = softwareSystem.addContainer("Web Application", "Serves\nHTML", "Java");
+        container.addProperty("owner", "Team A");
+        user.uses(container, "Uses").addTags("HTTPS");
+        DeploymentNode deploymentNode = workspace.getModel().addDeploymentNode("Live", "Server", "", "Ubuntu");
+        ContainerInstance containerInstance = deploymentNode.add(container);
+
+        Map<String,StringWriter> files = export(workspace, "csv");
+
+        String[] elements = files.get("elements.csv").toString().split("\r\n");
+        assertEquals("id,type,name,description,technology,parentId,group,url,tags", elements[0]);
+        assertEquals("1,Person,User,\"A user, of the \"\"system\"\"\",,,,,\"Element,Person\"", elements[1]);
+        assertEquals("3,Container,Web Application,\"Serves\nHTML\",Java,2,,,\"Element,Container\"", elements[3]);
+        assertEquals(6, elements.length);
+
+        String[] relationships = files.get("relationships.csv").toString().split("\r\n");
+        assertEquals("4,1,3,Uses,,,,,\"Relationship,HTTPS\"", relationships[1]);
+
+        String deploymentInstances = files.get("deployment-instances.csv").toString();
+        assertTrue(deploymentInstances.contains(containerInstance.getId() + ",ContainerInstance," + deploymentNode.getId() + ",Live,3,1,Default\r\n"));
+
+        assertTrue(files.get("tags.csv").toString().contains("4,HTTPS\r\n"));
+        assertTrue(files.get("properties.csv").toString().endsWith("3,owner,Team A\r\n"));
+
+        files = export(workspace, "tsv");
+        elements = files.get("elements.tsv").toString().split("\n");
+        assertEquals("3\tContainer\tWeb Application\tServes\\nHTML\tJava\t2\t\t\tElement,Container", elements[3]);
+    }
+
+    private Map<String,StringWriter> export(Workspace workspace, String format) throws Exception {
+        Map<String,StringWriter> files = new HashMap<>();
+        new TabularWorkspaceExporter(format).export(workspace, (name, fileExtension) -> files.computeIfAbsent(name + "." + fileExtension, k -> new StringWriter()));
+
+        return files;
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.structurizr.cli.export;
+
+import com.structurizr.Workspace;
+import com.structurizr.cli.Metrics;
+import com.structurizr.export.Diagram;
+import com.structurizr.export.plantuml.StructurizrPlantUMLExporter;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.SystemContextView;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ViewExportWatchdogTests {
+
+    @Test
+    public void export_AbandonsTheView_WhenItTakesLongerThanTheTimeout() throws Exception {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        SystemContextView slowView = workspace.getViews().createSystemContextView(softwareSystem, "Slow", "");
+        slowView.addDefaultElements();
+        SystemContextView fastView = workspace.getViews().createSystemContextView(softwareSystem, "Fast", "");
+        fastView.addDefaultElements();
+
+        try (ViewExportWatchdog watchdog = new ViewExportWatchdog(new SlowExporter(), 200, new Metrics("export"))) {
+            assertNull(watchdog.export(slowView));
+
+            Diagram diagram = watchdog.export(fastView);
+            assertNotNull(diagram);
+            assertEquals("Fast", diagram.getKey());
+
+            assertEquals(List.of("Slow"), watchdog.getFailedViews());
+
+            List<Map.Entry<String,Long>> slowestViews = watchdog.getSlowestViews(5);
+            assertEquals(2, slowestViews.size());
+            assertEquals("Slow", slowestViews.get(0).getKey());
+            assertTrue(slowestViews.get(0).getValue() >= 200);
+            assertEquals(1, watchdog.getSlowestViews(1).size());
+        }
+    }
+
+    @Test
+    public void export_FailsTheRemainingViews_WhenTheExporterCannotBeInstantiatedAgain() throws Exception {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        SystemContextView slowView = workspace.getViews().createSystemContextView(softwareSystem, "Slow", "");
+        slowView.addDefaultElements();
+        SystemContextView fastView = workspace.getViews().createSystemContextView(softwareSystem, "Fast", "");
+        fastView.addDefaultElements();
+
+        try (ViewExportWatchdog watchdog = new ViewExportWatchdog(new ConfiguredSlowExporter("config"), 200, new Metrics("export"))) {
+            assertNull(watchdog.export(slowView));
+            assertNull(watchdog.export(fastView));
+
+            assertEquals(List.of("Slow", "Fast"), watchdog.getFailedViews());
+        }
+    }
+
+    @Test
+    public void export_ExportsOnTheCurrentThread_WhenThereIsNoTimeout() throws Exception {
+        Workspace workspace = new Workspace("Name", "Description");
+        SoftwareSystem softwareSystem = workspace.getModel().addSoftwareSystem("Software System");
+        SystemContextView view = workspace.getViews().createSystemContextView(softwareSystem, "Context", "");
+        view.addDefaultElements();
+
+        try (ViewExportWatchdog watchdog = new ViewExportWatchdog(new StructurizrPlantUMLExporter(), 0, new Metrics("export"))) {
+            assertTrue(watchdog.export(view).getDefinition().startsWith("@startuml"));
+            assertTrue(watchdog.getFailedViews().isEmpty());
+            assertEquals("Context", watchdog.getSlowestViews(5).get(0).getKey());
+        }
+    }
+
+    public static class SlowExporter extends StructurizrPlantUMLExporter {
+
+        @Override
+        public Diagram export(SystemContextView view) {
+            if ("Slow".equals(view.getKey())) {
+                long end = System.currentTimeMillis() + 2000;
+                while (System.currentTimeMillis() < end) {
+                    // a runaway view that ignores interrupts
+                }
+            }
+
+            return super.export(view);
+        }
+
+    }
+
+    public static class ConfiguredSlowExporter extends SlowExporter {
+
+        public ConfiguredSlowExporter(String configuration) {
+        }
+
+    }
+
+}